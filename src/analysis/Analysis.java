@@ -39,6 +39,15 @@ public abstract class Analysis {
     // initializes the carrier lattice, the start value, and the initial value
     protected abstract void initLattice();
     
+//  getSize ************************************************************************
+    
+    // returns the size of the given lattice element for the convergence
+    // profile (see AnalysisProfile), e.g., its number of non-default
+    // mappings; 0 if the analysis doesn't measure it
+    protected int getSize(LatticeElement element) {
+        return 0;
+    }
+    
 //  createTf ***********************************************************************
     
     // creates a transfer function for the given node;
@@ -0,0 +1,266 @@
+package analysis;
+
+import java.io.*;
+import java.util.*;
+
+import pixy.MyOptions;
+import conversion.TacFunction;
+import conversion.nodes.CfgNode;
+
+// convergence profile of a worklist algorithm (see MyOptions.profileAnalysis):
+// counts the visits of each node and each function (together with the
+// contexts under which the function is visited), the merges at each node
+// and the time spent for them, and how the size of the analysis information
+// grows over time; report() prints the top hotspots and writes a folded-stack
+// file (one line "f1;f2;...;fn visits" per stack of functions, as expected
+// by flame graph tools); if the analysis is interrupted, the profile
+// collected so far is reported on shutdown
+public class AnalysisProfile {
+
+    // number of steps between two entries of the growth timeline
+    private static final int SAMPLE_STEPS = 10000;
+
+    // number of profiles created so far (for naming the folded-stack files)
+    private static int profileCount = 0;
+
+    private String name;
+    private long startTime;
+    private long steps;
+
+    // node -> {visits, merges, merge time (ns), changes}
+    private Map<CfgNode,long[]> nodeCosts;
+
+    // function -> {visits, merges, merge time (ns), changes}
+    private Map<TacFunction,long[]> functionCosts;
+
+    // function -> context -> visits (contexts are null for intraprocedural
+    // analyses)
+    private Map<TacFunction,Map<Object,long[]>> contextVisits;
+
+    // summed and maximal size of the values that were merged into the
+    // analysis information (see Analysis.getSize)
+    private long totalSize;
+    private long maxSize;
+
+    // {steps, time (ms), total size, max size} every SAMPLE_STEPS steps
+    private List<long[]> timeline;
+
+    // reports on shutdown until finished
+    private Thread shutdownHook;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    public AnalysisProfile(String name) {
+        this.name = name + "_" + (++profileCount);
+        this.startTime = System.nanoTime();
+        this.nodeCosts = new HashMap<CfgNode,long[]>();
+        this.functionCosts = new HashMap<TacFunction,long[]>();
+        this.contextVisits = new HashMap<TacFunction,Map<Object,long[]>>();
+        this.timeline = new LinkedList<long[]>();
+        this.shutdownHook = new Thread() {
+            public void run() {
+                System.out.println("Warning: analysis interrupted, reporting its profile so far");
+                try {
+                    AnalysisProfile.this.report();
+                } catch (RuntimeException e) {
+                    // the analysis was still modifying the profile
+                    System.out.println("Warning: incomplete profile: " + e);
+                }
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+// *********************************************************************************
+// RECORDING ***********************************************************************
+// *********************************************************************************
+
+//  visit **************************************************************************
+
+    // the worklist algorithm visits the given node under the given context
+    public void visit(CfgNode node, Object context) {
+        TacFunction function = node.getEnclosingFunction();
+        getCosts(this.nodeCosts, node)[0]++;
+        getCosts(this.functionCosts, function)[0]++;
+
+        Map<Object,long[]> visits = this.contextVisits.get(function);
+        if (visits == null) {
+            visits = new HashMap<Object,long[]>();
+            this.contextVisits.put(function, visits);
+        }
+        long[] count = visits.get(context);
+        if (count == null) {
+            count = new long[1];
+            visits.put(context, count);
+        }
+        count[0]++;
+
+        this.steps++;
+        if (this.steps % SAMPLE_STEPS == 0) {
+            this.timeline.add(new long[] {this.steps, this.getTime(),
+                    this.totalSize, this.maxSize});
+        }
+    }
+
+//  merge **************************************************************************
+
+    // a value was merged into the value of the given node, which took the
+    // given time; if this changed the node's value, newSize and oldSize are
+    // the sizes of the new and the old value (and -1 otherwise)
+    public void merge(CfgNode node, long time, int newSize, int oldSize) {
+        long[] nodeCost = getCosts(this.nodeCosts, node);
+        long[] functionCost = getCosts(this.functionCosts, node.getEnclosingFunction());
+        nodeCost[1]++;
+        nodeCost[2] += time;
+        functionCost[1]++;
+        functionCost[2] += time;
+        if (newSize < 0) {
+            return;
+        }
+        nodeCost[3]++;
+        functionCost[3]++;
+        this.totalSize += newSize - oldSize;
+        this.maxSize = Math.max(this.maxSize, newSize);
+    }
+
+    private static <K> long[] getCosts(Map<K,long[]> costs, K key) {
+        long[] retMe = costs.get(key);
+        if (retMe == null) {
+            retMe = new long[4];
+            costs.put(key, retMe);
+        }
+        return retMe;
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+//  getStack ***********************************************************************
+
+    // returns the stack of functions that leads to the given function under
+    // the given context (for the folded-stack file); by default, this is only
+    // the function itself
+    protected List<TacFunction> getStack(TacFunction function, Object context) {
+        return Collections.singletonList(function);
+    }
+
+//  finish *************************************************************************
+
+    // the analysis has finished: reports the profile
+    public void finish() {
+        try {
+            Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+        } catch (IllegalStateException e) {
+            // already shutting down: the hook does the reporting
+            return;
+        }
+        this.report();
+    }
+
+//  report *************************************************************************
+
+    private void report() {
+
+        int top = MyOptions.profileTop;
+        long time = this.getTime();
+        System.out.println();
+        System.out.println("Profile of " + this.name + ": " + this.steps + " steps, " +
+                time + " ms");
+
+        // hotspot nodes
+        System.out.println("Top nodes (visits, merges, merge ms, changes):");
+        for (Map.Entry<CfgNode,long[]> entry : topCosts(this.nodeCosts, top)) {
+            CfgNode node = entry.getKey();
+            long[] costs = entry.getValue();
+            System.out.println("- " + formatCosts(costs) + "  " + node.getFileName() + ":" +
+                    node.getOrigLineno() + "  " + node.getClass().getSimpleName() +
+                    " in " + node.getEnclosingFunction().getName());
+        }
+
+        // hotspot functions
+        System.out.println("Top functions (visits, merges, merge ms, changes, contexts):");
+        for (Map.Entry<TacFunction,long[]> entry : topCosts(this.functionCosts, top)) {
+            TacFunction function = entry.getKey();
+            CfgNode head = function.getCfg().getHead();
+            System.out.println("- " + formatCosts(entry.getValue()) + " " +
+                    this.contextVisits.get(function).size() + "  " +
+                    head.getFileName() + ":" + head.getOrigLineno() + "  " + function.getName());
+        }
+
+        // growth of the analysis information
+        System.out.println("Growth (steps, ms, total size, max size):");
+        for (long[] sample : this.timeline) {
+            System.out.println("- " + sample[0] + " " + sample[1] + " " +
+                    sample[2] + " " + sample[3]);
+        }
+        System.out.println("- " + this.steps + " " + time + " " +
+                this.totalSize + " " + this.maxSize);
+
+        this.writeFolded();
+    }
+
+    // returns the given number of entries with the most visits
+    private static <K> List<Map.Entry<K,long[]>> topCosts(Map<K,long[]> costs, int top) {
+        List<Map.Entry<K,long[]>> retMe = new ArrayList<Map.Entry<K,long[]>>(costs.entrySet());
+        Collections.sort(retMe, new Comparator<Map.Entry<K,long[]>>() {
+            public int compare(Map.Entry<K,long[]> e1, Map.Entry<K,long[]> e2) {
+                long c1 = e1.getValue()[0];
+                long c2 = e2.getValue()[0];
+                return (c1 < c2 ? 1 : (c1 == c2 ? 0 : -1));
+            }
+        });
+        if (retMe.size() > top) {
+            retMe = retMe.subList(0, top);
+        }
+        return retMe;
+    }
+
+    private static String formatCosts(long[] costs) {
+        return costs[0] + " " + costs[1] + " " + (costs[2] / 1000000) + " " + costs[3];
+    }
+
+//  writeFolded ********************************************************************
+
+    // writes the visits of each function (under each context) to the
+    // folded-stack file
+    private void writeFolded() {
+
+        // the same stack can belong to several contexts
+        Map<String,Long> folded = new TreeMap<String,Long>();
+        for (Map.Entry<TacFunction,Map<Object,long[]>> entry : this.contextVisits.entrySet()) {
+            TacFunction function = entry.getKey();
+            for (Map.Entry<Object,long[]> visits : entry.getValue().entrySet()) {
+                StringBuilder stack = new StringBuilder();
+                for (TacFunction frame : this.getStack(function, visits.getKey())) {
+                    if (stack.length() > 0) {
+                        stack.append(';');
+                    }
+                    stack.append(frame.getName());
+                }
+                String key = stack.toString();
+                Long count = folded.get(key);
+                folded.put(key, (count == null ? 0 : count) + visits.getValue()[0]);
+            }
+        }
+
+        String fileName = MyOptions.graphPath + "/profile_" + this.name + ".folded";
+        try {
+            Writer writer = new BufferedWriter(new FileWriter(fileName));
+            for (Map.Entry<String,Long> entry : folded.entrySet()) {
+                writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+            }
+            writer.close();
+            System.out.println("Folded stacks:  " + fileName);
+        } catch (IOException e) {
+            System.out.println("Warning: can't write " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    // milliseconds since the start
+    private long getTime() {
+        return (System.nanoTime() - this.startTime) / 1000000;
+    }
+}
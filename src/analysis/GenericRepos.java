@@ -1,9 +1,10 @@
 package analysis;
 
-import java.util.*;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 
-// a generic repository of recyclable objects;
-// EFF: it might be useful to work with weak references here
+// a generic repository of recyclable objects
 
 // example usage: you have some *immutable* class that contains
 // its own static repository of objects that have been instantiated
@@ -25,45 +26,227 @@ import java.util.*;
 //   and that these methods perform recycling by means of the repository
 // - do not override its default equals and hashCode
 //   (would destroy the advantages mentioned above)
+
+// implementation: open addressing (linear probing) on the structure hash
+// codes, which are stored in a separate int array (no boxing, and most
+// mismatches are detected without calling structureEquals);
+// the table is split into segments with separate locks, such that the
+// threads of the parallel solver rarely block each other;
+// static repositories that live longer than a single analysis should hold
+// their elements by WEAK references: an element that is no longer used by
+// anyone can't be compared with "==" to another one anyway, so it can
+// safely be dropped from the repository
 public class GenericRepos<E extends Recyclable> {
 
-    // structure hash code (Integer) -> List of Recyclable's
-    private Map<Integer,List<E>> repos;
+    // reference strengths
+    public static final int STRONG = 0;
+    public static final int WEAK = 1;
+    public static final int SOFT = 2;
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private final Segment<E>[] segments;
     
     public GenericRepos() {
-        this.repos = new HashMap<Integer,List<E>>();
+        this(STRONG);
+    }
+
+    public GenericRepos(int strength) {
+        // arrays of a generic type can't be created directly; the cast is
+        // safe since the array is private and only ever holds Segment<E>
+        @SuppressWarnings("unchecked")
+        Segment<E>[] segments = (Segment<E>[]) new Segment<?>[1 << SEGMENT_BITS];
+        this.segments = segments;
+        for (int i = 0; i < this.segments.length; i++) {
+            this.segments[i] = new Segment<E>(strength);
+        }
     }
 
     // if the given element equals one from the repository: the
     // repository element is returned; else: the element is
-    // entered into the repository and returned
+    // entered into the repository and returned;
+    // thread-safe (the parallel solver recycles from several threads)
     public E recycle(E recycleMe) {
         
         if (recycleMe == null) {
             return recycleMe;
         }
 
-        Integer structureHashCode = new Integer(recycleMe.structureHashCode());
-        List<E> candidates = this.repos.get(structureHashCode);
-        if (candidates == null) {
-            // no candidates list: add recycleMe to the repos and return it
-            List<E> recycleMeList = new LinkedList<E>();
-            recycleMeList.add(recycleMe);
-            this.repos.put(structureHashCode, recycleMeList);
+        int hash = spread(recycleMe.structureHashCode());
+        Segment<E> segment = this.segments[hash >>> (32 - SEGMENT_BITS)];
+        synchronized (segment) {
+            return segment.recycle(hash, recycleMe);
+        }
+    }
+
+//  ********************************************************************************
+
+    // number of elements in the repository (including elements that
+    // are no longer referenced, but have not been collected yet)
+    public int size() {
+        int size = 0;
+        for (Segment<E> segment : this.segments) {
+            synchronized (segment) {
+                size += segment.countLive();
+            }
+        }
+        return size;
+    }
+    
+    // number of recycle() calls that returned an existing element
+    public long getHits() {
+        long hits = 0;
+        for (Segment<E> segment : this.segments) {
+            synchronized (segment) {
+                hits += segment.hits;
+            }
+        }
+        return hits;
+    }
+
+    // number of recycle() calls that entered a new element
+    public long getMisses() {
+        long misses = 0;
+        for (Segment<E> segment : this.segments) {
+            synchronized (segment) {
+                misses += segment.misses;
+            }
+        }
+        return misses;
+    }
+
+    public String getStatistics() {
+        return "size: " + this.size() + ", hits: " + this.getHits() + 
+            ", misses: " + this.getMisses();
+    }
+
+//  ********************************************************************************
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+    
+//  ********************************************************************************
+
+    private static final class Segment<E extends Recyclable> {
+        
+        private final int strength;
+        
+        // slot -> structure hash code of the element in this slot
+        private int[] hashes;
+        
+        // slot -> element (or reference to the element), null if empty;
+        // slots with cleared references stay occupied until the next rehash
+        // (so that probing sequences aren't interrupted), but can be reused
+        private Object[] slots;
+        
+        // number of occupied slots
+        private int used;
+        
+        private long hits;
+        private long misses;
+        
+        Segment(int strength) {
+            this.strength = strength;
+            this.hashes = new int[INITIAL_CAPACITY];
+            this.slots = new Object[INITIAL_CAPACITY];
+        }
+
+        E recycle(int hash, E recycleMe) {
+            
+            int mask = this.slots.length - 1;
+            int free = -1;
+            int i = hash & mask;
+            Object slot;
+            while ((slot = this.slots[i]) != null) {
+                E candidate = get(slot);
+                if (candidate == null) {
+                    // cleared reference
+                    if (free < 0) {
+                        free = i;
+                    }
+                } else if (this.hashes[i] == hash && candidate.structureEquals(recycleMe)) {
+                    // recycling!
+                    this.hits++;
+                    return candidate;
+                }
+                i = (i + 1) & mask;
+            }
+            
+            // no candidate matches: add recycleMe
+            this.misses++;
+            if (free >= 0) {
+                this.hashes[free] = hash;
+                this.slots[free] = wrap(recycleMe);
+                return recycleMe;
+            }
+            this.hashes[i] = hash;
+            this.slots[i] = wrap(recycleMe);
+            this.used++;
+            if (this.used * 4 > this.slots.length * 3) {
+                this.rehash();
+            }
             return recycleMe;
         }
         
-        // search the candidates list
-        for (E candidate : candidates) {
-            if (candidate.structureEquals(recycleMe)) {
-                // recycling!
-                return candidate;
+        // drops cleared references, and grows the table if necessary
+        private void rehash() {
+            int live = this.countLive();
+            int capacity = this.slots.length;
+            while (live * 2 > capacity) {
+                capacity *= 2;
+            }
+            int[] oldHashes = this.hashes;
+            Object[] oldSlots = this.slots;
+            this.hashes = new int[capacity];
+            this.slots = new Object[capacity];
+            this.used = 0;
+            int mask = capacity - 1;
+            for (int j = 0; j < oldSlots.length; j++) {
+                Object slot = oldSlots[j];
+                if (slot == null || get(slot) == null) {
+                    continue;
+                }
+                int i = oldHashes[j] & mask;
+                while (this.slots[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                this.hashes[i] = oldHashes[j];
+                this.slots[i] = slot;
+                this.used++;
             }
         }
         
-        // no candidate matches: add recycleMe to this list and return it
-        candidates.add(recycleMe);
-        return recycleMe;
+        int countLive() {
+            int live = 0;
+            for (Object slot : this.slots) {
+                if (slot != null && get(slot) != null) {
+                    live++;
+                }
+            }
+            return live;
+        }
+
+        private Object wrap(E element) {
+            switch (this.strength) {
+            case WEAK:
+                return new WeakReference<E>(element);
+            case SOFT:
+                return new SoftReference<E>(element);
+            default:
+                return element;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private E get(Object slot) {
+            if (this.strength == STRONG) {
+                return (E) slot;
+            }
+            return ((Reference<E>) slot).get();
+        }
     }
 }
 
@@ -24,6 +24,33 @@ public abstract class Lattice {
         LatticeElement incomingElement, 
         LatticeElement targetElement);
     
+    // returns true if the incoming element is known to be less or equal to
+    // the target element (i.e., if the lub would not change the target element);
+    // must not modify or allocate elements; this default implementation only
+    // handles the trivial case, lattices whose elements support a cheap check 
+    // should override it
+    public boolean lessOrEqual(
+            LatticeElement incomingElement,
+            LatticeElement targetElement) {
+        return incomingElement == this.bottom || incomingElement == targetElement;
+    }
+    
+    // like lub, but returns the target element itself (not a copy) if
+    // the incoming element doesn't change it (delta propagation);
+    // this default implementation compares the complete elements, 
+    // lattices whose elements can detect their changes during the lub 
+    // should override it
+    public LatticeElement lubDelta(
+            LatticeElement incomingElement, 
+            LatticeElement targetElement) {
+        
+        LatticeElement resultElement = this.lub(incomingElement, targetElement);
+        if (targetElement.equals(resultElement)) {
+            return targetElement;
+        }
+        return resultElement;
+    }
+    
 }
 
 
@@ -0,0 +1,623 @@
+package analysis;
+
+import java.util.*;
+
+// a persistent hash map (hash array mapped trie) for lattice elements that are
+// copied often (cloning, lub) but modified only at a few places each time:
+// - copies are O(1) and share their whole structure with the original
+// - modifications copy the nodes on the path to the modified entry, unless
+//   these nodes have been created by the modified map itself since its last
+//   copy (such nodes are not shared and can be modified in place)
+// - since the shape of the trie only depends on its contents, maps can be
+//   compared node by node, skipping shared subtrees by reference
+// iterators work on a snapshot: the map may be modified during iteration;
+// null keys are not allowed
+public final class PersistentMap<K,V>
+extends AbstractMap<K,V> {
+
+    private static final Object NOT_FOUND = new Object();
+
+    // null if the map is empty
+    private BitmapNode root;
+    private int size;
+
+    // hash code as defined by Map.hashCode (sum of the entry hash codes),
+    // maintained incrementally
+    private int hash;
+
+    // nodes carrying this token are owned by this map
+    private Object edit;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    public PersistentMap() {
+        this.root = null;
+        this.size = 0;
+        this.edit = new Object();
+    }
+
+    // copies the given map in constant time
+    public PersistentMap(PersistentMap<K,V> other) {
+        this.root = other.root;
+        this.size = other.size;
+        this.hash = other.hash;
+        this.edit = new Object();
+        // the nodes are now shared
+        other.edit = new Object();
+    }
+
+// *********************************************************************************
+// GET *****************************************************************************
+// *********************************************************************************
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (this.root == null) {
+            return null;
+        }
+        Object value = this.root.find(0, key.hashCode(), key);
+        return (value == NOT_FOUND ? null : (V) value);
+    }
+
+    public boolean containsKey(Object key) {
+        if (this.root == null) {
+            return false;
+        }
+        return this.root.find(0, key.hashCode(), key) != NOT_FOUND;
+    }
+
+    // do both maps share their complete structure?
+    public boolean sameAs(PersistentMap<K,V> other) {
+        return this.root == other.root;
+    }
+
+    // adds the keys whose mappings might differ between this map and the given
+    // one to the given collection (i.e., all keys of subtrees that are not
+    // shared); keys with the same mapping might be included as well
+    public void addDifferences(PersistentMap<K,V> other, final Collection<K> keys) {
+        this.visitDifferences(other, new KeyVisitor<K>() {
+            public boolean visit(K key) {
+                keys.add(key);
+                return true;
+            }
+        });
+    }
+
+    // like addDifferences, but passes the keys to the given visitor instead
+    // of collecting them; returns false if the visitor stopped the traversal
+    public boolean visitDifferences(PersistentMap<K,V> other, KeyVisitor<K> visitor) {
+        return diff(this.root, other.root, visitor);
+    }
+
+    public interface KeyVisitor<K> {
+        // returns false to stop the traversal
+        boolean visit(K key);
+    }
+
+// *********************************************************************************
+// SET *****************************************************************************
+// *********************************************************************************
+
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        int hash = key.hashCode();
+        Object oldValue = NOT_FOUND;
+        if (this.root == null) {
+            this.root = new BitmapNode(this.edit, 0, new Object[0]);
+        } else {
+            oldValue = this.root.find(0, hash, key);
+            if (oldValue == value) {
+                return value;
+            }
+        }
+        this.root = (BitmapNode) this.root.assoc(this.edit, 0, hash, key, value);
+        this.hash += hash ^ valueHash(value);
+        if (oldValue == NOT_FOUND) {
+            this.size++;
+            return null;
+        }
+        this.hash -= hash ^ valueHash(oldValue);
+        return (V) oldValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (this.root == null) {
+            return null;
+        }
+        int hash = key.hashCode();
+        Object oldValue = this.root.find(0, hash, key);
+        if (oldValue == NOT_FOUND) {
+            return null;
+        }
+        this.root = (BitmapNode) this.root.without(this.edit, 0, hash, key);
+        this.size--;
+        this.hash -= hash ^ valueHash(oldValue);
+        return (V) oldValue;
+    }
+
+    public void clear() {
+        this.root = null;
+        this.size = 0;
+        this.hash = 0;
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        return new AbstractSet<Map.Entry<K,V>>() {
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return new EntryIterator();
+            }
+            public int size() {
+                return PersistentMap.this.size;
+            }
+        };
+    }
+
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof PersistentMap)) {
+            return super.equals(obj);
+        }
+        PersistentMap<?,?> comp = (PersistentMap<?,?>) obj;
+        if (this.size != comp.size || this.hash != comp.hash) {
+            return false;
+        }
+        return nodeEquals(this.root, comp.root);
+    }
+
+    public int hashCode() {
+        return this.hash;
+    }
+
+//  ********************************************************************************
+
+    private static boolean nodeEquals(Node n1, Node n2) {
+        if (n1 == n2) {
+            return true;
+        }
+        if (n1 == null || n2 == null || n1.getClass() != n2.getClass()) {
+            return false;
+        }
+        if (n1 instanceof CollisionNode) {
+            CollisionNode c1 = (CollisionNode) n1;
+            CollisionNode c2 = (CollisionNode) n2;
+            if (c1.hash != c2.hash || c1.array.length != c2.array.length) {
+                return false;
+            }
+            for (int i = 0; i < c1.array.length; i += 2) {
+                int j = c2.indexOf(c1.array[i]);
+                if (j < 0 || !valueEquals(c1.array[i+1], c2.array[j+1])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        BitmapNode b1 = (BitmapNode) n1;
+        BitmapNode b2 = (BitmapNode) n2;
+        if (b1.bitmap != b2.bitmap) {
+            return false;
+        }
+        for (int i = 0; i < b1.array.length; i += 2) {
+            Object k1 = b1.array[i];
+            Object k2 = b2.array[i];
+            if (k1 == null || k2 == null) {
+                // sub-nodes (in a canonical trie, a sub-node never
+                // corresponds to a single entry)
+                if (k1 != k2 || !nodeEquals((Node) b1.array[i+1], (Node) b2.array[i+1])) {
+                    return false;
+                }
+            } else if (!k1.equals(k2) || !valueEquals(b1.array[i+1], b2.array[i+1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean valueEquals(Object v1, Object v2) {
+        return (v1 == null ? v2 == null : v1.equals(v2));
+    }
+
+    private static int valueHash(Object value) {
+        return (value == null ? 0 : value.hashCode());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> boolean diff(Node n1, Node n2, KeyVisitor<K> visitor) {
+        if (n1 == n2) {
+            return true;
+        }
+        if (n1 instanceof BitmapNode && n2 instanceof BitmapNode) {
+            BitmapNode b1 = (BitmapNode) n1;
+            BitmapNode b2 = (BitmapNode) n2;
+            int bits = b1.bitmap | b2.bitmap;
+            while (bits != 0) {
+                int bit = bits & -bits;
+                bits &= ~bit;
+                boolean go;
+                if ((b1.bitmap & bit) == 0) {
+                    go = visitSlot(b2, b2.index(bit), visitor);
+                } else if ((b2.bitmap & bit) == 0) {
+                    go = visitSlot(b1, b1.index(bit), visitor);
+                } else {
+                    int i1 = 2 * b1.index(bit);
+                    int i2 = 2 * b2.index(bit);
+                    Object k1 = b1.array[i1];
+                    Object k2 = b2.array[i2];
+                    if (k1 == null && k2 == null) {
+                        go = diff((Node) b1.array[i1+1], (Node) b2.array[i2+1], visitor);
+                    } else if (k1 != null && k2 != null && k1.equals(k2)) {
+                        go = (b1.array[i1+1] == b2.array[i2+1] || visitor.visit((K) k1));
+                    } else {
+                        go = visitSlot(b1, i1 / 2, visitor) && visitSlot(b2, i2 / 2, visitor);
+                    }
+                }
+                if (!go) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return (n1 == null || n1.visitKeys(visitor)) && (n2 == null || n2.visitKeys(visitor));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> boolean visitSlot(BitmapNode node, int index, KeyVisitor<K> visitor) {
+        Object key = node.array[2*index];
+        if (key == null) {
+            return ((Node) node.array[2*index+1]).visitKeys(visitor);
+        }
+        return visitor.visit((K) key);
+    }
+
+// *********************************************************************************
+// NODES ***************************************************************************
+// *********************************************************************************
+
+    private static abstract class Node {
+
+        // the map that owns this node
+        Object edit;
+
+        // key/value pairs; in bitmap nodes, a null key means that the
+        // value is a sub-node
+        Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+        // returns NOT_FOUND if there is no mapping for the given key
+        abstract Object find(int shift, int hash, Object key);
+
+        // returns the resulting node (this node if it was modified in place);
+        // the key must not be contained yet, or its value must differ
+        abstract Node assoc(Object edit, int shift, int hash, Object key, Object value);
+
+        // returns the resulting node, or null if it is empty;
+        // the key must be contained
+        abstract Node without(Object edit, int shift, int hash, Object key);
+
+        // returns the key of the only entry of this node, or null if this
+        // node contains sub-nodes or more than one entry
+        abstract Object singleKey();
+
+        @SuppressWarnings("unchecked")
+        <K> boolean visitKeys(KeyVisitor<K> visitor) {
+            for (int i = 0; i < this.array.length; i += 2) {
+                boolean go;
+                if (this.array[i] == null) {
+                    go = ((Node) this.array[i+1]).visitKeys(visitor);
+                } else {
+                    go = visitor.visit((K) this.array[i]);
+                }
+                if (!go) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // returns a node with the given slot set to the given value (and
+        // optionally a second slot), modifying this node if it is owned by
+        // the given map
+        Node set(Object edit, int i, Object value) {
+            Node node = this.editable(edit);
+            node.array[i] = value;
+            return node;
+        }
+
+        Node set(Object edit, int i, Object value, int j, Object value2) {
+            Node node = this.editable(edit);
+            node.array[i] = value;
+            node.array[j] = value2;
+            return node;
+        }
+
+        abstract Node editable(Object edit);
+    }
+
+//  ********************************************************************************
+
+    private static final class BitmapNode
+    extends Node {
+
+        int bitmap;
+
+        BitmapNode(Object edit, int bitmap, Object[] array) {
+            super(edit, array);
+            this.bitmap = bitmap;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(this.bitmap & (bit - 1));
+        }
+
+        Object find(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((this.bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int i = 2 * this.index(bit);
+            Object k = this.array[i];
+            if (k == null) {
+                return ((Node) this.array[i+1]).find(shift + 5, hash, key);
+            }
+            return (key.equals(k) ? this.array[i+1] : NOT_FOUND);
+        }
+
+        Node assoc(Object edit, int shift, int hash, Object key, Object value) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            int i = 2 * this.index(bit);
+            if ((this.bitmap & bit) == 0) {
+                Object[] newArray = new Object[this.array.length + 2];
+                System.arraycopy(this.array, 0, newArray, 0, i);
+                newArray[i] = key;
+                newArray[i+1] = value;
+                System.arraycopy(this.array, i, newArray, i + 2, this.array.length - i);
+                if (this.edit == edit) {
+                    this.array = newArray;
+                    this.bitmap |= bit;
+                    return this;
+                }
+                return new BitmapNode(edit, this.bitmap | bit, newArray);
+            }
+            Object k = this.array[i];
+            Object v = this.array[i+1];
+            if (k == null) {
+                Node sub = (Node) v;
+                Node newSub = sub.assoc(edit, shift + 5, hash, key, value);
+                return (newSub == sub ? this : this.set(edit, i + 1, newSub));
+            }
+            if (key.equals(k)) {
+                return this.set(edit, i + 1, value);
+            }
+            // split the slot
+            return this.set(edit, i, null, i + 1,
+                    createNode(edit, shift + 5, k, v, hash, key, value));
+        }
+
+        Node without(Object edit, int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            int i = 2 * this.index(bit);
+            Object k = this.array[i];
+            if (k == null) {
+                Node sub = (Node) this.array[i+1];
+                Node newSub = sub.without(edit, shift + 5, hash, key);
+                Object single = newSub.singleKey();
+                if (single != null) {
+                    // keep the trie canonical: pull up single entries
+                    return this.set(edit, i, single, i + 1, newSub.array[1]);
+                }
+                return (newSub == sub ? this : this.set(edit, i + 1, newSub));
+            }
+            // this is the removed entry
+            if (this.bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[this.array.length - 2];
+            System.arraycopy(this.array, 0, newArray, 0, i);
+            System.arraycopy(this.array, i + 2, newArray, i, newArray.length - i);
+            if (this.edit == edit) {
+                this.array = newArray;
+                this.bitmap ^= bit;
+                return this;
+            }
+            return new BitmapNode(edit, this.bitmap ^ bit, newArray);
+        }
+
+        Object singleKey() {
+            return (this.array.length == 2 ? this.array[0] : null);
+        }
+
+        Node editable(Object edit) {
+            if (this.edit == edit) {
+                return this;
+            }
+            return new BitmapNode(edit, this.bitmap, this.array.clone());
+        }
+    }
+
+//  ********************************************************************************
+
+    // for keys with identical hash codes
+    private static final class CollisionNode
+    extends Node {
+
+        int hash;
+
+        CollisionNode(Object edit, int hash, Object[] array) {
+            super(edit, array);
+            this.hash = hash;
+        }
+
+        int indexOf(Object key) {
+            for (int i = 0; i < this.array.length; i += 2) {
+                if (key.equals(this.array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Object find(int shift, int hash, Object key) {
+            int i = this.indexOf(key);
+            return (i < 0 ? NOT_FOUND : this.array[i+1]);
+        }
+
+        Node assoc(Object edit, int shift, int hash, Object key, Object value) {
+            if (hash != this.hash) {
+                // nest this node into a bitmap node
+                BitmapNode nest = new BitmapNode(edit, 1 << ((this.hash >>> shift) & 31),
+                        new Object[] {null, this});
+                return nest.assoc(edit, shift, hash, key, value);
+            }
+            int i = this.indexOf(key);
+            if (i >= 0) {
+                return this.set(edit, i + 1, value);
+            }
+            Object[] newArray = new Object[this.array.length + 2];
+            System.arraycopy(this.array, 0, newArray, 0, this.array.length);
+            newArray[this.array.length] = key;
+            newArray[this.array.length + 1] = value;
+            if (this.edit == edit) {
+                this.array = newArray;
+                return this;
+            }
+            return new CollisionNode(edit, this.hash, newArray);
+        }
+
+        Node without(Object edit, int shift, int hash, Object key) {
+            int i = this.indexOf(key);
+            Object[] newArray = new Object[this.array.length - 2];
+            System.arraycopy(this.array, 0, newArray, 0, i);
+            System.arraycopy(this.array, i + 2, newArray, i, newArray.length - i);
+            if (this.edit == edit) {
+                this.array = newArray;
+                return this;
+            }
+            return new CollisionNode(edit, this.hash, newArray);
+        }
+
+        Object singleKey() {
+            return (this.array.length == 2 ? this.array[0] : null);
+        }
+
+        Node editable(Object edit) {
+            if (this.edit == edit) {
+                return this;
+            }
+            return new CollisionNode(edit, this.hash, this.array.clone());
+        }
+    }
+
+//  ********************************************************************************
+
+    // creates a node for two entries with different keys
+    private static Node createNode(Object edit, int shift, Object key1, Object value1,
+            int hash2, Object key2, Object value2) {
+        int hash1 = key1.hashCode();
+        if (hash1 == hash2) {
+            return new CollisionNode(edit, hash1, new Object[] {key1, value1, key2, value2});
+        }
+        BitmapNode node = new BitmapNode(edit, 0, new Object[0]);
+        return node.assoc(edit, shift, hash1, key1, value1).assoc(edit, shift, hash2, key2, value2);
+    }
+
+// *********************************************************************************
+// ITERATOR ************************************************************************
+// *********************************************************************************
+
+    private final class EntryIterator
+    implements Iterator<Map.Entry<K,V>> {
+
+        // nodes and positions on the path to the next entry
+        private Node[] nodes = new Node[8];
+        private int[] positions = new int[8];
+        private int depth;
+
+        private Map.Entry<K,V> next;
+        private K lastKey;
+
+        EntryIterator() {
+            // work on a snapshot: from now on, the map must not modify
+            // the current nodes in place
+            PersistentMap.this.edit = new Object();
+            if (PersistentMap.this.root != null) {
+                this.nodes[0] = PersistentMap.this.root;
+                this.positions[0] = 0;
+                this.depth = 1;
+            }
+            this.advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            this.next = null;
+            while (this.depth > 0) {
+                Node node = this.nodes[this.depth - 1];
+                int pos = this.positions[this.depth - 1];
+                if (pos >= node.array.length) {
+                    this.depth--;
+                    continue;
+                }
+                this.positions[this.depth - 1] = pos + 2;
+                Object key = node.array[pos];
+                if (key == null) {
+                    if (this.depth == this.nodes.length) {
+                        this.nodes = Arrays.copyOf(this.nodes, this.depth * 2);
+                        this.positions = Arrays.copyOf(this.positions, this.depth * 2);
+                    }
+                    this.nodes[this.depth] = (Node) node.array[pos+1];
+                    this.positions[this.depth] = 0;
+                    this.depth++;
+                } else {
+                    this.next = new AbstractMap.SimpleImmutableEntry<K,V>(
+                            (K) key, (V) node.array[pos+1]);
+                    return;
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        public Map.Entry<K,V> next() {
+            if (this.next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K,V> retMe = this.next;
+            this.lastKey = retMe.getKey();
+            this.advance();
+            return retMe;
+        }
+
+        public void remove() {
+            if (this.lastKey == null) {
+                throw new IllegalStateException();
+            }
+            PersistentMap.this.remove(this.lastKey);
+            this.lastKey = null;
+        }
+    }
+}
@@ -408,6 +408,13 @@ extends InterAnalysis {
     public LatticeElement recycle(LatticeElement recycleMe) {
         return this.repos.recycle(recycleMe);
     }
+
+//  supportsParallelSolver *********************************************************
+    
+    // transfer functions don't read any other analysis
+    protected boolean supportsParallelSolver() {
+        return true;
+    }
     
 //  clean **************************************************************************
     
@@ -14,6 +14,11 @@ implements Recyclable {
     private MustAliases mustAliases;
     private MayAliases mayAliases;
 
+    // cached structure hash code (0: not computed yet); the alias groups
+    // and pairs are modified in place, so every modifying method has to
+    // reset it
+    private int structureHashCode;
+
 //  ********************************************************************************
 //  CONSTRUCTORS *******************************************************************
 //  ********************************************************************************
@@ -33,6 +38,7 @@ implements Recyclable {
     public AliasLatticeElement(AliasLatticeElement cloneMe) {
         this.mustAliases = new MustAliases(cloneMe.getMustAliases());
         this.mayAliases = new MayAliases(cloneMe.getMayAliases());
+        this.structureHashCode = cloneMe.structureHashCode;
     }
     
     public LatticeElement cloneMe() {
@@ -112,6 +118,7 @@ implements Recyclable {
 
     // removes alias-pairs that "conflict" with must-alias information
     public void removeConflictingPairs() {
+        this.structureHashCode = 0;
         
         // we will create a new MayAlias object as replacement for our current one
         MayAliases newMayAliases = new MayAliases();
@@ -132,6 +139,7 @@ implements Recyclable {
     // merges the must-alias-groups that the given variables belong to (also 
     // considering implicit one-element groups)
     public void merge(Variable x, Variable y) {
+        this.structureHashCode = 0;
         this.mustAliases.merge(x, y );
     }
     
@@ -140,6 +148,7 @@ implements Recyclable {
     // the caller has to make sure that the information from source
     // is disjoint from *this* information
     public void add(AliasLatticeElement source) {
+        this.structureHashCode = 0;
         this.mustAliases.add(source.getMustAliases());
         this.mayAliases.add(source.getMayAliases());
     }
@@ -153,23 +162,27 @@ implements Recyclable {
     }
     
     public void add(MayAliasPair pair) {
+        this.structureHashCode = 0;
         this.mayAliases.add(pair);
     }
     
     // removes all local variables
     public void removeLocals() {
+        this.structureHashCode = 0;
         this.mustAliases.removeLocals();
         this.mayAliases.removeLocals();
     }
     
     // removes all global variables
     public void removeGlobals() {
+        this.structureHashCode = 0;
         this.mustAliases.removeGlobals();
         this.mayAliases.removeGlobals();
     }
     
     // removes all variables that belong to the given symbol table
     public void removeVariables(SymbolTable symTab) {
+        this.structureHashCode = 0;
         this.mustAliases.removeVariables(symTab);
         this.mayAliases.removeVariables(symTab);
     }
@@ -184,6 +197,7 @@ implements Recyclable {
     
     // lubs the given element over *this* element
     public void lub (AliasLatticeElement element) {
+        this.structureHashCode = 0;
         
         // easy: union of may-aliases
         this.mayAliases.add(element.getMayAliases());
@@ -241,6 +255,7 @@ implements Recyclable {
     
     // responsible for redirection "left =& right"
     public void redirect(Variable left, Variable right) {
+        this.structureHashCode = 0;
         this.mayAliases.removePairsWith(left);
         this.mustAliases.remove(left);
         this.mustAliases.addToGroup(left, right);
@@ -249,21 +264,25 @@ implements Recyclable {
     
     // responsible for "unset(var)"
     public void unset(Variable var) {
+        this.structureHashCode = 0;
         this.mayAliases.removePairsWith(var);
         this.mustAliases.remove(var);
     }
     
     // wrapper around MustAliases.addToGroup
     public void addToGroup(Variable addMe, Variable host) {
+        this.structureHashCode = 0;
         this.mustAliases.addToGroup(addMe, host);
     }
     
     public void createAdjustedPairCopies(Variable findMe, Variable replacer) {
+        this.structureHashCode = 0;
         this.mayAliases.createAdjustedPairCopies(findMe, replacer);
     }
     
     // expects a map from Variable -> Variable (replaceMe -> replaceBy)
     public void replace(Map replacements) {
+        this.structureHashCode = 0;
         this.mustAliases.replace(replacements);
         this.mayAliases.replace(replacements);
     }
@@ -280,9 +299,13 @@ implements Recyclable {
     }
 
     public int structureHashCode() {
+        if (this.structureHashCode != 0) {
+            return this.structureHashCode;
+        }
         int hashCode = 17;
         hashCode = 37*hashCode + this.mustAliases.structureHashCode();
         hashCode = 37*hashCode + this.mayAliases.structureHashCode();
+        this.structureHashCode = hashCode;
         return hashCode;
     }
     
@@ -9,8 +9,9 @@ import conversion.nodes.CfgNode;
 public class Dep 
 implements Recyclable {
 
+    // weak: deps outlive single analyses (e.g., during batch scans)
     public static GenericRepos<Dep> repos = 
-        new GenericRepos<Dep>();
+        new GenericRepos<Dep>(GenericRepos.WEAK);
     
     // special, parameterized label
     public static final Dep UNINIT = 
@@ -36,6 +37,15 @@ implements Recyclable {
         return ret;
     }
 
+//  ********************************************************************************
+
+    // creates a label that doesn't belong to any node and isn't recycled;
+    // DepTabulation uses such labels as placeholders for the (unknown) deps
+    // that places have when entering a function
+    static Dep createPlaceholder() {
+        return new Dep(null);
+    }
+
 //  ********************************************************************************
 //  OTHER **************************************************************************
 //  ********************************************************************************
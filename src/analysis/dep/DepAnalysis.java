@@ -1,5 +1,6 @@
 package analysis.dep;
 
+import java.io.IOException;
 import java.util.*;
 
 import analysis.*;
@@ -9,13 +10,17 @@ import analysis.inter.AnalysisType;
 import analysis.inter.CallGraph;
 import analysis.inter.ConnectorComputation;
 import analysis.inter.Context;
+import analysis.inter.InterCodec;
 import analysis.inter.InterAnalysis;
+import analysis.inter.InterAnalysisNode;
 import analysis.inter.InterWorkList;
 import analysis.inter.callstring.CSAnalysis;
+import analysis.inter.ifds.IfdsAnalysis;
 import analysis.literal.LiteralAnalysis;
 import analysis.mod.ModAnalysis;
 import conversion.*;
 import conversion.nodes.*;
+import pixy.MyOptions;
 
 // dependency analysis
 public class DepAnalysis 
@@ -35,6 +40,13 @@ extends InterAnalysis {
     // has detectVulns() already been called?
     private boolean finishedDetection;
     
+    // function -> places that make up the summary key for calls to this
+    // function (only if summaries are enabled, see initSummaries)
+    private Map<TacFunction,List<TacPlace>> summaryPlaces;
+    
+    // engine for demand-driven queries (see getQuery)
+    private DepQuery query;
+    
     
     
 //  ********************************************************************************
@@ -55,7 +67,10 @@ extends InterAnalysis {
         this.constantsTable = tac.getConstantsTable();
         this.superSymbolTable = tac.getSuperSymbolTable();
         this.memberPlace = tac.getMemberPlace();
-        this.repos = new GenericRepos<LatticeElement>();
+        // spilled values can only be collected if they aren't kept alive
+        // by the repository
+        this.repos = new GenericRepos<LatticeElement>(MyOptions.spillThreshold > 0 ?
+                GenericRepos.WEAK : GenericRepos.STRONG);
         
         this.aliasAnalysis = aliasAnalysis;
         this.literalAnalysis = literalAnalysis;
@@ -66,6 +81,43 @@ extends InterAnalysis {
         this.initGeneral(tac.getAllFunctions(), tac.getMainFunction(), 
                 analysisType, workList);
         
+        if (MyOptions.depSummaries && this.modAnalysis != null 
+                && analysisType instanceof CSAnalysis) {
+            this.initSummaries();
+        }
+        
+        if (MyOptions.depBypassIdChains) {
+            this.bypassIdChains();
+        }
+    }
+    
+//  initSummaries ******************************************************************
+    
+    // determines the places that can influence the effect of a call to a
+    // function: the function's own variables (including formals and shadows),
+    // the globals it imports, the global-likes it reads or modifies
+    // (transitively), and all constants (since the call return node 
+    // takes them from the callee); functions whose REF set is unknown
+    // don't get summaries
+    private void initSummaries() {
+        this.summaryPlaces = new HashMap<TacFunction,List<TacPlace>>();
+        List<TacPlace> constants = new LinkedList<TacPlace>(
+                this.constantsTable.getConstants().values());
+        for (TacFunction function : this.functions) {
+            Set<TacPlace> ref = this.modAnalysis.getRef(function);
+            if (ref == null || function.isMain()) {
+                continue;
+            }
+            Set<TacPlace> places = new LinkedHashSet<TacPlace>();
+            SymbolTable symTab = function.getSymbolTable();
+            places.addAll(symTab.getVariables().keySet());
+            places.addAll(symTab.getGlobals2GShadows().keySet());
+            places.addAll(ref);
+            places.addAll(this.modAnalysis.getMod(function));
+            places.addAll(constants);
+            this.summaryPlaces.put(function, new ArrayList<TacPlace>(places));
+        }
+        this.enableSummaries();
     }
     
 //  initLattice ********************************************************************
@@ -86,34 +138,42 @@ extends InterAnalysis {
         
     }
     
+//  makeBasicBlockTf ***************************************************************
+    
+    // the contained transfer functions are compiled into a single effect
+    // (see DepTfBasicBlock)
+    protected TransferFunction makeBasicBlockTf(CfgNodeBasicBlock basicBlock, TacFunction traversedFunction) {
+        DepTfBasicBlock tf = new DepTfBasicBlock(basicBlock);
+        for (Iterator iter = basicBlock.getContainedNodes().iterator(); iter.hasNext();) {
+            CfgNode cfgNodeX = (CfgNode) iter.next();
+            tf.add(this.createTf(cfgNodeX, traversedFunction, basicBlock));
+        }
+        return tf;
+    }
+
 //  applyInsideBasicBlock **********************************************************
     
     // takes the given invalue and applies transfer functions from the start of the
     // basic block until the beginning of "untilHere" (i.e., the transfer function
-    // of this node is NOT applied);
-    // only required by DepGraph
+    // of this node is NOT applied)
     public DepLatticeElement applyInsideBasicBlock(
             CfgNodeBasicBlock basicBlock, CfgNode untilHere, DepLatticeElement invalue) {
         
         DepLatticeElement outValue = new DepLatticeElement((DepLatticeElement) invalue);
-        List containedNodes = basicBlock.getContainedNodes();
-        CompositeTransferFunction ctf = (CompositeTransferFunction) this.getTransferFunction(basicBlock);
-        
-        Iterator nodesIter = containedNodes.iterator();
-        Iterator tfIter = ctf.iterator();
-        
-        while (nodesIter.hasNext() && tfIter.hasNext()) {
-            CfgNode node = (CfgNode) nodesIter.next();
-            TransferFunction tf = (TransferFunction) tfIter.next();
-            if (node == untilHere) {
-                break;
-            }
-            outValue = (DepLatticeElement) tf.transfer(outValue);
-        }
-            
+        this.getBasicBlockEffect(basicBlock, untilHere).applyTo(outValue);
         return outValue;
     }
 
+//  getBasicBlockEffect ************************************************************
+    
+    // returns the (cached) effect of the transfer functions from the start of
+    // the basic block until the beginning of "untilHere";
+    // only required by DepGraph
+    public DepBlockEffect getBasicBlockEffect(CfgNodeBasicBlock basicBlock, CfgNode untilHere) {
+        DepTfBasicBlock tf = (DepTfBasicBlock) this.getTransferFunction(basicBlock);
+        return tf.getEffect(untilHere);
+    }
+
 //  applyInsideDefaultCfg **********************************************************
     
     // takes the given invalue and applies transfer functions from the start of the
@@ -413,8 +473,8 @@ extends InterAnalysis {
         // create dependency graphs for all sensitive places in this sink
         for (SinkProblem problem : problems) {
             
-            DepGraph depGraph = DepGraph.create(problem.getPlace(),
-                    sink.getNode(), this.interAnalysisInfo, mainSymTab, this);
+            DepGraph depGraph = this.createDepGraph(problem.getPlace(),
+                    sink.getNode(), mainSymTab);
             
             // a null depGraph is returned if this sink is unreachable
             if (depGraph == null) {
@@ -427,6 +487,41 @@ extends InterAnalysis {
         return retMe;
     }
 
+//  createDepGraph *****************************************************************
+    
+    // creates the dependency graph for the given place at the given node, either
+    // from the analysis information or (if the analysis is not performed in 
+    // advance) with demand-driven queries
+    public DepGraph createDepGraph(TacPlace place, CfgNode start, SymbolTable mainSymTab) {
+        if (this.isOnDemand()) {
+            return DepGraph.create(place, start, this.getQuery(), mainSymTab, this);
+        }
+        return DepGraph.create(place, start, this.interAnalysisInfo, mainSymTab, this);
+    }
+
+//  getQuery ***********************************************************************
+    
+    // the engine for demand-driven queries (memoizes its results, so it is
+    // created only once)
+    public DepQuery getQuery() {
+        if (this.query == null) {
+            if (this.analysisType instanceof IfdsAnalysis) {
+                this.query = new DepTabulation(this, (IfdsAnalysis) this.analysisType);
+            } else {
+                this.query = new DepQuery(this);
+            }
+        }
+        return this.query;
+    }
+
+//  isOnDemand *********************************************************************
+    
+    // are deps computed on demand instead of performing the analysis in advance?
+    // (always the case for the tabulation solver)
+    public boolean isOnDemand() {
+        return MyOptions.depDemand || this.analysisType instanceof IfdsAnalysis;
+    }
+
 //  *********************************************************************************
     
     public TacConverter getTac() {
@@ -482,8 +577,8 @@ extends InterAnalysis {
             // create dependency graphs for all sensitive places in this sink
             for (SinkProblem problem : problems) {
                 
-                DepGraph depGraph = DepGraph.create(problem.getPlace(),
-                        sink.getNode(), this.interAnalysisInfo, mainSymTab, this);
+                DepGraph depGraph = this.createDepGraph(problem.getPlace(),
+                        sink.getNode(), mainSymTab);
                 
                 // a null depGraph is returned if this sink is unreachable
                 if (depGraph == null) {
@@ -797,6 +892,131 @@ extends InterAnalysis {
         return this.repos.recycle(recycleMe);
     }
 
+//  needsPhi ***********************************************************************
+    
+    // the dep graphs read the per-context values of all nodes that may 
+    // define or use a place; the values of pure control nodes are only
+    // checked for reachability (see isReachable)
+    protected boolean needsPhi(CfgNode node) {
+        return !(node instanceof CfgNodeIf || node instanceof CfgNodeEmpty ||
+                node instanceof CfgNodeEmptyTest || node instanceof CfgNodeCall ||
+                node instanceof CfgNodeIncludeStart || node instanceof CfgNodeIncludeEnd ||
+                node instanceof CfgNodeGoto);
+    }
+
+//  analyze ************************************************************************
+
+    public void analyze() {
+        if (this.isOnDemand()) {
+            // deps are computed on demand (see createDepGraph)
+            return;
+        }
+        super.analyze();
+        if (!MyOptions.optionB && MyOptions.optionV) {
+            System.out.println("Element repository: " + this.repos.getStatistics());
+            System.out.println("DepSet repository:  " + DepSet.repos.getStatistics());
+        }
+    }
+
+//  getSize ************************************************************************
+    
+    // number of non-default deps and array labels
+    protected int getSize(LatticeElement element) {
+        if (!(element instanceof DepLatticeElement)) {
+            return 0;
+        }
+        DepLatticeElement depElement = (DepLatticeElement) element;
+        return depElement.getPlaceToDep().size() + depElement.getArrayLabels().size();
+    }
+
+//  checkpoints ********************************************************************
+    
+    protected List<? extends TacPlace> getCodecPlaces() {
+        return this.places;
+    }
+    
+    // the non-default deps and array labels; dep sets are recycled, so they
+    // are written only once (see InterCodec.Output.writeRef)
+    protected void writeValue(LatticeElement value, InterCodec.Output out) 
+    throws IOException {
+        DepLatticeElement element = (DepLatticeElement) value;
+        out.writeInt(element.getPlaceToDep().size());
+        for (Map.Entry<TacPlace,DepSet> entry : element.getPlaceToDep().entrySet()) {
+            out.writePlace(entry.getKey());
+            this.writeDepSet(entry.getValue(), out);
+        }
+        out.writeInt(element.getArrayLabels().size());
+        for (Map.Entry<Variable,DepSet> entry : element.getArrayLabels().entrySet()) {
+            out.writePlace(entry.getKey());
+            this.writeDepSet(entry.getValue(), out);
+        }
+    }
+    
+    private void writeDepSet(DepSet depSet, InterCodec.Output out) 
+    throws IOException {
+        if (!out.writeRef(depSet)) {
+            return;
+        }
+        out.writeInt(depSet.getDepSet().size());
+        for (Dep dep : depSet.getDepSet()) {
+            if (dep.getCfgNode() == null && dep != Dep.UNINIT) {
+                throw new IOException("unsupported dep " + dep);
+            }
+            out.writeNode(dep.getCfgNode());
+        }
+    }
+    
+    protected LatticeElement readValue(InterCodec.Input in) 
+    throws IOException {
+        DepLatticeElement element = new DepLatticeElement();
+        int depCount = in.readInt();
+        for (int i = 0; i < depCount; i++) {
+            TacPlace place = in.readPlace();
+            element.setDep(place, this.readDepSet(in));
+        }
+        int labelCount = in.readInt();
+        for (int i = 0; i < labelCount; i++) {
+            Variable var = (Variable) in.readPlace();
+            element.setArrayLabel(var, this.readDepSet(in));
+        }
+        return this.recycle(element);
+    }
+    
+    private DepSet readDepSet(InterCodec.Input in) 
+    throws IOException {
+        DepSet depSet = (DepSet) in.readRef();
+        if (depSet != null) {
+            return depSet;
+        }
+        Set<Dep> deps = new HashSet<Dep>();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            CfgNode node = in.readNode();
+            deps.add(node == null ? Dep.UNINIT : Dep.create(node));
+        }
+        depSet = DepSet.create(deps);
+        in.define(depSet);
+        return depSet;
+    }
+
+//  getSummaryKey ******************************************************************
+    
+    protected Object getSummaryKey(TacFunction callee, LatticeElement inValue) {
+        List<TacPlace> places = this.summaryPlaces.get(callee);
+        if (places == null) {
+            return null;
+        }
+        return new DepSummaryKey(callee, (DepLatticeElement) inValue, places);
+    }
+
+//  supportsParallelSolver *********************************************************
+    
+    // besides the own function, transfer functions read the folded alias
+    // and literal information
+    protected boolean supportsParallelSolver() {
+        return true;
+    }
+
 //  getMainFunction ****************************************************************
     
     public TacFunction getMainFunction() {
@@ -823,6 +1043,11 @@ extends InterAnalysis {
     // been associated with analysis information)
     public void checkReachability() {
         
+        if (this.isOnDemand()) {
+            // there is no analysis information for checking reachability
+            return;
+        }
+        
         if (!(this.analysisType instanceof CSAnalysis)) {
             // in this case, we do not have a callgraph, and can't check for
             // unreachable code
@@ -899,7 +1124,12 @@ extends InterAnalysis {
     }
     
     private boolean isReachable(CfgNode cfgNode, int numContexts) {
-        Map<Context, LatticeElement> phi = this.interAnalysisInfo.getAnalysisNode(cfgNode).getPhi();
+        InterAnalysisNode analysisNode = this.interAnalysisInfo.getAnalysisNode(cfgNode);
+        Map<Context, LatticeElement> phi = analysisNode.getPhi();
+        if (phi == null) {
+            // folded early (see needsPhi)
+            return (analysisNode.getRecycledFoldedValue() != null);
+        }
         if (phi.size() == 0) {
             // there is not a single context for this node
             return false;
@@ -0,0 +1,192 @@
+package analysis.dep;
+
+import java.util.*;
+
+import conversion.Literal;
+import conversion.TacPlace;
+import conversion.Variable;
+
+// the compiled effect of a sequence of transfer functions (usually those of
+// a basic block or of a prefix of it) on dep lattice elements;
+// all nodes that can appear inside a basic block assign deps that don't depend
+// on the incoming value, so the effect on each place is either a strong
+// update ("kill + gen") or a weak update ("gen") with a fixed dep set;
+// an effect is recorded by applying the transfer functions to it
+// (see DepTfInPlace and DepUpdateSink), and can then be applied to lattice
+// elements in a single pass over the touched places
+public class DepBlockEffect
+implements DepUpdateSink {
+
+    // strong updates: place -> dep set
+    private Map<TacPlace,DepSet> setDeps;
+
+    // weak updates (only for places without strong update): place -> dep set
+    private Map<TacPlace,DepSet> lubDeps;
+
+    // the same for array labels
+    private Map<Variable,DepSet> setLabels;
+    private Map<Variable,DepSet> lubLabels;
+
+//  ********************************************************************************
+//  CONSTRUCTORS *******************************************************************
+//  ********************************************************************************
+
+    // the empty effect (identity)
+    public DepBlockEffect() {
+        this.setDeps = new LinkedHashMap<TacPlace,DepSet>();
+        this.lubDeps = new LinkedHashMap<TacPlace,DepSet>();
+        this.setLabels = new LinkedHashMap<Variable,DepSet>();
+        this.lubLabels = new LinkedHashMap<Variable,DepSet>();
+    }
+
+//  ********************************************************************************
+//  RECORDING **********************************************************************
+//  ********************************************************************************
+
+    public void setDep(TacPlace place, DepSet depSet) {
+        if (place instanceof Literal) {
+            throw new RuntimeException("SNH");
+        }
+        if (place instanceof Variable && place.getVariable().isMember()) {
+            return;
+        }
+        this.lubDeps.remove(place);
+        this.setDeps.put(place, depSet);
+    }
+
+    public void lubDep(TacPlace place, DepSet depSet) {
+        if (place instanceof Literal) {
+            throw new RuntimeException("SNH");
+        }
+        if (place instanceof Variable && place.getVariable().isMember()) {
+            return;
+        }
+        record(this.setDeps, this.lubDeps, place, depSet);
+    }
+
+    public void setArrayLabel(Variable var, DepSet depSet) {
+        if (var.isArrayElement()) {
+            throw new RuntimeException("SNH: " + var);
+        }
+        if (var.isMember()) {
+            return;
+        }
+        this.lubLabels.remove(var);
+        this.setLabels.put(var, depSet);
+    }
+
+    public void lubArrayLabel(Variable var, DepSet depSet) {
+        if (var.isMember()) {
+            return;
+        }
+        record(this.setLabels, this.lubLabels, var, depSet);
+    }
+
+    // a weak update after a strong update is a strong update with the lubbed
+    // dep set; two weak updates are one weak update with the lubbed dep set
+    private static <K> void record(Map<K,DepSet> sets, Map<K,DepSet> lubs,
+            K key, DepSet depSet) {
+        DepSet strong = sets.get(key);
+        if (strong != null) {
+            sets.put(key, DepSet.lub(strong, depSet));
+            return;
+        }
+        DepSet weak = lubs.get(key);
+        lubs.put(key, (weak == null ? depSet : DepSet.lub(weak, depSet)));
+    }
+
+//  ********************************************************************************
+//  APPLICATION ********************************************************************
+//  ********************************************************************************
+
+//  applyTo ************************************************************************
+
+    // applies this effect to the given element (in place)
+    public void applyTo(DepLatticeElement element) {
+        for (Map.Entry<TacPlace,DepSet> entry : this.setDeps.entrySet()) {
+            element.setDep(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<TacPlace,DepSet> entry : this.lubDeps.entrySet()) {
+            element.lubDep(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Variable,DepSet> entry : this.setLabels.entrySet()) {
+            element.setArrayLabel(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Variable,DepSet> entry : this.lubLabels.entrySet()) {
+            element.lubArrayLabel(entry.getKey(), entry.getValue());
+        }
+    }
+
+//  getDep *************************************************************************
+
+    // returns the dep of the given place after applying this effect to an
+    // element in which this place has the given dep (analogous to
+    // DepLatticeElement.getDep)
+    public DepSet getDep(TacPlace place, DepSet inDep) {
+        if (place instanceof Variable) {
+            Variable var = (Variable) place;
+            if (var.isArrayElement() && var.hasNonLiteralIndices()) {
+                // the dep is the array label of the enclosing array
+                return apply(this.setLabels, this.lubLabels, 
+                        var.getTopEnclosingArray(), inDep);
+            }
+        }
+        return apply(this.setDeps, this.lubDeps, place, inDep);
+    }
+
+    // analogous to getDep, for the array label of the given variable
+    public DepSet getArrayLabel(Variable var, DepSet inLabel) {
+        if (var.isArrayElement()) {
+            var = var.getTopEnclosingArray();
+        }
+        return apply(this.setLabels, this.lubLabels, var, inLabel);
+    }
+
+    private static <K> DepSet apply(Map<K,DepSet> sets, Map<K,DepSet> lubs,
+            K key, DepSet inDep) {
+        DepSet strong = sets.get(key);
+        if (strong != null) {
+            return strong;
+        }
+        DepSet weak = lubs.get(key);
+        if (weak != null) {
+            return DepSet.lub(inDep, weak);
+        }
+        return inDep;
+    }
+
+//  isStrong ***********************************************************************
+
+    // does this effect overwrite the dep of the given place (i.e., does getDep
+    // not depend on the incoming dep)?
+    public boolean isStrong(TacPlace place) {
+        if (place instanceof Variable) {
+            Variable var = (Variable) place;
+            if (var.isArrayElement() && var.hasNonLiteralIndices()) {
+                return this.setLabels.containsKey(var.getTopEnclosingArray());
+            }
+        }
+        return this.setDeps.containsKey(place);
+    }
+
+//  touches ************************************************************************
+
+    // does this effect change the dep of the given place at all? (for
+    // places whose dep is determined by an array label, see touchesArrayLabel)
+    public boolean touchesDep(TacPlace place) {
+        return this.setDeps.containsKey(place) || this.lubDeps.containsKey(place);
+    }
+
+    // the same for the array label of the given (top) variable
+    public boolean touchesArrayLabel(Variable var) {
+        return this.setLabels.containsKey(var) || this.lubLabels.containsKey(var);
+    }
+
+//  size ***************************************************************************
+
+    // number of touched places and array labels
+    public int size() {
+        return this.setDeps.size() + this.lubDeps.size()
+            + this.setLabels.size() + this.lubLabels.size();
+    }
+}
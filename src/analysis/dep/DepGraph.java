@@ -124,6 +124,17 @@ public class DepGraph {
     
     private DepAnalysis depAnalysis;
     
+    // if not null: deps are retrieved from this demand-driven query engine
+    // instead of the analysis information (which then also determines the
+    // contexts, see DepQuery.switchContexts)
+    private DepQuery query;
+    
+    // function -> context that was not entered due to a reused summary ->
+    // contexts under which the analysis information has to be looked up
+    // instead (see resolveSummaries)
+    private Map<TacFunction,Map<Context,Set<Context>>> summaryAliases =
+        new HashMap<TacFunction,Map<Context,Set<Context>>>();
+    
     // just a helper for SCC computation
     private int n;
     
@@ -184,6 +195,33 @@ public class DepGraph {
         
     }
     
+//  *********************************************************************************
+    
+    // analogous to the above, but the deps are computed on demand by the
+    // given query engine (so the dependency analysis doesn't have to be
+    // performed)
+    public static DepGraph create(TacPlace place, CfgNode start, DepQuery query, 
+            SymbolTable mainSymTab, DepAnalysis depAnalysis) {
+        
+        DepGraph depGraph = new DepGraph();
+        depGraph.nodes = new LinkedHashMap<DepGraphNode, DepGraphNode>();
+        depGraph.edges = new LinkedHashMap<DepGraphNode, List<DepGraphNode>>();
+        depGraph.mainSymTab = mainSymTab;
+        depGraph.depAnalysis = depAnalysis;
+        depGraph.query = query;
+        
+        try {
+            depGraph.root = (DepGraphNormalNode) depGraph.makeDepGraph(
+                    place, start, Cfg.getFunction(start), new LinkedList<TacPlace>(),
+                    query.getStartContexts());
+        } catch (NotReachableException ex) {
+            // as above
+            debug("not reachable!!!");
+        }
+        
+        return depGraph;
+    }
+    
 //  *********************************************************************************
     
     // clones the given DepGraph
@@ -212,6 +250,7 @@ public class DepGraph {
         }
         
         this.analysisInfo = orig.analysisInfo;
+        this.query = orig.query;
         this.mainSymTab = orig.mainSymTab;
         this.depAnalysis = orig.depAnalysis;
     }
@@ -335,7 +374,16 @@ public class DepGraph {
     private DepSet getDepSet(CfgNode cfgNode, TacPlace place, Set<Context> contexts)
     throws NotReachableException {
         
+        if (this.query != null) {
+            DepSet depSet = this.query.getDep(cfgNode, place, contexts);
+            if (depSet == null) {
+                throw new NotReachableException();
+            }
+            return depSet;
+        }
+        
         DepSet depSet = null;
+        contexts = this.resolveSummaries(Cfg.getFunction(cfgNode), contexts);
         CfgNode enclosingX = cfgNode.getSpecial();
         if (enclosingX instanceof CfgNodeBasicBlock) {
             // the current node is enclosed by a basic block
@@ -345,7 +393,9 @@ public class DepGraph {
             
             // note: in theory, it should not matter whether we fold first and then
             // apply until we reach the node, or vice versa (apply for the whole
-            // table, and fold afterwards)
+            // table, and fold afterwards); since the effect of a basic block
+            // on a place only depends on the incoming dep of this place, 
+            // it is sufficient to fold the dep of the place
             
             Map bbPhi = this.analysisInfo.getAnalysisNode(enclosingX).getPhi();
             
@@ -353,11 +403,13 @@ public class DepGraph {
                 throw new NotReachableException();
             }
 
-            DepLatticeElement latticeElement = this.newFold(bbPhi, contexts);
+            DepSet inDep = this.newFold(bbPhi, place, contexts);
+            if (inDep == null) {
+                throw new NotReachableException();
+            }
             
-            DepLatticeElement propagated = this.depAnalysis.applyInsideBasicBlock(
-                    (CfgNodeBasicBlock) enclosingX, cfgNode, latticeElement);
-            depSet = propagated.getDep(place);
+            depSet = this.depAnalysis.getBasicBlockEffect(
+                    (CfgNodeBasicBlock) enclosingX, cfgNode).getDep(place, inDep);
 
         } else if (enclosingX instanceof CfgNodeEntry) {
             // the current node is inside a function's default cfg
@@ -436,6 +488,14 @@ public class DepGraph {
         TacFunction targetFunction = function;
         Set<Context> targetContexts = contexts;
         
+        // the query engine takes care of its own contexts
+        if (this.query != null) {
+            retMe.targetFunction = Cfg.getFunction(targetNode);
+            retMe.targetContexts = this.query.switchContexts(
+                    function, contexts, current, targetNode);
+            return retMe;
+        }
+        
         // check whether we are jumping from caller to callee
         // (i.e., since we are creating the depgraph backwards, we are
         // jumping from the function call to the end of the callee);
@@ -451,7 +511,21 @@ public class DepGraph {
             debug("jumping from caller to end of callee: " + function.getName() + " -> " + targetFunction.getName());
             targetContexts = new HashSet<Context>();
             for (Context c : contexts) {
-                targetContexts.add(this.depAnalysis.getPropagationContext(callNode, c));
+                Context targetContext = this.depAnalysis.getPropagationContext(callNode, c);
+                targetContexts.add(targetContext);
+                this.addSummaryAliases(targetFunction, targetContext, 
+                        this.depAnalysis.getSummaryProducers(targetFunction, targetContext));
+                
+                // if the calling context was not entered either, the callee
+                // was entered from the contexts that it resolves to
+                Set<Context> callerAliases = this.getSummaryAliases(function, c);
+                for (Context a : callerAliases) {
+                    Context aliasContext = this.depAnalysis.getPropagationContext(callNode, a);
+                    Set<Context> aliases = new HashSet<Context>();
+                    aliases.add(aliasContext);
+                    aliases.addAll(this.depAnalysis.getSummaryProducers(targetFunction, aliasContext));
+                    this.addSummaryAliases(targetFunction, targetContext, aliases);
+                }
             }
             debug("target contexts: " + targetContexts);
         }
@@ -465,7 +539,9 @@ public class DepGraph {
             targetFunction = prep.getCaller();
             debug("caller: " + targetFunction.getName());
             targetContexts = new HashSet<Context>();
-            for (Context c : contexts) {
+            // the contexts that the current contexts resolve to might have
+            // been entered from other calls (see resolveSummaries)
+            for (Context c : this.resolveSummaries(function, contexts)) {
                 List<ReverseTarget> revs = this.depAnalysis.getReverseTargets(function, c);
                 for (ReverseTarget rev : revs) {
                     if (!rev.getCallNode().equals(callNode)) {
@@ -513,6 +589,58 @@ public class DepGraph {
         
     }
 
+//  *********************************************************************************
+    
+    // under call-string analysis with memoized summaries, a callee context
+    // might not have been entered at all; in this case, the analysis
+    // information has to be taken from the contexts that produced the reused
+    // summaries; on the other hand, the unentered context is kept for 
+    // switching back to the caller, which is thereby as precise as without
+    // summaries
+    private Set<Context> resolveSummaries(TacFunction function, Set<Context> contexts) {
+        Map<Context,Set<Context>> functionAliases = this.summaryAliases.get(function);
+        if (functionAliases == null) {
+            return contexts;
+        }
+        Set<Context> retMe = new HashSet<Context>(contexts);
+        for (Context c : contexts) {
+            Set<Context> aliases = functionAliases.get(c);
+            if (aliases != null) {
+                retMe.addAll(aliases);
+            }
+        }
+        return retMe;
+    }
+    
+    private Set<Context> getSummaryAliases(TacFunction function, Context context) {
+        Map<Context,Set<Context>> functionAliases = this.summaryAliases.get(function);
+        if (functionAliases == null) {
+            return Collections.emptySet();
+        }
+        Set<Context> aliases = functionAliases.get(context);
+        if (aliases == null) {
+            return Collections.emptySet();
+        }
+        return aliases;
+    }
+    
+    private void addSummaryAliases(TacFunction function, Context context, Set<Context> aliases) {
+        if (aliases.isEmpty()) {
+            return;
+        }
+        Map<Context,Set<Context>> functionAliases = this.summaryAliases.get(function);
+        if (functionAliases == null) {
+            functionAliases = new HashMap<Context,Set<Context>>();
+            this.summaryAliases.put(function, functionAliases);
+        }
+        Set<Context> contextAliases = functionAliases.get(context);
+        if (contextAliases == null) {
+            contextAliases = new HashSet<Context>();
+            functionAliases.put(context, contextAliases);
+        }
+        contextAliases.addAll(aliases);
+    }
+    
 //  *********************************************************************************
     
     // checks if the given targetNode is an operation node;
@@ -1073,6 +1201,11 @@ public class DepGraph {
         
         for (Context context : contexts) {
             DepLatticeElement element = (DepLatticeElement) phi.get(context);
+            if (element == null) {
+                // no analysis information for this context (e.g., a reused
+                // summary's producer context that never reached this node)
+                continue;
+            }
             if (retMe == null) {
                 // EFF: it should also be possible to say "retMe = element"
                 retMe = new DepLatticeElement(element);
@@ -78,6 +78,40 @@ extends Lattice {
         return resultElement;
     }
     
+    public boolean lessOrEqual(
+            LatticeElement incomingElementX, 
+            LatticeElement targetElementX) {
+        
+        if (incomingElementX == this.bottom || incomingElementX == targetElementX) {
+            return true;
+        }
+        if (targetElementX == this.bottom) {
+            return false;
+        }
+        return ((DepLatticeElement) incomingElementX).lessOrEqual(
+                (DepLatticeElement) targetElementX);
+    }
+    
+    // only touches the mappings that the incoming element changes
+    public LatticeElement lubDelta(
+            LatticeElement incomingElementX, 
+            LatticeElement targetElementX) {
+        
+        if (incomingElementX == this.bottom) {
+            return targetElementX;
+        }
+        if (targetElementX == this.bottom) {
+            return incomingElementX.cloneMe();
+        }
+        
+        DepLatticeElement resultElement = 
+            new DepLatticeElement((DepLatticeElement) targetElementX);
+        if (resultElement.lubDelta((DepLatticeElement) incomingElementX)) {
+            return resultElement;
+        } else {
+            return targetElementX;
+        }
+    }
 }
 
 
@@ -4,6 +4,7 @@ import java.util.*;
 
 import pixy.MyOptions;
 import analysis.LatticeElement;
+import analysis.PersistentMap;
 import conversion.Constant;
 import conversion.ConstantsTable;
 import conversion.Literal;
@@ -16,21 +17,23 @@ import conversion.nodes.CfgNode;
 import conversion.nodes.CfgNodeCallRet;
 
 public class DepLatticeElement 
-extends LatticeElement {
+extends LatticeElement
+implements DepUpdateSink {
 
     // contains only non-default mappings;
     // does not contain mappings for non-literal array elements, because:
     // the dep value of such elements solely depends on the array label
     // of their root array;
-    // also: contains only mappings for Variables and Constants, not for Literals
-    private Map<TacPlace,DepSet> placeToDep;
+    // also: contains only mappings for Variables and Constants, not for Literals;
+    // persistent, i.e., shared with clones until modified
+    private PersistentMap<TacPlace,DepSet> placeToDep;
     
     // "array labels";
     // remotely resemble "clean array flags" (caFlags) from XSS taint analysis;
     // gives an upper bound for the label of non-literal array elements;
     // contains only non-default mappings;
     // only defined for non-array-elements
-    private Map<Variable,DepSet> arrayLabels;
+    private PersistentMap<Variable,DepSet> arrayLabels;
 
     // the default lattice element; IT MUST NOT BE USED DIRECTLY BY THE ANALYSIS!
     // can be seen as "grounding", "fall-back" for normal lattice elements
@@ -45,18 +48,19 @@ extends LatticeElement {
     // a lattice element that doesn't modify the information of the 
     // default lattice element
     public DepLatticeElement() {
-        this.placeToDep = new HashMap<TacPlace,DepSet>();
-        this.arrayLabels = new HashMap<Variable,DepSet>();
+        this.placeToDep = new PersistentMap<TacPlace,DepSet>();
+        this.arrayLabels = new PersistentMap<Variable,DepSet>();
     }
 
 //  DepLatticeElement(DepLatticeElement) ***********************************
     
-    // clones the given element
+    // clones the given element (in constant time: the maps are shared
+    // until one of the two elements is modified)
     public DepLatticeElement(DepLatticeElement element) {
         this.placeToDep = 
-            new HashMap<TacPlace,DepSet>(element.getPlaceToDep());
+            new PersistentMap<TacPlace,DepSet>(element.placeToDep);
         this.arrayLabels = 
-            new HashMap<Variable,DepSet>(element.getArrayLabels());
+            new PersistentMap<Variable,DepSet>(element.arrayLabels);
     }
 
 //  cloneMe ************************************************************************
@@ -82,8 +86,8 @@ extends LatticeElement {
         // initialize base mapping for variables: UNINIT
         // (note: array elements have no explicit array label: their label is
         // that of their top enclosing array)
-        this.placeToDep = new HashMap<TacPlace,DepSet>();
-        this.arrayLabels = new HashMap<Variable,DepSet>();
+        this.placeToDep = new PersistentMap<TacPlace,DepSet>();
+        this.arrayLabels = new PersistentMap<Variable,DepSet>();
         for (TacPlace place : places) {
             
             if ((place instanceof Variable) && 
@@ -401,9 +405,12 @@ extends LatticeElement {
 //  SET ****************************************************************************
 //  ********************************************************************************
     
+    // note: the transfer functions for nodes inside basic blocks modify
+    // elements only through the following four methods (see DepUpdateSink)
+    
 //  ***********************************************************************
     
-    private void setDep(TacPlace place, DepSet depSet) {
+    public void setDep(TacPlace place, DepSet depSet) {
         
         if (place instanceof Literal) {
             throw new RuntimeException("SNH");
@@ -424,7 +431,7 @@ extends LatticeElement {
 
 //  ***********************************************************************
     
-    private void lubDep(TacPlace place, DepSet depSet) {
+    public void lubDep(TacPlace place, DepSet depSet) {
         
         if (place instanceof Literal) {
             throw new RuntimeException("SNH");
@@ -447,7 +454,7 @@ extends LatticeElement {
 //  ********************************************************************************
     
     // expects a non-array-element!
-    private void setArrayLabel(Variable var, DepSet depSet) {
+    public void setArrayLabel(Variable var, DepSet depSet) {
         
         if (var.isArrayElement()) {
             throw new RuntimeException("SNH: " + var);
@@ -467,7 +474,7 @@ extends LatticeElement {
 
 //  ********************************************************************************
     
-    private void lubArrayLabel(Variable var, DepSet depSet) {
+    public void lubArrayLabel(Variable var, DepSet depSet) {
         
         if (var.isMember()) {
             // we don't want to modify the special member variable
@@ -486,127 +493,129 @@ extends LatticeElement {
         }
     }
 
-// setWholeTree ********************************************************************
-    
-    // sets the dep for all literal array elements in the
-    // tree sepcified by the given root, INCLUDING THE ROOT
-    private void setWholeTree(Variable root, DepSet depSet) {
-        
-        this.setDep(root, depSet);
-        if (!root.isArray()) {
-            return;
-        }
-        for (Variable element : root.getLiteralElements()) {
-            this.setWholeTree(element, depSet);
-        }
-    }
-
-//  lubWholeTree ************************************************************************
-    
-    // analogous to setWholeTree
-    private void lubWholeTree(Variable root, DepSet depSet) {
-        
-        this.lubDep(root, depSet);
-        if (!root.isArray()) {
-            return;
-        }
-        for (Variable element : root.getLiteralElements()) {
-            this.lubWholeTree(element, depSet);
-        }
-    }
-
 //  ********************************************************************************    
 //  OTHER **************************************************************************
 //  ********************************************************************************
 
 //  lub ****************************************************************************
     
-    // lubs the given lattice element over <<this>> lattice element 
+    // lubs the given lattice element over <<this>> lattice element;
+    // only visits the mappings that might differ between the two elements
+    // (i.e., skips the parts of the maps that are still shared)
     public void lub(LatticeElement foreignX) {
+        this.lubDelta((DepLatticeElement) foreignX);
+    }
+    
+//  lubDelta ***********************************************************************
+    
+    // like lub, but returns true if this element was changed
+    public boolean lubDelta(DepLatticeElement foreign) {
         
-        DepLatticeElement foreign = (DepLatticeElement) foreignX;
+        boolean changed = false;
         
         // DEPS ***
         
-        // lub over my non-default mappings;
-        // this one is necessary because we must not modify a map while
-        // iterating over it
-        Map<TacPlace,DepSet> newPlaceToDep = 
-            new HashMap<TacPlace,DepSet>(this.placeToDep);
-        for (Map.Entry<TacPlace,DepSet> myEntry : this.placeToDep.entrySet()) {
-            TacPlace myPlace = myEntry.getKey();
-            DepSet myDep = myEntry.getValue();
-            DepSet foreignDep = foreign.getDep(myPlace);
-            newPlaceToDep.put(myPlace, DepSet.lub(myDep, foreignDep));
-        }
-        this.placeToDep = newPlaceToDep;
-        
-        // lub the remaining non-default mappings of "foreign" over my
-        // default mappings
-        Map<TacPlace,DepSet> foreignPlaceToDep = foreign.getPlaceToDep();
-        for (Map.Entry<TacPlace,DepSet> foreignEntry : foreignPlaceToDep.entrySet()) {
-            TacPlace foreignPlace = foreignEntry.getKey();
-            DepSet foreignDep = foreignEntry.getValue();
-            
-            DepSet myDep = this.getNonDefaultDep(foreignPlace);
-            // make sure that we handle my default mappings now
-            if (myDep == null) {
-                myDep = getDefaultDep(foreignPlace);
-                this.placeToDep.put(foreignPlace, DepSet.lub(foreignDep, myDep));
-            }
-        }
-
-        // cleaning pass: remove defaults
-        for (Iterator<Map.Entry<TacPlace, DepSet>> iter = 
-            this.placeToDep.entrySet().iterator(); iter.hasNext(); ) {
-            
-            Map.Entry<TacPlace, DepSet> entry = iter.next();
-            TacPlace place = entry.getKey();
-            DepSet dep = entry.getValue();
-            if (getDefaultDep(place).equals(dep)) {
-                iter.remove();
+        if (!this.placeToDep.sameAs(foreign.placeToDep)) {
+            List<TacPlace> places = new ArrayList<TacPlace>();
+            this.placeToDep.addDifferences(foreign.placeToDep, places);
+            for (TacPlace place : places) {
+                DepSet myDep = this.placeToDep.get(place);
+                DepSet foreignDep;
+                if (myDep == null) {
+                    // lub the non-default mapping of "foreign" over my
+                    // default mapping
+                    foreignDep = foreign.placeToDep.get(place);
+                    if (foreignDep == null) {
+                        continue;
+                    }
+                    myDep = getDefaultDep(place);
+                } else {
+                    foreignDep = foreign.getDep(place);
+                }
+                DepSet resultDep = DepSet.lub(myDep, foreignDep);
+                if (resultDep == myDep) {
+                    // dep sets are recycled, so nothing changed
+                    continue;
+                }
+                changed = true;
+                // only store non-default mappings
+                if (getDefaultDep(place).equals(resultDep)) {
+                    this.placeToDep.remove(place);
+                } else {
+                    this.placeToDep.put(place, resultDep);
+                }
             }
         }
 
         // ARRAY LABELS ***
         
-        // lub over my non-default mappings
-        Map<Variable,DepSet> newArrayLabels = new HashMap<Variable,DepSet>(this.arrayLabels);
-        for (Map.Entry<Variable,DepSet> myEntry : this.arrayLabels.entrySet()) {
-            Variable myVar = myEntry.getKey();
-            DepSet myArrayLabel = myEntry.getValue();
-            DepSet foreignArrayLabel = foreign.getArrayLabel(myVar);
-            newArrayLabels.put(myVar, DepSet.lub(myArrayLabel, foreignArrayLabel));
-        }
-        this.arrayLabels = newArrayLabels;
-        
-        // lub the remaining non-default mappings of "foreign" over my
-        // default mappings
-        Map<Variable,DepSet> foreignArrayLabels = foreign.getArrayLabels();
-        for (Map.Entry<Variable,DepSet> foreignEntry : foreignArrayLabels.entrySet()) {
-            Variable foreignVar = foreignEntry.getKey();
-            DepSet foreignArrayLabel = foreignEntry.getValue();
-
-            // try non-default mapping:
-            DepSet myArrayLabel = getNonDefaultArrayLabel(foreignVar);
-            if (myArrayLabel == null) {
-                // fetch default mapping:
-                myArrayLabel = getDefaultArrayLabel(foreignVar);
-                this.arrayLabels.put(foreignVar, DepSet.lub(myArrayLabel, foreignArrayLabel));
+        if (!this.arrayLabels.sameAs(foreign.arrayLabels)) {
+            List<Variable> vars = new ArrayList<Variable>();
+            this.arrayLabels.addDifferences(foreign.arrayLabels, vars);
+            for (Variable var : vars) {
+                DepSet myArrayLabel = this.arrayLabels.get(var);
+                DepSet foreignArrayLabel;
+                if (myArrayLabel == null) {
+                    foreignArrayLabel = foreign.arrayLabels.get(var);
+                    if (foreignArrayLabel == null) {
+                        continue;
+                    }
+                    myArrayLabel = getDefaultArrayLabel(var);
+                } else {
+                    foreignArrayLabel = foreign.getArrayLabel(var);
+                }
+                DepSet resultLabel = DepSet.lub(myArrayLabel, foreignArrayLabel);
+                if (resultLabel == myArrayLabel) {
+                    continue;
+                }
+                changed = true;
+                if (getDefaultArrayLabel(var).equals(resultLabel)) {
+                    this.arrayLabels.remove(var);
+                } else {
+                    this.arrayLabels.put(var, resultLabel);
+                }
             }
         }
-
-        // cleaning pass: remove defaults
-        for (Iterator<Map.Entry<Variable, DepSet>> iter = 
-            this.arrayLabels.entrySet().iterator(); iter.hasNext(); ) {
-            
-            Map.Entry<Variable,DepSet> entry = iter.next();
-            Variable var = entry.getKey();
-            DepSet arrayLabel = entry.getValue();
-            if (getDefaultArrayLabel(var).equals(arrayLabel)) {
-                iter.remove();
-            }
+        
+        return changed;
+    }
+    
+//  lessOrEqual ********************************************************************
+    
+    // is this element less or equal to the given one (i.e., would a lub of
+    // this element over the given one leave it unchanged)?
+    // only visits the mappings that might differ between the two elements
+    public boolean lessOrEqual(final DepLatticeElement other) {
+        
+        if (!this.placeToDep.visitDifferences(other.placeToDep, 
+                new PersistentMap.KeyVisitor<TacPlace>() {
+                    public boolean visit(TacPlace place) {
+                        return DepSet.lessOrEqual(
+                                getMappedDep(place), other.getMappedDep(place));
+                    }
+                })) {
+            return false;
         }
+        return this.arrayLabels.visitDifferences(other.arrayLabels, 
+                new PersistentMap.KeyVisitor<Variable>() {
+                    public boolean visit(Variable var) {
+                        return DepSet.lessOrEqual(
+                                getMappedArrayLabel(var), other.getMappedArrayLabel(var));
+                    }
+                });
+    }
+    
+    // returns the non-default dep for this place if that mapping exists,
+    // or the default dep otherwise (without redirection to array labels:
+    // only for places that can appear in placeToDep)
+    private DepSet getMappedDep(TacPlace place) {
+        DepSet dep = this.placeToDep.get(place);
+        return (dep == null ? getDefaultDep(place) : dep);
+    }
+    
+    private DepSet getMappedArrayLabel(Variable var) {
+        DepSet arrayLabel = this.arrayLabels.get(var);
+        return (arrayLabel == null ? getDefaultArrayLabel(var) : arrayLabel);
     }
     
 //  lub (static) *******************************************************************
@@ -639,217 +648,20 @@ extends LatticeElement {
     // include left itself
     public void assign(Variable left, 
             Set mustAliases, Set mayAliases, CfgNode cfgNode) {
-        
-        // dep to be assigned to the left side
-        DepSet dep = DepSet.create(Dep.create(cfgNode));
-
-        // case distinguisher for the left variable
-        int leftCase;
-        //Please God
-        if(left==null)
-        	return;
-        
-        // find out more about the left variable
-        if (!left.isArrayElement()) {
-            // left: not an array element
-            if (!left.isArray()) {
-                // left: neither an array nor an array element
-                leftCase = 1;
-            } else {
-                // left: an array that is not an array element
-                leftCase = 2;
-            }
-        } else {
-            // left: array element
-            if (!left.hasNonLiteralIndices()) {
-                // left: literal array element
-                leftCase = 3;
-            } else {
-                // left: non-literal array element
-                leftCase = 4;
-            }
-        }
-
-        // take appropariate actions
-        switch (leftCase) {
-        
-        // not an array element and not known as array ("normal variable")
-        case 1:
-        {
-            // strong update for must-aliases (including left itself)
-            for (Iterator iter = mustAliases.iterator(); iter.hasNext();) {
-                Variable mustAlias = (Variable) iter.next();
-                
-                this.setDep(mustAlias, dep);
-                this.setArrayLabel(mustAlias, dep);
-            }
-            
-            // weak update for may-aliases
-            for (Iterator iter = mayAliases.iterator(); iter.hasNext();) {
-                Variable mayAlias = (Variable) iter.next();
-                this.lubDep(mayAlias, dep);
-                this.lubArrayLabel(mayAlias, dep);
-            }
-
-            break;
-        }
-
-        // array, but not an array element 
-        case 2:
-        {
-            // set target.caFlag
-            this.setArrayLabel(left, dep);
-            
-            // no strong overlap here, but: set the whole subtree to resultDep
-            this.setWholeTree(left, dep);
-            break;
-        }
-            
-        // array element (and maybe an array) without non-literal indices
-        case 3:
-        {
-            // lub target.root.caFlag
-            this.lubArrayLabel(left.getTopEnclosingArray(), dep);
-            
-            // no strong overlap here, but: set the whole subtree to resultDep
-            this.setWholeTree(left, dep);
-            break;
-        }
-            
-        // array element (and maybe an array) with non-literal indices
-        case 4:
-        {
-            // lub target.root.caFlag
-            this.lubArrayLabel(left.getTopEnclosingArray(), dep);
-
-            // "weak overlap for all MI variables of left"
-            // here: lub the whole subtrees of all MI variables of left
-            for (Iterator iter = this.getMiList(left).iterator(); iter.hasNext();) {
-                Variable miVar = (Variable) iter.next();
-                this.lubWholeTree(miVar, dep);
-            }
-            break;
-        }
-
-        default:
-            throw new RuntimeException("SNH");
-        }
+        DepUpdates.assign(this, left, mustAliases, mayAliases, cfgNode);
     }
 
 //  assignArray ********************************************************************
     
     public void assignArray(Variable left, CfgNode cfgNode) {
         // set the whole tree of left
-        this.setWholeTree(left, DepSet.create(Dep.create(cfgNode)));
+        DepUpdates.setWholeTree(this, left, DepSet.create(Dep.create(cfgNode)));
         // if left is not an array element, set its arrayLabel
         if (!left.isArrayElement()) {
             this.setArrayLabel(left, DepSet.create(Dep.create(cfgNode)));
         }
     }
     
-//  defineConstant *****************************************************************
-    
-    // sets the dep of the given constant
-    public void defineConstant(Constant c, CfgNode cfgNode) {
-        this.setDep(c, DepSet.create(Dep.create(cfgNode)));
-    }
-    
-//  defineConstantWeak *************************************************************
-    
-    // lubs the taint of the given constant
-    public void defineConstantWeak(Constant c, CfgNode cfgNode) {
-        this.lubDep(c, DepSet.create(Dep.create(cfgNode)));
-    }
-
-    
-    
-    
-    
-    
-
-    
-    
-    
-    
-    
-// getMiList ***********************************************************************
-    
-    // returns a list of array elements that are maybe identical
-    // to the given array element; only array elements without
-    // non-literal indices are returned
-    List getMiList(Variable var) {
-        
-        if (!var.isArrayElement()) {
-            throw new RuntimeException("SNH");
-        }
-        if (!var.hasNonLiteralIndices()) {
-            throw new RuntimeException("SNH");
-        }
-
-        // the list to be returned (contains Variables)
-        List<Variable> miList = new LinkedList<Variable>();
-        
-        // root of the array tree, indices of the array element
-        Variable root = var.getTopEnclosingArray();
-        List<TacPlace> indices = var.getIndices();
-        
-        this.miRecurse(miList, root, new LinkedList<TacPlace>(indices));
-        return miList;
-    }
-    
-// miRecurse ***********************************************************************
-    
-    // CAUTION: the indices list is modified inside this method, so you might
-    // want to pass a shallow copy instead of a reference to the list
-    private void miRecurse(List<Variable> miList, Variable root, List<TacPlace> indices) {
-        /*
-         * - separate head from the indices list
-         * - if this first index is literal:
-         *   - if the remaining indices list is empty:
-         *     add the target array element to the miList
-         *   - else: recurse with target array element and
-         *     the remaining list
-         * - else (first index is non-literal):
-         *   - if the remaining indices list is empty:
-         *     add all literal array elements to the miList
-         *   - else: recurse for all literal array elements and
-         *     <<a copy>> of the remaining indices list: otherwise,
-         *     the different branches would operate on the same
-         *     indices list  
-         * 
-         */
-
-        // proceeding only makes sense if the considered root has known
-        // array elements
-        if (!root.isArray()) {
-            return;
-        }
-        
-        TacPlace index = (TacPlace) indices.remove(0);
-        if (index instanceof Literal) {
-            
-            Variable target = root.getElement(index);
-            // it is possible that the considered array doesn't have this index
-            if (target != null) {
-                if (indices.isEmpty()) {
-                    miList.add(target);
-                } else {
-                    this.miRecurse(miList, target, indices);
-                }
-            }
-        } else {
-            List<Variable> literalElements = root.getLiteralElements();
-            if (indices.isEmpty()) {
-                miList.addAll(literalElements);
-            } else {
-                for (Iterator iter = literalElements.iterator(); iter.hasNext(); ) {
-                    Variable target = (Variable) iter.next();
-                    this.miRecurse(miList, target, new LinkedList<TacPlace>(indices));
-                }
-            }
-        }
-    }
-    
 //  resetVariables *****************************************************************
     
     // resets all variables that belong to the given symbol table
@@ -1254,7 +1066,7 @@ extends LatticeElement {
         Variable tempVar = retNode.getTempVar();
         Dep dep = Dep.create(retNode);
         DepSet depSet = DepSet.create(dep);
-        this.setWholeTree(tempVar, depSet);
+        DepUpdates.setWholeTree(this, tempVar, depSet);
         this.setArrayLabel(tempVar, depSet);
         
         // old technique:
@@ -1304,7 +1116,7 @@ extends LatticeElement {
 
         // ****** end of quick hack
         
-        this.setWholeTree(tempVar, dep);
+        DepUpdates.setWholeTree(this, tempVar, dep);
         this.setArrayLabel(tempVar, arrayLabel);
         this.placeToDep.remove(retVar);
         this.arrayLabels.remove(retVar);
@@ -1318,7 +1130,7 @@ extends LatticeElement {
 
         //System.out.println("callretunknown: " + tempVar + " -> " + dep);
         
-        this.setWholeTree(tempVar, dep);
+        DepUpdates.setWholeTree(this, tempVar, dep);
         this.setArrayLabel(tempVar, arrayLabel);
         this.placeToDep.remove(retVar);
         this.arrayLabels.remove(retVar);
@@ -1329,8 +1141,7 @@ extends LatticeElement {
     public void handleReturnValueBuiltin(Variable tempVar, DepSet dep, 
             DepSet arrayLabel) {
         
-        this.setWholeTree(tempVar, dep);
-        this.setArrayLabel(tempVar, arrayLabel);
+        DepUpdates.handleReturnValueBuiltin(this, tempVar, dep, arrayLabel);
     }
     
 //  setRetVar **********************************************************************
@@ -1396,6 +1207,7 @@ extends LatticeElement {
 
 //  ********************************************************************************
     
+    // constant time: the maps maintain their hash codes incrementally
     public int structureHashCode() {
         int hashCode = 17;
         hashCode = 37*hashCode + this.placeToDep.hashCode();
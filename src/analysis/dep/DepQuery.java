@@ -0,0 +1,641 @@
+package analysis.dep;
+
+import java.util.*;
+
+import analysis.TransferFunction;
+import analysis.TransferFunctionId;
+import analysis.dep.tf.DepTfBasicBlock;
+import analysis.dep.tf.DepTfCallPrep;
+import analysis.dep.tf.DepTfCallRet;
+import analysis.dep.tf.DepTfEntry;
+import analysis.dep.tf.DepTfInPlace;
+import analysis.dep.tf.DepTfTester;
+import analysis.inter.Context;
+import conversion.Cfg;
+import conversion.CfgEdge;
+import conversion.Constant;
+import conversion.TacFunction;
+import conversion.TacPlace;
+import conversion.Variable;
+import conversion.nodes.CfgNode;
+import conversion.nodes.CfgNodeBasicBlock;
+import conversion.nodes.CfgNodeCall;
+import conversion.nodes.CfgNodeCallPrep;
+import conversion.nodes.CfgNodeCallRet;
+import conversion.nodes.CfgNodeEntry;
+import conversion.nodes.CfgNodeIf;
+
+// demand-driven computation of the dep sets that DepGraph needs, as an
+// alternative to solving the whole dependency analysis first;
+// a query for the dep of a place at some cfg node walks backwards through the
+// (interprocedural) cfg and only computes the deps of those places that the
+// transfer functions on the way actually read; results are memoized across
+// queries;
+// the results are context-insensitive: they are those of a forward analysis
+// that doesn't distinguish calling contexts (i.e., a call-string analysis
+// with k = 0), and are therefore at most as precise as the results of the
+// whole-program analysis (see DepTabulation for a context-sensitive variant)
+public class DepQuery {
+
+    private DepAnalysis depAnalysis;
+
+    // solved facts -> dep (null: the node is unreachable);
+    // these values are final
+    private Map<Fact,DepSet> solved;
+
+    // facts of the query that is currently solved -> current dep and users
+    // (reused across queries)
+    private Map<Fact,Slot> pending;
+    private ArrayDeque<Fact> workList;
+
+    // the fact that is currently evaluated (null: the query itself)
+    private Fact current;
+
+    // effects of nodes with in-place transfer functions
+    private Map<CfgNode,DepBlockEffect> effects;
+
+    // function -> shadow -> original (see DepTfEntry)
+    private Map<TacFunction,Map<Variable,Variable>> shadowOriginals;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    // the transfer functions of the given analysis are used, but the
+    // analysis itself doesn't have to be performed
+    public DepQuery(DepAnalysis depAnalysis) {
+        this.depAnalysis = depAnalysis;
+        this.solved = new HashMap<Fact,DepSet>();
+        this.effects = new HashMap<CfgNode,DepBlockEffect>();
+        this.shadowOriginals = new HashMap<TacFunction,Map<Variable,Variable>>();
+        this.pending = new HashMap<Fact,Slot>();
+        this.workList = new ArrayDeque<Fact>();
+    }
+
+// *********************************************************************************
+// GET *****************************************************************************
+// *********************************************************************************
+
+//  getDep *************************************************************************
+
+    // returns the dep set of the given place at the given cfg node (i.e.,
+    // before the node's transfer function) under the given contexts (see
+    // switchContexts), analogous to DepGraph.getDepSet;
+    // null if the node is not reachable
+    public DepSet getDep(CfgNode cfgNode, TacPlace place, Set<Context> contexts) {
+
+        CfgNode enclosingX = cfgNode.getSpecial();
+        if (enclosingX instanceof CfgNodeBasicBlock) {
+            // apply the effect of the basic block until the node; if the
+            // block overwrites the place before the node, the incoming dep
+            // only tells whether the node is reachable
+            DepBlockEffect effect = this.depAnalysis.getBasicBlockEffect(
+                    (CfgNodeBasicBlock) enclosingX, cfgNode);
+            Fact fact = effect.isStrong(place) ?
+                    Fact.reach(enclosingX) : Fact.dep(enclosingX, place);
+            DepSet inDep = this.solveIn(fact, contexts);
+            if (inDep == null) {
+                return null;
+            }
+            return effect.getDep(place, inDep);
+
+        } else if (enclosingX instanceof CfgNodeEntry) {
+            // inside a function's default cfg: start with the value at the
+            // function's entry node (default cfgs only contain static stuff,
+            // so the place doesn't depend on any other place)
+            Fact fact = Fact.dep(enclosingX, place);
+            DepSet inDep = this.solveIn(fact, contexts);
+            if (inDep == null || place.isConstant()) {
+                return inDep;
+            }
+            DepLatticeElement in = new DepLatticeElement();
+            fact.set(in, inDep);
+            return this.depAnalysis.applyInsideDefaultCfg(
+                    Cfg.getHead(cfgNode), cfgNode, in).getDep(place);
+        }
+
+        return this.solveIn(Fact.dep(cfgNode, place), contexts);
+    }
+
+//  getStartContexts ***************************************************************
+
+    // the contexts under which the start node of a dependency graph is
+    // looked up; there are no contexts here, since the deps are
+    // context-insensitive
+    public Set<Context> getStartContexts() {
+        return Collections.emptySet();
+    }
+
+//  switchContexts *****************************************************************
+
+    // returns the contexts under which the given target node has to be looked
+    // up if the dependency graph proceeds to it from the given node in the
+    // given function (see DepGraph.switchContexts)
+    public Set<Context> switchContexts(TacFunction function, Set<Context> contexts,
+            CfgNode current, CfgNode targetNode) {
+        return contexts;
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+//  solveIn ************************************************************************
+
+    // computes the given fact under the given contexts
+    DepSet solveIn(Fact fact, Set<Context> contexts) {
+        return this.solve(fact);
+    }
+
+//  solve **************************************************************************
+
+    // computes the given fact together with all unsolved facts that it
+    // depends on (using a worklist over these facts only)
+    DepSet solve(Fact fact) {
+
+        if (this.solved.containsKey(fact)) {
+            return this.solved.get(fact);
+        }
+
+        this.current = null;
+        this.value(fact);
+
+        while (!this.workList.isEmpty()) {
+            Fact evalMe = this.workList.pollLast();
+            Slot slot = this.pending.get(evalMe);
+            slot.queued = false;
+
+            this.current = evalMe;
+            DepSet newDep = this.eval(evalMe);
+            if (newDep == null) {
+                continue;
+            }
+            // deps only grow (as in the forward analysis, where incoming
+            // values are lubbed into the existing ones)
+            if (slot.dep != null) {
+                newDep = DepSet.lub(slot.dep, newDep);
+            }
+            if (newDep.equals(slot.dep)) {
+                continue;
+            }
+            slot.dep = newDep;
+            for (Fact user : slot.users) {
+                this.schedule(user);
+            }
+        }
+
+        // the facts are now closed under dependencies, so their values are final
+        for (Map.Entry<Fact,Slot> entry : this.pending.entrySet()) {
+            this.solved.put(entry.getKey(), entry.getValue().dep);
+        }
+        this.pending.clear();
+        this.current = null;
+
+        return this.solved.get(fact);
+    }
+
+    // returns the current value of the given fact, and records that the
+    // currently evaluated fact depends on it
+    DepSet value(Fact fact) {
+
+        if (this.solved.containsKey(fact)) {
+            return this.solved.get(fact);
+        }
+        Slot slot = this.pending.get(fact);
+        if (slot == null) {
+            slot = new Slot();
+            this.pending.put(fact, slot);
+            this.schedule(fact);
+        }
+        if (this.current != null) {
+            slot.users.add(this.current);
+        }
+        return slot.dep;
+    }
+
+    private void schedule(Fact fact) {
+        Slot slot = this.pending.get(fact);
+        if (!slot.queued) {
+            slot.queued = true;
+            this.workList.add(fact);
+        }
+    }
+
+//  eval ***************************************************************************
+
+    // computes the dep entering the fact's node by combining the values
+    // leaving its (interprocedural) predecessors
+    private DepSet eval(Fact fact) {
+
+        CfgNode node = fact.node;
+
+        if (node instanceof CfgNodeCallRet) {
+            CfgNodeCall callNode = ((CfgNodeCallRet) node).getCallNode();
+            TacFunction callee = callNode.getCallee();
+            if (callee == null) {
+                return this.value(fact.at(callNode));
+            }
+            return this.evalCallRet(fact, callNode, callee);
+        }
+
+        DepSet retMe = null;
+
+        TacFunction function = Cfg.getFunction(node);
+        if (node == function.getCfg().getHead()) {
+            if (function.isMain()) {
+                // start value
+                return fact.get(new DepLatticeElement());
+            }
+            retMe = this.evalEntry(fact, function);
+        }
+
+        for (CfgEdge inEdge : node.getInEdges()) {
+            CfgNode pred = inEdge.getSource();
+            if (pred instanceof CfgNodeIf) {
+                // skip edges that can never be taken
+                Boolean eval = this.depAnalysis.evalIf((CfgNodeIf) pred, null);
+                if (eval != null &&
+                        pred.getOutEdge(eval.booleanValue() ? 1 : 0).getDest() != node) {
+                    continue;
+                }
+            }
+            retMe = lub(retMe, this.transfer(pred, fact.at(pred)));
+        }
+
+        return retMe;
+    }
+
+//  evalCallRet ********************************************************************
+
+    // the dep entering a call return node: comes from the exit node of the
+    // callee (which passes its incoming value unchanged)
+    DepSet evalCallRet(Fact fact, CfgNodeCall callNode, TacFunction callee) {
+        return this.value(fact.at(callee.getCfg().getTail()));
+    }
+
+//  evalEntry **********************************************************************
+
+    // the dep entering the head of a function other than main: comes from
+    // the call nodes (which pass their incoming value unchanged)
+    DepSet evalEntry(Fact fact, TacFunction function) {
+        DepSet retMe = null;
+        for (CfgNodeCall callNode : function.getCalledFrom()) {
+            if (callNode.getCallee() == function) {
+                retMe = lub(retMe, this.value(fact.at(callNode)));
+            }
+        }
+        return retMe;
+    }
+
+//  transfer ***********************************************************************
+
+    // returns the dep of the given fact after applying the transfer function
+    // of its node
+    private DepSet transfer(CfgNode node, Fact fact) {
+
+        TransferFunction tf = this.depAnalysis.getTransferFunction(node);
+
+        if (this.passesOn(node, tf, fact)) {
+            return this.value(this.skipChain(node, fact));
+        }
+
+        if (tf instanceof DepTfBasicBlock || tf instanceof DepTfInPlace) {
+            // only depends on the incoming dep of the same place
+            DepSet inDep = this.value(fact);
+            if (inDep == null) {
+                return null;
+            }
+            DepBlockEffect effect = this.getEffect(node, tf);
+            if (fact.label) {
+                return effect.getArrayLabel((Variable) fact.place, inDep);
+            } else {
+                return effect.getDep(fact.place, inDep);
+            }
+        }
+
+        if (tf instanceof DepTfCallRet) {
+            return this.transferCallRet((CfgNodeCallRet) node, (DepTfCallRet) tf, fact);
+        }
+
+        // all other transfer functions: apply them to an element that only
+        // contains the places that they read for the given place
+        List<Fact> reads = new LinkedList<Fact>();
+        reads.add(fact);
+        if (tf instanceof DepTfEntry) {
+            // shadows are initialized with their originals
+            Variable original = this.getShadowOriginals(
+                    Cfg.getFunction(node)).get(fact.place);
+            if (original != null) {
+                reads.add(Fact.dep(node, original));
+                reads.add(Fact.label(node, original));
+            }
+        } else if (tf instanceof DepTfTester) {
+            DepTfTester tester = (DepTfTester) tf;
+            if (fact.place.equals(tester.getRetVar())) {
+                for (Variable testMe : tester.getTestUs()) {
+                    reads.add(Fact.dep(node, testMe));
+                }
+            }
+        }
+        DepLatticeElement in = this.makeElement(reads);
+        if (in == null) {
+            return null;
+        }
+        return fact.get((DepLatticeElement) tf.transfer(in));
+    }
+
+//  passesOn ***********************************************************************
+
+    // does the given transfer function of the given node leave the fact's
+    // place unchanged?
+    private boolean passesOn(CfgNode node, TransferFunction tf, Fact fact) {
+
+        if (tf instanceof TransferFunctionId) {
+            return true;
+        }
+
+        if (tf instanceof DepTfBasicBlock || tf instanceof DepTfInPlace) {
+            DepBlockEffect effect = this.getEffect(node, tf);
+            if (fact.label) {
+                return !effect.touchesArrayLabel((Variable) fact.place);
+            } else {
+                return !effect.touchesDep(fact.place);
+            }
+        }
+
+        if (tf instanceof DepTfCallPrep) {
+            // only sets the callee's formals and resets variables of the caller
+            if (!(fact.place instanceof Variable)) {
+                return false;
+            }
+            Variable var = (Variable) fact.place;
+            CfgNodeCallPrep prepNode = (CfgNodeCallPrep) node;
+            return !var.belongsTo(prepNode.getCallee().getSymbolTable()) &&
+                !var.belongsTo(Cfg.getFunction(prepNode).getSymbolTable());
+        }
+
+        return false;
+    }
+
+//  skipChain **********************************************************************
+
+    // the given fact at the start of the longest chain of nodes that ends with
+    // the given node, such that each node of the chain has a single
+    // predecessor and that predecessor passes the place on; since the fact
+    // has the same value at all nodes of the chain, this saves one fact
+    // per node (e.g., for identity transfer functions and basic blocks
+    // that don't touch the place)
+    private Fact skipChain(CfgNode node, Fact fact) {
+
+        CfgNode start = node;
+        while (!(node instanceof CfgNodeCallRet)) {
+            List<CfgEdge> inEdges = node.getInEdges();
+            if (inEdges.size() != 1) {
+                break;
+            }
+            // the heads of functions are entered from their calls
+            if (node == Cfg.getFunction(node).getCfg().getHead()) {
+                break;
+            }
+            CfgNode pred = inEdges.get(0).getSource();
+            // edges that can never be taken are skipped by eval
+            if (pred instanceof CfgNodeIf || pred == start ||
+                    !this.passesOn(pred, this.depAnalysis.getTransferFunction(pred), fact)) {
+                break;
+            }
+            node = pred;
+        }
+        return (node == fact.node ? fact : fact.at(node));
+    }
+
+//  transferCallRet ****************************************************************
+
+    // the call return node combines the values at the callee's exit and at the
+    // call prep node; for a local of the caller, the former is only read at
+    // the callee's shadows (through which aliased locals are updated)
+    private DepSet transferCallRet(CfgNodeCallRet retNode, DepTfCallRet tf, Fact fact) {
+
+        CfgNode prepNode = retNode.getCallPrepNode();
+        TacFunction caller = Cfg.getFunction(retNode);
+        TacFunction callee = retNode.getCallNode().getCallee();
+
+        // a global-like variable that the callee doesn't modify is taken from
+        // the call prep node; the transfer function only does so if the
+        // variable has a non-default dep at the callee's exit, which makes no
+        // difference once the values are complete, but would make the
+        // equations non-monotonic (temporaries are left to the transfer
+        // function, since it also catches the return value in one of them)
+        Set<TacPlace> calleeMod = tf.getCalleeMod();
+        if (calleeMod != null && fact.place instanceof Variable &&
+                !calleeMod.contains(fact.place)) {
+            Variable var = (Variable) fact.place;
+            if ((var.isGlobal() || var.isSuperGlobal()) && !var.isTemp()) {
+                return this.value(fact.at(prepNode));
+            }
+        }
+
+        // the locals of functions other than the caller (and the temporaries of
+        // main if the caller is another function) are not taken from the
+        // callee's exit: they are taken from the call prep node if the caller
+        // is not main, and reset otherwise; this keeps the facts of a
+        // function's locals from being traced through all the calls in
+        // its callers
+        if (fact.place instanceof Variable) {
+            Variable var = (Variable) fact.place;
+            if (!var.isGlobal() && !var.isSuperGlobal() &&
+                    !var.belongsTo(caller.getSymbolTable())) {
+                if (this.value(Fact.reach(retNode)) == null) {
+                    return null;
+                }
+                if (!caller.isMain() && var.isLocal()) {
+                    return this.value(fact.at(prepNode));
+                }
+                if (this.value(Fact.reach(prepNode)) == null) {
+                    return null;
+                }
+                return fact.get(new DepLatticeElement());
+            }
+        }
+
+        List<Fact> calleeReads = new LinkedList<Fact>();
+        calleeReads.add(fact);
+        if (!caller.isMain() && fact.place instanceof Variable &&
+                ((Variable) fact.place).isLocal()) {
+            for (Variable shadow : this.getShadowOriginals(callee).keySet()) {
+                calleeReads.add(Fact.dep(retNode, shadow));
+                calleeReads.add(Fact.label(retNode, shadow));
+            }
+        }
+        List<Fact> origReads = new LinkedList<Fact>();
+        origReads.add(fact.at(prepNode));
+
+        DepLatticeElement calleeIn = this.makeElement(calleeReads);
+        if (calleeIn == null) {
+            return null;
+        }
+        DepLatticeElement origInfo = this.makeElement(origReads);
+        if (origInfo == null) {
+            // the call is not made
+            return null;
+        }
+        return fact.get(tf.transfer(calleeIn, origInfo));
+    }
+
+//  makeElement ********************************************************************
+
+    // returns an element that maps the given facts to their current values
+    // (and all other places to their defaults); null if one of these values
+    // is still unknown
+    private DepLatticeElement makeElement(List<Fact> facts) {
+        DepLatticeElement retMe = new DepLatticeElement();
+        for (Fact fact : facts) {
+            DepSet dep = this.value(fact);
+            if (dep == null) {
+                return null;
+            }
+            fact.set(retMe, dep);
+        }
+        return retMe;
+    }
+
+//  getEffect **********************************************************************
+
+    private DepBlockEffect getEffect(CfgNode node, TransferFunction tf) {
+        if (tf instanceof DepTfBasicBlock) {
+            return ((DepTfBasicBlock) tf).getEffect(null);
+        }
+        DepBlockEffect effect = this.effects.get(node);
+        if (effect == null) {
+            effect = new DepBlockEffect();
+            ((DepTfInPlace) tf).apply(effect);
+            this.effects.put(node, effect);
+        }
+        return effect;
+    }
+
+//  getShadowOriginals *************************************************************
+
+    // returns the g-shadows and f-shadows of the given function, mapped to
+    // their originals
+    private Map<Variable,Variable> getShadowOriginals(TacFunction function) {
+        Map<Variable,Variable> retMe = this.shadowOriginals.get(function);
+        if (retMe == null) {
+            retMe = new HashMap<Variable,Variable>();
+            for (Map.Entry<Variable,Variable> entry :
+                    function.getSymbolTable().getGlobals2GShadows().entrySet()) {
+                retMe.put(entry.getValue(), entry.getKey());
+            }
+            for (Map.Entry<Variable,Variable> entry :
+                    function.getSymbolTable().getFormals2FShadows().entrySet()) {
+                retMe.put(entry.getValue(), entry.getKey());
+            }
+            this.shadowOriginals.put(function, retMe);
+        }
+        return retMe;
+    }
+
+//  lub ****************************************************************************
+
+    // null: no information (unreachable)
+    static DepSet lub(DepSet dep1, DepSet dep2) {
+        if (dep1 == null) {
+            return dep2;
+        }
+        if (dep2 == null) {
+            return dep1;
+        }
+        return DepSet.lub(dep1, dep2);
+    }
+
+// *********************************************************************************
+// FACTS ***************************************************************************
+// *********************************************************************************
+
+    // the dep of a place (or the array label of a variable) entering a node;
+    // deps that are determined by an array label (see DepLatticeElement.getDep)
+    // are represented by the array label
+    static final class Fact {
+
+        final CfgNode node;
+        final TacPlace place;
+        final boolean label;
+
+        private Fact(CfgNode node, TacPlace place, boolean label) {
+            this.node = node;
+            this.place = place;
+            this.label = label;
+        }
+
+        static Fact dep(CfgNode node, TacPlace place) {
+            if (place instanceof Variable) {
+                Variable var = (Variable) place;
+                if (var.isArrayElement() && var.hasNonLiteralIndices()) {
+                    return new Fact(node, var.getTopEnclosingArray(), true);
+                }
+            }
+            return new Fact(node, place, false);
+        }
+
+        static Fact label(CfgNode node, Variable var) {
+            if (var.isArrayElement()) {
+                var = var.getTopEnclosingArray();
+            }
+            return new Fact(node, var, true);
+        }
+
+        // a fact that only tells whether the node is reachable (the facts
+        // at a node are either all null or all non-null); uses a constant,
+        // which doesn't pull in the facts of other places
+        static Fact reach(CfgNode node) {
+            return new Fact(node, Constant.TRUE, false);
+        }
+
+        // the same place at another node
+        Fact at(CfgNode node) {
+            return new Fact(node, this.place, this.label);
+        }
+
+        DepSet get(DepLatticeElement element) {
+            if (this.label) {
+                return element.getArrayLabel(this.place);
+            } else {
+                return element.getDep(this.place);
+            }
+        }
+
+        void set(DepLatticeElement element, DepSet dep) {
+            if (this.label) {
+                element.setArrayLabel((Variable) this.place, dep);
+            } else {
+                element.setDep(this.place, dep);
+            }
+        }
+
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Fact)) {
+                return false;
+            }
+            Fact comp = (Fact) obj;
+            return this.node == comp.node && this.label == comp.label &&
+                this.place.equals(comp.place);
+        }
+
+        public int hashCode() {
+            int hashCode = 17;
+            hashCode = 37*hashCode + this.node.hashCode();
+            hashCode = 37*hashCode + this.place.hashCode();
+            hashCode = 37*hashCode + (this.label ? 1 : 0);
+            return hashCode;
+        }
+    }
+
+    // the current dep of a pending fact and the facts that read it
+    static final class Slot {
+        DepSet dep;
+        boolean queued;
+        Set<Fact> users = new HashSet<Fact>();
+    }
+}
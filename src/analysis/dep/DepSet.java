@@ -9,7 +9,9 @@ import analysis.Recyclable;
 public class DepSet 
 implements Recyclable {
 
-    public static GenericRepos<DepSet> repos = new GenericRepos<DepSet>();
+    // weak: dep sets outlive single analyses (e.g., during batch scans)
+    public static GenericRepos<DepSet> repos = 
+        new GenericRepos<DepSet>(GenericRepos.WEAK);
     
     // no special treatment necessary for the following:
     static public final DepSet UNINIT = new DepSet(Dep.UNINIT);
@@ -73,6 +75,13 @@ implements Recyclable {
         return DepSet.create(resultSet);
     }
     
+//  ********************************************************************************
+    
+    // is a a subset of b?
+    public static boolean lessOrEqual(DepSet a, DepSet b) {
+        return a == b || b.depSet.containsAll(a.depSet);
+    }
+    
 //  ********************************************************************************
     
     public String toString() {
@@ -0,0 +1,83 @@
+package analysis.dep;
+
+import java.util.*;
+
+import conversion.TacFunction;
+import conversion.TacPlace;
+import conversion.Variable;
+
+// summary key for DepAnalysis (see InterAnalysis.getSummaryKey):
+// the deps and array labels of those places at a call node that can
+// influence the callee's exit value as seen by the call return node
+class DepSummaryKey {
+
+    private TacFunction callee;
+    private DepSet[] deps;
+    private DepSet[] labels;
+    private int hashCode;
+
+//  ********************************************************************************
+//  CONSTRUCTORS *******************************************************************
+//  ********************************************************************************
+
+    DepSummaryKey(TacFunction callee, DepLatticeElement element, List<TacPlace> places) {
+        this.callee = callee;
+        this.deps = new DepSet[places.size()];
+        this.labels = new DepSet[places.size()];
+        int i = 0;
+        for (TacPlace place : places) {
+            this.deps[i] = element.getDep(place);
+            if (place instanceof Variable) {
+                this.labels[i] = element.getArrayLabel(place);
+            }
+            i++;
+        }
+
+        int hashCode = 17;
+        hashCode = 37*hashCode + this.callee.hashCode();
+        for (i = 0; i < this.deps.length; i++) {
+            hashCode = 37*hashCode + structureHashCode(this.deps[i]);
+            hashCode = 37*hashCode + structureHashCode(this.labels[i]);
+        }
+        this.hashCode = hashCode;
+    }
+
+//  ********************************************************************************
+//  OTHER **************************************************************************
+//  ********************************************************************************
+
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof DepSummaryKey)) {
+            return false;
+        }
+        DepSummaryKey comp = (DepSummaryKey) obj;
+        if (this.hashCode != comp.hashCode || !this.callee.equals(comp.callee)) {
+            return false;
+        }
+        for (int i = 0; i < this.deps.length; i++) {
+            if (!structureEquals(this.deps[i], comp.deps[i]) || 
+                    !structureEquals(this.labels[i], comp.labels[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean structureEquals(DepSet d1, DepSet d2) {
+        if (d1 == null) {
+            return d2 == null;
+        }
+        return d1.structureEquals(d2);
+    }
+
+    private static int structureHashCode(DepSet d) {
+        return (d == null ? 0 : d.structureHashCode());
+    }
+
+    public int hashCode() {
+        return this.hashCode;
+    }
+}
@@ -0,0 +1,436 @@
+package analysis.dep;
+
+import java.util.*;
+
+import analysis.inter.Context;
+import analysis.inter.ifds.IfdsAnalysis;
+import analysis.inter.ifds.IfdsContext;
+import conversion.Cfg;
+import conversion.TacFunction;
+import conversion.nodes.CfgNode;
+import conversion.nodes.CfgNodeCall;
+import conversion.nodes.CfgNodeCallPrep;
+import conversion.nodes.CfgNodeCallRet;
+
+// context-sensitive variant of DepQuery, following the tabulation algorithm
+// of Reps, Horwitz and Sagiv for IFDS problems (see IfdsAnalysis);
+// the dep facts of a function are first computed relative to the function's
+// entry: the head of a function other than main yields a placeholder label
+// for each place instead of combining the deps at the call nodes, so that the
+// value of a fact is the set of deps that the fact receives on all paths from
+// the entry (i.e., the path edges starting at the 0-fact), plus the
+// placeholders of the entry facts that reach it (i.e., the remaining path
+// edges); since dep facts are always passed on as a whole, this represents
+// all path edges of the exploded supergraph that end in the fact;
+// the path edges at the exit node of a function are its summary edges; a
+// call return node applies them by replacing the callee's placeholders with
+// the deps at the call node, so they are computed once and reused for all
+// calls of the function (instead of once for each call string);
+// finally, a query resolves the placeholders with the deps that enter the
+// function under the query's context (see IfdsContext): through the call
+// that entered the function's recursion, and through the recursive calls
+// (or, under the empty context, through all calls of the function); the
+// effect of the recursive calls is again tabulated relative to the entry
+// of the function that was entered, so that it is shared by all contexts;
+// in contrast to DepQuery, deps never flow from the exit of a function to
+// a call that didn't provide them
+public class DepTabulation
+extends DepQuery {
+
+    private IfdsAnalysis analysisType;
+
+    // entry facts of functions <-> their placeholders
+    private Map<DepQuery.Fact,Dep> placeholders;
+    private Map<Dep,DepQuery.Fact> placeheld;
+
+    // resolved entry facts -> dep (null: the function is not reachable);
+    // under the empty context
+    private Map<DepQuery.Fact,DepSet> entrySolved;
+
+    // function that is entered from outside its strongly connected
+    // component -> entry facts of the component's functions -> dep relative
+    // to the entry of the entered function (null: the function can't be
+    // reached from the entered one)
+    private Map<TacFunction,Map<DepQuery.Fact,DepSet>> relativeSolved;
+
+    // context -> fact -> resolved dep (see resolve)
+    private Map<IfdsContext,Map<DepQuery.Fact,DepSet>> resolved;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    public DepTabulation(DepAnalysis depAnalysis, IfdsAnalysis analysisType) {
+        super(depAnalysis);
+        this.analysisType = analysisType;
+        this.placeholders = new HashMap<DepQuery.Fact,Dep>();
+        this.placeheld = new HashMap<Dep,DepQuery.Fact>();
+        this.entrySolved = new HashMap<DepQuery.Fact,DepSet>();
+        this.relativeSolved = new HashMap<TacFunction,Map<DepQuery.Fact,DepSet>>();
+        this.resolved = new HashMap<IfdsContext,Map<DepQuery.Fact,DepSet>>();
+    }
+
+// *********************************************************************************
+// GET *****************************************************************************
+// *********************************************************************************
+
+//  getStartContexts ***************************************************************
+
+    // the start node of a dependency graph can be reached under any context
+    public Set<Context> getStartContexts() {
+        return Collections.<Context>singleton(IfdsContext.EMPTY);
+    }
+
+//  switchContexts *****************************************************************
+
+    // the dependency graph enters a callee at call return nodes, and leaves
+    // it at the call prep nodes that assign the formals; contexts only change
+    // if these calls cross strongly connected components of the call graph;
+    // if the target node is in another function for some other reason (e.g.,
+    // a global that was modified there), it can be reached under any context
+    public Set<Context> switchContexts(TacFunction function, Set<Context> contexts,
+            CfgNode current, CfgNode targetNode) {
+
+        TacFunction targetFunction = Cfg.getFunction(targetNode);
+        Set<Context> retMe = new HashSet<Context>();
+
+        if (current instanceof CfgNodeCallRet &&
+                ((CfgNodeCallRet) current).getCallNode().getCallee() == targetFunction) {
+            if (this.analysisType.sameScc(function, targetFunction)) {
+                return contexts;
+            }
+            CfgNodeCall callNode = ((CfgNodeCallRet) current).getCallNode();
+            for (Context c : contexts) {
+                retMe.add(((IfdsContext) c).push(callNode));
+            }
+
+        } else if (targetNode instanceof CfgNodeCallPrep) {
+            if (this.analysisType.sameScc(function, targetFunction)) {
+                return contexts;
+            }
+            CfgNodeCall callNode = (CfgNodeCall) targetNode.getSuccessor(0);
+            for (Context c : contexts) {
+                IfdsContext context = (IfdsContext) c;
+                if (context.isEmpty()) {
+                    retMe.add(context);
+                } else if (context.getCallNode() == callNode) {
+                    retMe.add(context.getParent());
+                }
+            }
+
+        } else if (targetFunction == function) {
+            return contexts;
+        }
+
+        if (retMe.isEmpty()) {
+            retMe.add(IfdsContext.EMPTY);
+        }
+        return retMe;
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+//  solveIn ************************************************************************
+
+    // computes the given fact under each of the given contexts
+    DepSet solveIn(DepQuery.Fact fact, Set<Context> contexts) {
+        DepSet retMe = null;
+        for (Context context : contexts) {
+            retMe = lub(retMe, this.resolve(fact, (IfdsContext) context));
+        }
+        return retMe;
+    }
+
+//  resolve ************************************************************************
+
+    // computes the path edges that end in the given fact and resolves them
+    // under the given context
+    private DepSet resolve(DepQuery.Fact fact, IfdsContext context) {
+        Map<DepQuery.Fact,DepSet> resolved = this.resolved.get(context);
+        if (resolved == null) {
+            resolved = new HashMap<DepQuery.Fact,DepSet>();
+            this.resolved.put(context, resolved);
+        }
+        if (resolved.containsKey(fact)) {
+            return resolved.get(fact);
+        }
+        DepSet retMe = this.resolveUncached(fact, context);
+        resolved.put(fact, retMe);
+        return retMe;
+    }
+
+    // the same without looking up earlier results; the context's call can
+    // only be resolved under the parent context, so there are no cycles
+    private DepSet resolveUncached(DepQuery.Fact fact, IfdsContext context) {
+
+        DepSet pathEdges = this.solve(fact);
+        if (pathEdges == null) {
+            return null;
+        }
+
+        TacFunction function = Cfg.getFunction(fact.node);
+        if (function.isMain()) {
+            // main starts with the start value, not with placeholders
+            return pathEdges;
+        }
+
+        // if the context doesn't refer to the function's component, the
+        // function can be entered through any call
+        CfgNodeCall callNode = null;
+        TacFunction entered = null;
+        if (!context.isEmpty() && this.analysisType.sameScc(
+                context.getCallNode().getCallee(), function)) {
+            callNode = context.getCallNode();
+            entered = callNode.getCallee();
+        }
+
+        // is the function reachable at all?
+        if (this.solveEntry(DepQuery.Fact.reach(function.getCfg().getHead()), entered) == null) {
+            return null;
+        }
+        if (callNode != null && this.resolve(DepQuery.Fact.reach(callNode), context.getParent()) == null) {
+            return null;
+        }
+
+        Set<Dep> resolved = new HashSet<Dep>();
+        for (Dep dep : pathEdges.getDepSet()) {
+            DepQuery.Fact entryFact = this.placeheld.get(dep);
+            if (entryFact == null) {
+                resolved.add(dep);
+                continue;
+            }
+            DepSet entryDep = this.solveEntry(entryFact, entered);
+            if (entryDep == null) {
+                return null;
+            }
+            if (callNode == null) {
+                resolved.addAll(entryDep.getDepSet());
+                continue;
+            }
+            // relative to the entered function: take the placeholders of
+            // its entry facts from the call
+            for (Dep relDep : entryDep.getDepSet()) {
+                DepQuery.Fact enteredFact = this.placeheld.get(relDep);
+                if (enteredFact == null) {
+                    resolved.add(relDep);
+                    continue;
+                }
+                DepSet callDep = this.resolve(enteredFact.at(callNode), context.getParent());
+                if (callDep == null) {
+                    return null;
+                }
+                resolved.addAll(callDep.getDepSet());
+            }
+        }
+        return DepSet.create(resolved);
+    }
+
+//  evalEntry **********************************************************************
+
+    // path edges start at the entry facts (instead of combining the deps at
+    // the call nodes)
+    DepSet evalEntry(DepQuery.Fact fact, TacFunction function) {
+        return DepSet.create(this.getPlaceholder(fact));
+    }
+
+    private Dep getPlaceholder(DepQuery.Fact fact) {
+        Dep placeholder = this.placeholders.get(fact);
+        if (placeholder == null) {
+            placeholder = Dep.createPlaceholder();
+            this.placeholders.put(fact, placeholder);
+            this.placeheld.put(placeholder, fact);
+        }
+        return placeholder;
+    }
+
+//  evalCallRet ********************************************************************
+
+    // applies the callee's summary edges to the deps at the call node
+    DepSet evalCallRet(DepQuery.Fact fact, CfgNodeCall callNode, TacFunction callee) {
+
+        DepSet summary = this.value(fact.at(callee.getCfg().getTail()));
+        if (summary == null) {
+            return null;
+        }
+
+        Set<Dep> retMe = new HashSet<Dep>();
+        for (Dep dep : summary.getDepSet()) {
+            DepQuery.Fact entryFact = this.placeheld.get(dep);
+            if (entryFact == null) {
+                retMe.add(dep);
+                continue;
+            }
+            DepSet actual = this.value(entryFact.at(callNode));
+            if (actual == null) {
+                return null;
+            }
+            retMe.addAll(actual.getDepSet());
+        }
+        return DepSet.create(retMe);
+    }
+
+//  solveEntry *********************************************************************
+
+    // resolves the given entry fact, i.e., computes the dep that it receives
+    // from the calls of its function (which requires the entry facts of the
+    // calling functions, and so on); if the entered function is not null, only
+    // the calls inside its component are considered, starting with the
+    // placeholders at the entry of the entered function
+    private DepSet solveEntry(DepQuery.Fact fact, TacFunction entered) {
+        Map<DepQuery.Fact,DepSet> solved;
+        if (entered == null) {
+            solved = this.entrySolved;
+        } else {
+            solved = this.relativeSolved.get(entered);
+            if (solved == null) {
+                solved = new HashMap<DepQuery.Fact,DepSet>();
+                this.relativeSolved.put(entered, solved);
+            }
+        }
+        if (solved.containsKey(fact)) {
+            return solved.get(fact);
+        }
+        return new EntrySolver(entered, solved).solve(fact);
+    }
+
+// *********************************************************************************
+// ENTRY SOLVER ********************************************************************
+// *********************************************************************************
+
+    // resolves entry facts (see solveEntry), analogous to the computation of
+    // path edges in DepQuery
+    private final class EntrySolver {
+
+        private TacFunction entered;
+        private Map<DepQuery.Fact,DepSet> solved;
+
+        private Map<DepQuery.Fact,DepQuery.Slot> pending;
+        private LinkedList<DepQuery.Fact> workList;
+        private DepQuery.Fact current;
+
+        EntrySolver(TacFunction entered, Map<DepQuery.Fact,DepSet> solved) {
+            this.entered = entered;
+            this.solved = solved;
+            this.pending = new HashMap<DepQuery.Fact,DepQuery.Slot>();
+            this.workList = new LinkedList<DepQuery.Fact>();
+        }
+
+        DepSet solve(DepQuery.Fact fact) {
+
+            this.value(fact);
+
+            while (!this.workList.isEmpty()) {
+                DepQuery.Fact evalMe = this.workList.removeLast();
+                DepQuery.Slot slot = this.pending.get(evalMe);
+                slot.queued = false;
+
+                this.current = evalMe;
+                DepSet newDep = this.eval(evalMe);
+                if (newDep == null) {
+                    continue;
+                }
+                if (slot.dep != null) {
+                    newDep = DepSet.lub(slot.dep, newDep);
+                }
+                if (newDep.equals(slot.dep)) {
+                    continue;
+                }
+                slot.dep = newDep;
+                for (DepQuery.Fact user : slot.users) {
+                    this.schedule(user);
+                }
+            }
+
+            for (Map.Entry<DepQuery.Fact,DepQuery.Slot> entry : this.pending.entrySet()) {
+                this.solved.put(entry.getKey(), entry.getValue().dep);
+            }
+            return this.solved.get(fact);
+        }
+
+        private DepSet value(DepQuery.Fact fact) {
+
+            if (this.solved.containsKey(fact)) {
+                return this.solved.get(fact);
+            }
+            DepQuery.Slot slot = this.pending.get(fact);
+            if (slot == null) {
+                slot = new DepQuery.Slot();
+                this.pending.put(fact, slot);
+                this.schedule(fact);
+            }
+            if (this.current != null) {
+                slot.users.add(this.current);
+            }
+            return slot.dep;
+        }
+
+        private void schedule(DepQuery.Fact fact) {
+            DepQuery.Slot slot = this.pending.get(fact);
+            if (!slot.queued) {
+                slot.queued = true;
+                this.workList.add(fact);
+            }
+        }
+
+        // combines the resolved deps of the given entry fact at the calls of
+        // its function
+        private DepSet eval(DepQuery.Fact fact) {
+
+            TacFunction function = Cfg.getFunction(fact.node);
+            DepSet retMe = null;
+
+            if (function == this.entered) {
+                retMe = DepSet.create(getPlaceholder(fact));
+            }
+
+            for (CfgNodeCall callNode : function.getCalledFrom()) {
+                if (callNode.getCallee() != function) {
+                    continue;
+                }
+                TacFunction caller = Cfg.getFunction(callNode);
+                if (this.entered != null &&
+                        !analysisType.sameScc(caller, function)) {
+                    continue;
+                }
+                DepSet pathEdges = DepTabulation.this.solve(fact.at(callNode));
+                if (pathEdges == null) {
+                    continue;
+                }
+                if (!caller.isMain()) {
+                    pathEdges = this.apply(pathEdges, caller);
+                    if (pathEdges == null) {
+                        continue;
+                    }
+                }
+                retMe = lub(retMe, pathEdges);
+            }
+
+            return retMe;
+        }
+
+        // replaces the placeholders in the given path edges of the given
+        // function by the deps of the corresponding entry facts; null if the
+        // function is not reachable, or if one of these is still unknown
+        private DepSet apply(DepSet pathEdges, TacFunction function) {
+            if (this.value(DepQuery.Fact.reach(function.getCfg().getHead())) == null) {
+                return null;
+            }
+            Set<Dep> retMe = new HashSet<Dep>();
+            for (Dep dep : pathEdges.getDepSet()) {
+                DepQuery.Fact entryFact = placeheld.get(dep);
+                if (entryFact == null) {
+                    retMe.add(dep);
+                    continue;
+                }
+                DepSet actual = this.value(entryFact);
+                if (actual == null) {
+                    return null;
+                }
+                retMe.addAll(actual.getDepSet());
+            }
+            return DepSet.create(retMe);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package analysis.dep;
+
+import conversion.TacPlace;
+import conversion.Variable;
+
+// the target of the transfer functions for nodes inside basic blocks (see
+// DepUpdates): they modify it only through strong and weak updates of deps
+// and array labels, which lattice elements perform directly and block
+// effects record (see DepBlockEffect)
+public interface DepUpdateSink {
+
+    // strong update of the dep of the given place
+    void setDep(TacPlace place, DepSet depSet);
+
+    // weak update of the dep of the given place
+    void lubDep(TacPlace place, DepSet depSet);
+
+    // strong update of the array label of the given (non-array-element) variable
+    void setArrayLabel(Variable var, DepSet depSet);
+
+    // weak update of the array label of the given variable
+    void lubArrayLabel(Variable var, DepSet depSet);
+}
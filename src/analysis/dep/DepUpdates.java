@@ -0,0 +1,253 @@
+package analysis.dep;
+
+import java.util.*;
+
+import conversion.Constant;
+import conversion.Literal;
+import conversion.TacPlace;
+import conversion.Variable;
+import conversion.nodes.CfgNode;
+
+// the updates performed by the transfer functions for nodes inside basic
+// blocks; they only go through the four methods of DepUpdateSink, so they
+// can be applied to lattice elements as well as recorded by block effects
+public final class DepUpdates {
+
+    private DepUpdates() {
+    }
+
+//  ********************************************************************************
+//  OTHER **************************************************************************
+//  ********************************************************************************
+
+//  assign *************************************************************************
+
+    // mustAliases and mayAliases: of left; mustAliases always have to 
+    // include left itself
+    public static void assign(DepUpdateSink target, Variable left, 
+            Set<?> mustAliases, Set<?> mayAliases, CfgNode cfgNode) {
+        
+        // dep to be assigned to the left side
+        DepSet dep = DepSet.create(Dep.create(cfgNode));
+
+        // case distinguisher for the left variable
+        int leftCase;
+        //Please God
+        if(left==null)
+        	return;
+        
+        // find out more about the left variable
+        if (!left.isArrayElement()) {
+            // left: not an array element
+            if (!left.isArray()) {
+                // left: neither an array nor an array element
+                leftCase = 1;
+            } else {
+                // left: an array that is not an array element
+                leftCase = 2;
+            }
+        } else {
+            // left: array element
+            if (!left.hasNonLiteralIndices()) {
+                // left: literal array element
+                leftCase = 3;
+            } else {
+                // left: non-literal array element
+                leftCase = 4;
+            }
+        }
+
+        // take appropariate actions
+        switch (leftCase) {
+        
+        // not an array element and not known as array ("normal variable")
+        case 1:
+        {
+            // strong update for must-aliases (including left itself)
+            for (Object mustAliasX : mustAliases) {
+                Variable mustAlias = (Variable) mustAliasX;
+                
+                target.setDep(mustAlias, dep);
+                target.setArrayLabel(mustAlias, dep);
+            }
+            
+            // weak update for may-aliases
+            for (Object mayAliasX : mayAliases) {
+                Variable mayAlias = (Variable) mayAliasX;
+                target.lubDep(mayAlias, dep);
+                target.lubArrayLabel(mayAlias, dep);
+            }
+
+            break;
+        }
+
+        // array, but not an array element 
+        case 2:
+        {
+            // set target.caFlag
+            target.setArrayLabel(left, dep);
+            
+            // no strong overlap here, but: set the whole subtree to resultDep
+            setWholeTree(target, left, dep);
+            break;
+        }
+            
+        // array element (and maybe an array) without non-literal indices
+        case 3:
+        {
+            // lub target.root.caFlag
+            target.lubArrayLabel(left.getTopEnclosingArray(), dep);
+            
+            // no strong overlap here, but: set the whole subtree to resultDep
+            setWholeTree(target, left, dep);
+            break;
+        }
+            
+        // array element (and maybe an array) with non-literal indices
+        case 4:
+        {
+            // lub target.root.caFlag
+            target.lubArrayLabel(left.getTopEnclosingArray(), dep);
+
+            // "weak overlap for all MI variables of left"
+            // here: lub the whole subtrees of all MI variables of left
+            for (Variable miVar : getMiList(left)) {
+                lubWholeTree(target, miVar, dep);
+            }
+            break;
+        }
+
+        default:
+            throw new RuntimeException("SNH");
+        }
+    }
+
+//  defineConstant *****************************************************************
+
+    // sets the dep of the given constant
+    public static void defineConstant(DepUpdateSink target, Constant c, CfgNode cfgNode) {
+        target.setDep(c, DepSet.create(Dep.create(cfgNode)));
+    }
+
+//  defineConstantWeak *************************************************************
+
+    // lubs the taint of the given constant
+    public static void defineConstantWeak(DepUpdateSink target, Constant c, CfgNode cfgNode) {
+        target.lubDep(c, DepSet.create(Dep.create(cfgNode)));
+    }
+
+//  handleReturnValueBuiltin *******************************************************
+
+    public static void handleReturnValueBuiltin(DepUpdateSink target, Variable tempVar,
+            DepSet dep, DepSet arrayLabel) {
+
+        setWholeTree(target, tempVar, dep);
+        target.setArrayLabel(tempVar, arrayLabel);
+    }
+
+// setWholeTree ********************************************************************
+    
+    // sets the dep for all literal array elements in the
+    // tree sepcified by the given root, INCLUDING THE ROOT
+    static void setWholeTree(DepUpdateSink target, Variable root, DepSet depSet) {
+        
+        target.setDep(root, depSet);
+        if (!root.isArray()) {
+            return;
+        }
+        for (Variable element : root.getLiteralElements()) {
+            setWholeTree(target, element, depSet);
+        }
+    }
+
+//  lubWholeTree ************************************************************************
+    
+    // analogous to setWholeTree
+    static void lubWholeTree(DepUpdateSink target, Variable root, DepSet depSet) {
+        
+        target.lubDep(root, depSet);
+        if (!root.isArray()) {
+            return;
+        }
+        for (Variable element : root.getLiteralElements()) {
+            lubWholeTree(target, element, depSet);
+        }
+    }
+
+// getMiList ***********************************************************************
+    
+    // returns a list of array elements that are maybe identical
+    // to the given array element; only array elements without
+    // non-literal indices are returned
+    private static List<Variable> getMiList(Variable var) {
+        
+        if (!var.isArrayElement()) {
+            throw new RuntimeException("SNH");
+        }
+        if (!var.hasNonLiteralIndices()) {
+            throw new RuntimeException("SNH");
+        }
+
+        // the list to be returned (contains Variables)
+        List<Variable> miList = new LinkedList<Variable>();
+        
+        // root of the array tree, indices of the array element
+        Variable root = var.getTopEnclosingArray();
+        List<TacPlace> indices = var.getIndices();
+        
+        miRecurse(miList, root, new LinkedList<TacPlace>(indices));
+        return miList;
+    }
+    
+// miRecurse ***********************************************************************
+    
+    // CAUTION: the indices list is modified inside this method, so you might
+    // want to pass a shallow copy instead of a reference to the list
+    private static void miRecurse(List<Variable> miList, Variable root, List<TacPlace> indices) {
+        /*
+         * - separate head from the indices list
+         * - if this first index is literal:
+         *   - if the remaining indices list is empty:
+         *     add the target array element to the miList
+         *   - else: recurse with target array element and
+         *     the remaining list
+         * - else (first index is non-literal):
+         *   - if the remaining indices list is empty:
+         *     add all literal array elements to the miList
+         *   - else: recurse for all literal array elements and
+         *     <<a copy>> of the remaining indices list: otherwise,
+         *     the different branches would operate on the same
+         *     indices list  
+         * 
+         */
+
+        // proceeding only makes sense if the considered root has known
+        // array elements
+        if (!root.isArray()) {
+            return;
+        }
+        
+        TacPlace index = indices.remove(0);
+        if (index instanceof Literal) {
+            
+            Variable target = root.getElement(index);
+            // it is possible that the considered array doesn't have this index
+            if (target != null) {
+                if (indices.isEmpty()) {
+                    miList.add(target);
+                } else {
+                    miRecurse(miList, target, indices);
+                }
+            }
+        } else {
+            List<Variable> literalElements = root.getLiteralElements();
+            if (indices.isEmpty()) {
+                miList.addAll(literalElements);
+            } else {
+                for (Variable target : literalElements) {
+                    miRecurse(miList, target, new LinkedList<TacPlace>(indices));
+                }
+            }
+        }
+    }
+}
@@ -2,16 +2,15 @@ package analysis.dep.tf;
 
 import java.util.Set;
 
-import analysis.LatticeElement;
-import analysis.TransferFunction;
-import analysis.dep.DepLatticeElement;
+import analysis.dep.DepUpdateSink;
+import analysis.dep.DepUpdates;
 import conversion.TacPlace;
 import conversion.Variable;
 import conversion.nodes.CfgNode;
 
 // transfer function for simple assignment nodes
 public class DepTfAssignSimple
-extends TransferFunction {
+extends DepTfInPlace {
 
     private Variable left;
     private Set mustAliases;
@@ -36,16 +35,11 @@ extends TransferFunction {
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
-    public LatticeElement transfer(LatticeElement inX) {
+    public void apply(DepUpdateSink out) {
 
         //System.out.println("assignsimple: " + left + " = " + right);
-        
-        DepLatticeElement in = (DepLatticeElement) inX;
-        DepLatticeElement out = new DepLatticeElement(in);
 
-        // let the lattice element handle the details
-        out.assign(left, mustAliases, mayAliases, cfgNode);
-        
-        return out;
+        // let DepUpdates handle the details
+        DepUpdates.assign(out, left, mustAliases, mayAliases, cfgNode);
     }
 }
@@ -2,16 +2,15 @@ package analysis.dep.tf;
 
 import java.util.*;
 
-import analysis.LatticeElement;
-import analysis.TransferFunction;
-import analysis.dep.DepLatticeElement;
+import analysis.dep.DepUpdateSink;
+import analysis.dep.DepUpdates;
 import conversion.TacPlace;
 import conversion.Variable;
 import conversion.nodes.CfgNode;
 
 // transfer function for unary assignment nodes
 public class DepTfAssignUnary
-extends TransferFunction {
+extends DepTfInPlace {
 
     private Variable left;
     private TacPlace right;
@@ -40,14 +39,9 @@ extends TransferFunction {
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
-    public LatticeElement transfer(LatticeElement inX) {
+    public void apply(DepUpdateSink out) {
 
-        DepLatticeElement in = (DepLatticeElement) inX;
-        DepLatticeElement out = new DepLatticeElement(in);
-
-        // let the lattice element handle the details
-        out.assign(left, mustAliases, mayAliases, cfgNode);
-        
-        return out;
+        // let DepUpdates handle the details
+        DepUpdates.assign(out, left, mustAliases, mayAliases, cfgNode);
     }
 }
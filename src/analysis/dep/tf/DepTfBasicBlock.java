@@ -0,0 +1,88 @@
+package analysis.dep.tf;
+
+import java.util.*;
+
+import analysis.CompositeTransferFunction;
+import analysis.LatticeElement;
+import analysis.TransferFunction;
+import analysis.TransferFunctionId;
+import analysis.dep.DepBlockEffect;
+import analysis.dep.DepLatticeElement;
+import conversion.nodes.CfgNode;
+import conversion.nodes.CfgNodeBasicBlock;
+
+// transfer function for basic blocks: the contained transfer functions are
+// compiled into a single DepBlockEffect on first use, which is then applied
+// to a single copy of the incoming value; the effects of prefixes of the
+// block (required by DepGraph) are compiled and cached on demand
+public class DepTfBasicBlock
+extends CompositeTransferFunction {
+
+    private CfgNodeBasicBlock basicBlock;
+
+    // effect of the whole block (null: not compiled yet)
+    private DepBlockEffect effect;
+
+    // contained node -> effect of the nodes before it
+    private Map<CfgNode,DepBlockEffect> prefixEffects;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    public DepTfBasicBlock(CfgNodeBasicBlock basicBlock) {
+        this.basicBlock = basicBlock;
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+    public LatticeElement transfer(LatticeElement inX) {
+        if (this.effect == null) {
+            this.effect = this.compile(null);
+        }
+        DepLatticeElement out = new DepLatticeElement((DepLatticeElement) inX);
+        this.effect.applyTo(out);
+        return out;
+    }
+
+//  getEffect **********************************************************************
+
+    // returns the effect of the contained nodes before the given node
+    // (i.e., the transfer function of this node is NOT included)
+    public DepBlockEffect getEffect(CfgNode untilHere) {
+        if (this.prefixEffects == null) {
+            this.prefixEffects = new HashMap<CfgNode,DepBlockEffect>();
+        }
+        DepBlockEffect prefixEffect = this.prefixEffects.get(untilHere);
+        if (prefixEffect == null) {
+            prefixEffect = this.compile(untilHere);
+            this.prefixEffects.put(untilHere, prefixEffect);
+        }
+        return prefixEffect;
+    }
+
+//  compile ************************************************************************
+
+    private DepBlockEffect compile(CfgNode untilHere) {
+
+        DepBlockEffect compiled = new DepBlockEffect();
+        Iterator<CfgNode> nodesIter = this.basicBlock.getContainedNodes().iterator();
+        Iterator<?> tfIter = this.iterator();
+
+        while (nodesIter.hasNext() && tfIter.hasNext()) {
+            CfgNode node = nodesIter.next();
+            TransferFunction tf = (TransferFunction) tfIter.next();
+            if (node == untilHere) {
+                break;
+            }
+            if (tf instanceof DepTfInPlace) {
+                ((DepTfInPlace) tf).apply(compiled);
+            } else if (!(tf instanceof TransferFunctionId)) {
+                throw new RuntimeException("SNH: " + tf.getClass());
+            }
+        }
+        return compiled;
+    }
+}
@@ -1,15 +1,14 @@
 package analysis.dep.tf;
 
 import java.util.*;
-import analysis.LatticeElement;
-import analysis.TransferFunction;
 import analysis.dep.Dep;
-import analysis.dep.DepLatticeElement;
+import analysis.dep.DepUpdateSink;
+import analysis.dep.DepUpdates;
 import analysis.dep.DepSet;
 import conversion.nodes.CfgNodeCallBuiltin;
 
 public class DepTfCallBuiltin
-extends TransferFunction {
+extends DepTfInPlace {
 
     private CfgNodeCallBuiltin cfgNode;
     
@@ -25,11 +24,8 @@ extends TransferFunction {
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
-    public LatticeElement transfer(LatticeElement inX) {
-        
-        DepLatticeElement in = (DepLatticeElement) inX;
-        DepLatticeElement out = new DepLatticeElement(in);
-        
+    public void apply(DepUpdateSink out) {
+
         // create an appropariate taint value (holding the function's name);
         // the array label is identic to the taint value
         Set<Dep> ets = new HashSet<Dep>();
@@ -38,10 +34,7 @@ extends TransferFunction {
         DepSet retArrayLabel = retDepSet;
         
         // assign this taint/label to the node's temporary
-        out.handleReturnValueBuiltin(this.cfgNode.getTempVar(), retDepSet, retArrayLabel);
-
-        return out;
-        
+        DepUpdates.handleReturnValueBuiltin(out, this.cfgNode.getTempVar(), retDepSet, retArrayLabel);
     }
 
 }
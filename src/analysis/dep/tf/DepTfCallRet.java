@@ -80,6 +80,22 @@ extends TransferFunction {
         // still contains the callee's locals
         DepLatticeElement calleeIn = (DepLatticeElement) inX;
 
+        return this.transfer(calleeIn, origInfo);
+    }
+
+//  getCalleeMod *******************************************************************
+
+    // MOD-info for the callee (null if not available)
+    public Set<TacPlace> getCalleeMod() {
+        return this.calleeMod;
+    }
+
+//  transfer ***********************************************************************
+
+    // combines the given values at the callee's exit and at the call prep node
+    // (also used by DepQuery, which provides these values itself)
+    public DepLatticeElement transfer(DepLatticeElement calleeIn, DepLatticeElement origInfo) {
+
         // start only with default mappings
         DepLatticeElement outInfo = new DepLatticeElement();
 
@@ -2,8 +2,6 @@ package analysis.dep.tf;
 
 import java.util.*;
 
-import analysis.LatticeElement;
-import analysis.TransferFunction;
 import analysis.dep.*;
 import analysis.literal.LiteralAnalysis;
 import conversion.Constant;
@@ -14,7 +12,7 @@ import conversion.nodes.CfgNode;
 import conversion.nodes.CfgNodeDefine;
 
 public class DepTfDefine 
-extends TransferFunction {
+extends DepTfInPlace {
 
     private TacPlace setMe;
     //private TacPlace setTo;
@@ -43,10 +41,7 @@ extends TransferFunction {
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
-    public LatticeElement transfer(LatticeElement inX) {
-        
-        DepLatticeElement in = (DepLatticeElement) inX;
-        DepLatticeElement out = new DepLatticeElement(in);
+    public void apply(DepUpdateSink out) {
 
         // retrieve the literal of the constant to be set
         Literal constantLit;
@@ -67,7 +62,7 @@ extends TransferFunction {
             // warning was already issued by literals analysis
             //System.out.println("Warning: can't resolve constant to be defined");
             //System.out.println("- " + cfgNode.getFileName() + ":" + cfgNode.getOrigLineno()); 
-            return out;
+            return;
         }
 
         // retrieve the taint that the constant shall be set to
@@ -82,7 +77,7 @@ extends TransferFunction {
             if (insensGroup != null) {
                 for (Iterator<?> iter = insensGroup.iterator(); iter.hasNext();) {
                     Constant constant = (Constant) iter.next();
-                    out.defineConstant(constant, this.cfgNode);
+                    DepUpdates.defineConstant(out, constant, this.cfgNode);
                 }
             } else {
                 // this case happens when the user defines a constant which is never
@@ -102,7 +97,7 @@ extends TransferFunction {
                 System.out.println("- name:    " + constantLit.toString());
                 System.out.println("- defined: " + this.cfgNode.getLoc());
             } else {
-                out.defineConstant(constant, this.cfgNode);
+                DepUpdates.defineConstant(out, constant, this.cfgNode);
             }
 
         } else {
@@ -118,7 +113,7 @@ extends TransferFunction {
                 System.out.println("- name:    " + constantLit.toString());
                 System.out.println("- defined: " + this.cfgNode.getLoc());
             } else {
-                out.defineConstant(constant, this.cfgNode);
+                DepUpdates.defineConstant(out, constant, this.cfgNode);
             }
 
             // all constants in setMe's insensitivity group have to undergo a weak update
@@ -128,7 +123,7 @@ extends TransferFunction {
                 for (Iterator<?> iter = insensGroup.iterator(); iter.hasNext();) {
                     Constant weakConstant = (Constant) iter.next();
                     if (!weakConstant.equals(constant)) {
-                        out.defineConstantWeak(weakConstant, this.cfgNode);
+                        DepUpdates.defineConstantWeak(out, weakConstant, this.cfgNode);
                     }
                 }
             } else {
@@ -140,8 +135,6 @@ extends TransferFunction {
             }
 
         }
-        
-        return out;
     }
 
 
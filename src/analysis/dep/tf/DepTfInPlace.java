@@ -0,0 +1,22 @@
+package analysis.dep.tf;
+
+import analysis.LatticeElement;
+import analysis.TransferFunction;
+import analysis.dep.DepLatticeElement;
+import analysis.dep.DepUpdateSink;
+
+// base class for transfer functions that can appear inside basic blocks:
+// they modify a given update sink (a lattice element, or a block effect that
+// records the updates) in place, without depending on the incoming value
+public abstract class DepTfInPlace
+extends TransferFunction {
+
+    // applies this transfer function to the given sink (in place)
+    public abstract void apply(DepUpdateSink out);
+
+    public LatticeElement transfer(LatticeElement inX) {
+        DepLatticeElement out = new DepLatticeElement((DepLatticeElement) inX);
+        this.apply(out);
+        return out;
+    }
+}
@@ -2,9 +2,8 @@ package analysis.dep.tf;
 
 import java.util.*;
 
-import analysis.LatticeElement;
-import analysis.TransferFunction;
-import analysis.dep.DepLatticeElement;
+import analysis.dep.DepUpdateSink;
+import analysis.dep.DepUpdates;
 import conversion.Literal;
 import conversion.TacPlace;
 import conversion.Variable;
@@ -13,7 +12,7 @@ import conversion.nodes.CfgNode;
 // transfer function for "isset" tests
 // LATER: make it intelligent
 public class DepTfIsset 
-extends TransferFunction{
+extends DepTfInPlace {
     
     private Variable setMe;
     private TacPlace testMe;
@@ -33,11 +32,9 @@ extends TransferFunction{
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
-    public LatticeElement transfer(LatticeElement inX) {
+    public void apply(DepUpdateSink out) {
 
         // System.out.println("transfer method: " + setMe + " = " + setTo);
-        DepLatticeElement in = (DepLatticeElement) inX;
-        DepLatticeElement out = new DepLatticeElement(in);
 
         if (!setMe.isTemp()) {
             throw new RuntimeException("SNH");
@@ -48,8 +45,6 @@ extends TransferFunction{
         Set<Variable> mustAliases = new HashSet<Variable>();
         mustAliases.add(setMe);
         Set mayAliases = Collections.EMPTY_SET;
-        out.assign(setMe, mustAliases, mayAliases, cfgNode);
-        
-        return out;
+        DepUpdates.assign(out, setMe, mustAliases, mayAliases, cfgNode);
     }
 }
@@ -53,6 +53,16 @@ extends TransferFunction {
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
+    // the variable that receives the test result
+    public Variable getRetVar() {
+        return this.retVar;
+    }
+
+    // the variables whose deps are combined by the test
+    public List<Variable> getTestUs() {
+        return this.testUs;
+    }
+
     public LatticeElement transfer(LatticeElement inX) {
 
         DepLatticeElement in = (DepLatticeElement) inX;
@@ -0,0 +1,336 @@
+package analysis.inter;
+
+import java.util.*;
+
+import pixy.DepClientInfo;
+import pixy.MyOptions;
+import conversion.*;
+import conversion.nodes.*;
+
+// selective context sensitivity (see MyOptions.adaptiveKSize): a cheap,
+// flow-insensitive pre-analysis decides for each function whether it is
+// analyzed with longer call strings than the others;
+// benefit: the function is a "wrapper", i.e., the value of one of its
+// params may reach a sink of one of the enabled analyses, the return
+// value, or a param of another wrapper (fixpoint over the call graph);
+// only then can the contexts of its callers lead to different results
+// inside the function;
+// cost: the number of call strings of the longer length that reach the
+// function, multiplied by its size; the longer call strings only affect
+// the contexts of the function itself (the contexts of its callees keep
+// their own length), so the costs of the functions are independent
+public class AdaptiveKSize {
+
+    // the call-string lengths of the functions that deviate from baseK
+    private Map<TacFunction,Integer> function2K;
+
+    private int baseK;
+    private int maxK;
+
+    // callee -> calls to it
+    private Map<TacFunction,List<CfgNodeCall>> callsTo;
+
+    // function -> number of call strings of the given length (index)
+    private Map<TacFunction,long[]> callStringCounts;
+
+    // the sinks of the enabled analyses: function name -> sensitive
+    // params (null: all params)
+    private Map<String,Set<Integer>> sinks;
+    private boolean echoIsSink;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    public AdaptiveKSize(List<TacFunction> functions, int baseK, int maxK) {
+
+        this.function2K = new HashMap<TacFunction,Integer>();
+        this.baseK = baseK;
+        this.maxK = maxK;
+        this.callsTo = new HashMap<TacFunction,List<CfgNodeCall>>();
+        this.callStringCounts = new HashMap<TacFunction,long[]>();
+        this.sinks = new HashMap<String,Set<Integer>>();
+        this.echoIsSink = false;
+        this.collectSinks();
+
+        for (TacFunction function : functions) {
+            for (CfgNodeCall callNode : function.getContainedCalls()) {
+                TacFunction callee = callNode.getCallee();
+                if (callee == null) {
+                    continue;
+                }
+                List<CfgNodeCall> calls = this.callsTo.get(callee);
+                if (calls == null) {
+                    calls = new LinkedList<CfgNodeCall>();
+                    this.callsTo.put(callee, calls);
+                }
+                calls.add(callNode);
+            }
+        }
+
+        Set<TacFunction> wrappers = this.computeWrappers(functions);
+        for (TacFunction function : functions) {
+            if (function.isMain() || !wrappers.contains(function)) {
+                continue;
+            }
+            long cost = function.size() * this.countCallStrings(function, maxK);
+            if (cost <= MyOptions.adaptiveKCost) {
+                this.function2K.put(function, maxK);
+            }
+        }
+
+        if (!MyOptions.optionB && MyOptions.optionV) {
+            System.out.println("Adaptive k: " + this.function2K.size() + " of " + wrappers.size() +
+                    " wrapper functions with k = " + maxK + ", others k = " + baseK);
+        }
+    }
+
+// *********************************************************************************
+// GET *****************************************************************************
+// *********************************************************************************
+
+    // returns the call-string length for the contexts of the given function
+    public int getKSize(TacFunction function) {
+        Integer k = this.function2K.get(function);
+        return (k == null ? this.baseK : k);
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+//  computeWrappers ****************************************************************
+
+    // the wrappers among the given functions: a function is a wrapper if
+    // the value of one of its params may reach a sink or its return value,
+    // or a param of a user-defined function that is a wrapper itself
+    // (fixpoint over the call graph)
+    private Set<TacFunction> computeWrappers(List<TacFunction> functions) {
+
+        Set<TacFunction> wrappers = new HashSet<TacFunction>();
+
+        // function -> the callees that receive a value depending on one of
+        // its params (only for functions that are not wrappers by themselves)
+        Map<TacFunction,Set<TacFunction>> passesTo = new LinkedHashMap<TacFunction,Set<TacFunction>>();
+
+        for (TacFunction function : functions) {
+            Set<TacFunction> callees = new HashSet<TacFunction>();
+            if (this.isDirectWrapper(function, callees)) {
+                wrappers.add(function);
+            } else if (!callees.isEmpty()) {
+                passesTo.put(function, callees);
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Iterator<Map.Entry<TacFunction,Set<TacFunction>>> iter = passesTo.entrySet().iterator();
+                    iter.hasNext(); ) {
+                Map.Entry<TacFunction,Set<TacFunction>> entry = iter.next();
+                for (TacFunction callee : entry.getValue()) {
+                    if (wrappers.contains(callee)) {
+                        wrappers.add(entry.getKey());
+                        iter.remove();
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return wrappers;
+    }
+
+//  isDirectWrapper ****************************************************************
+
+    // can the value of a param reach a sink or the return value of the
+    // given function? the user-defined functions that receive such a
+    // value as a param are added to the given set
+    private boolean isDirectWrapper(TacFunction function, Set<TacFunction> callees) {
+
+        // the variables that may depend on a param (computed flow-insensitively,
+        // on the level of whole arrays)
+        Set<Variable> dependent = new HashSet<Variable>();
+        for (TacFormalParam param : function.getParams()) {
+            dependent.add(param.getVariable());
+        }
+        if (dependent.isEmpty()) {
+            return false;
+        }
+
+        List<CfgNode> nodes = new LinkedList<CfgNode>();
+        for (CfgNode node : function.getCfg().dfPreOrder()) {
+            if (node instanceof CfgNodeBasicBlock) {
+                nodes.addAll(((CfgNodeBasicBlock) node).getContainedNodes());
+            } else {
+                nodes.add(node);
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (CfgNode node : nodes) {
+                if (!(node instanceof CfgNodeAssignSimple || node instanceof CfgNodeAssignUnary ||
+                        node instanceof CfgNodeAssignBinary || node instanceof CfgNodeAssignRef ||
+                        node instanceof CfgNodeAssignArray)) {
+                    continue;
+                }
+                // the first variable is the left-hand side
+                List<Variable> variables = node.getVariables();
+                Variable left = getArray(variables.get(0));
+                if (dependent.contains(left)) {
+                    continue;
+                }
+                for (Variable right : variables.subList(1, variables.size())) {
+                    if (dependent.contains(getArray(right))) {
+                        dependent.add(left);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        Variable retVar = getArray(function.getRetVar());
+        for (CfgNode node : nodes) {
+            if (node instanceof CfgNodeEcho) {
+                if (this.echoIsSink && isDependent(node.getVariables(), dependent)) {
+                    return true;
+                }
+            } else if (node instanceof CfgNodeCallBuiltin) {
+                CfgNodeCallBuiltin callNode = (CfgNodeCallBuiltin) node;
+                if (this.reachesSink(callNode.getFunctionName(), callNode.getParamList(), dependent)) {
+                    return true;
+                }
+            } else if (node instanceof CfgNodeCallUnknown) {
+                CfgNodeCallUnknown callNode = (CfgNodeCallUnknown) node;
+                if (this.reachesSink(callNode.getFunctionName(), callNode.getParamList(), dependent)) {
+                    return true;
+                }
+            } else if (node instanceof CfgNodeCallPrep) {
+                // user-defined custom sinks, or calls of user-defined functions
+                CfgNodeCallPrep prepNode = (CfgNodeCallPrep) node;
+                List<TacActualParam> paramList = prepNode.getParamList();
+                if (this.reachesSink(prepNode.getFunctionNamePlace().toString(), paramList, dependent)) {
+                    return true;
+                }
+                TacFunction callee = prepNode.getCallee();
+                if (callee == null) {
+                    continue;
+                }
+                // only actual params that are bound to a formal param of the callee
+                int bound = Math.min(paramList.size(), callee.getParams().size());
+                for (int i = 0; i < bound; i++) {
+                    if (isDependent(paramList.get(i).getPlace(), dependent)) {
+                        callees.add(callee);
+                        break;
+                    }
+                }
+            } else if (node instanceof CfgNodeAssignSimple &&
+                    getArray(((CfgNodeAssignSimple) node).getLeft()) == retVar) {
+                if (isDependent(node.getVariables().subList(1, 2), dependent)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // does a value depending on a param reach one of the sensitive params
+    // of a call to the given function?
+    private boolean reachesSink(String functionName, List<TacActualParam> paramList,
+            Set<Variable> dependent) {
+        if (!this.sinks.containsKey(functionName)) {
+            return false;
+        }
+        // null: all params are sensitive
+        Set<Integer> indices = this.sinks.get(functionName);
+        int i = 0;
+        for (TacActualParam param : paramList) {
+            if ((indices == null || indices.contains(i)) && isDependent(param.getPlace(), dependent)) {
+                return true;
+            }
+            i++;
+        }
+        return false;
+    }
+
+    private static boolean isDependent(TacPlace place, Set<Variable> dependent) {
+        return (place instanceof Variable && dependent.contains(getArray((Variable) place)));
+    }
+
+    private static boolean isDependent(List<Variable> variables, Set<Variable> dependent) {
+        for (Variable variable : variables) {
+            if (dependent.contains(getArray(variable))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // array elements are represented by their top enclosing array
+    private static Variable getArray(Variable variable) {
+        if (variable != null && variable.isArrayElement()) {
+            return variable.getTopEnclosingArray();
+        }
+        return variable;
+    }
+
+//  collectSinks *******************************************************************
+
+    // the sinks of the enabled analyses (function name -> sensitive params,
+    // null for all params); echo is a sink for the xss analyses
+    private void collectSinks() {
+        for (DepClientInfo dci : MyOptions.getDepClients()) {
+            if (!dci.performMe()) {
+                continue;
+            }
+            if (dci.getName().equals("xss") || dci.getName().equals("xsssanit")) {
+                this.echoIsSink = true;
+            }
+            for (Map.Entry<String,Set<Integer>> entry : dci.getSinks().entrySet()) {
+                String functionName = entry.getKey();
+                Set<Integer> indices = entry.getValue();
+                if (!this.sinks.containsKey(functionName)) {
+                    this.sinks.put(functionName, indices == null ? null : new HashSet<Integer>(indices));
+                } else if (this.sinks.get(functionName) != null) {
+                    if (indices == null) {
+                        this.sinks.put(functionName, null);
+                    } else {
+                        this.sinks.get(functionName).addAll(indices);
+                    }
+                }
+            }
+        }
+    }
+
+//  countCallStrings ***************************************************************
+
+    // (an upper bound for) the number of call strings of the given length
+    // that reach the given function
+    private long countCallStrings(TacFunction function, int length) {
+        long[] counts = this.callStringCounts.get(function);
+        if (counts == null) {
+            counts = new long[this.maxK + 1];
+            Arrays.fill(counts, -1);
+            this.callStringCounts.put(function, counts);
+        }
+        if (counts[length] >= 0) {
+            return counts[length];
+        }
+
+        List<CfgNodeCall> calls = this.callsTo.get(function);
+        long count;
+        if (length == 0 || calls == null) {
+            count = 1;
+        } else {
+            count = 0;
+            for (CfgNodeCall callNode : calls) {
+                count += this.countCallStrings(callNode.getEnclosingFunction(), length - 1);
+            }
+        }
+        counts[length] = count;
+        return count;
+    }
+}
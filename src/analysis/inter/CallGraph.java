@@ -12,6 +12,10 @@ public class CallGraph {
     
     private Map<TacFunction,CallGraphNode> nodes;
     private TacFunction mainFunction;
+    
+    // memoized postorder (null if not computed yet, or if the graph has
+    // changed since then)
+    private Map<TacFunction,Integer> postorder;
 
     CallGraph(TacFunction mainFunction) {
         this.nodes = new HashMap<TacFunction,CallGraphNode>();
@@ -37,11 +41,16 @@ public class CallGraph {
         
         callerNode.addCallee(callNode, calleeNode);
         calleeNode.addCaller(callNode, callerNode);
+        this.postorder = null;
     }
     
-    // computes the postorder on the call graph
+    // computes the postorder on the call graph (unmodifiable)
     public Map<TacFunction,Integer> getPostOrder() {
         
+        if (this.postorder != null) {
+            return this.postorder;
+        }
+        
         List<CallGraphNode> postorder = new LinkedList<CallGraphNode>();
         
         // auxiliary stack and visited set
@@ -80,7 +89,84 @@ public class CallGraph {
         for (CallGraphNode f : postorder) {
             retMe.put(f.getFunction(), i++);
         }
-        return retMe;
+        this.postorder = Collections.unmodifiableMap(retMe);
+        return this.postorder;
+    }
+
+    // computes the strongly connected components of the call graph
+    // (Tarjan, with an explicit stack); the components are returned in
+    // topological order, i.e., callers come before their callees
+    public List<List<TacFunction>> getSccs() {
+        
+        LinkedList<List<TacFunction>> sccs = new LinkedList<List<TacFunction>>();
+        
+        Map<CallGraphNode,Integer> index = new HashMap<CallGraphNode,Integer>();
+        Map<CallGraphNode,Integer> lowlink = new HashMap<CallGraphNode,Integer>();
+        LinkedList<CallGraphNode> sccStack = new LinkedList<CallGraphNode>();
+        Set<CallGraphNode> onStack = new HashSet<CallGraphNode>();
+        
+        // dfs stack, together with the remaining successors of each node
+        LinkedList<CallGraphNode> stack = new LinkedList<CallGraphNode>();
+        LinkedList<Iterator<CallGraphNode>> succStack = new LinkedList<Iterator<CallGraphNode>>();
+
+        // start with the main function, then pick up the rest
+        List<CallGraphNode> roots = new LinkedList<CallGraphNode>();
+        roots.add(this.nodes.get(this.mainFunction));
+        roots.addAll(this.nodes.values());
+        
+        for (CallGraphNode root : roots) {
+            if (index.containsKey(root)) {
+                continue;
+            }
+            index.put(root, index.size());
+            lowlink.put(root, index.get(root));
+            sccStack.add(root);
+            onStack.add(root);
+            stack.add(root);
+            succStack.add(root.getSuccessors().iterator());
+            
+            while (!stack.isEmpty()) {
+                CallGraphNode node = stack.getLast();
+                Iterator<CallGraphNode> succIter = succStack.getLast();
+                
+                if (succIter.hasNext()) {
+                    CallGraphNode succ = succIter.next();
+                    if (!index.containsKey(succ)) {
+                        // descend
+                        index.put(succ, index.size());
+                        lowlink.put(succ, index.get(succ));
+                        sccStack.add(succ);
+                        onStack.add(succ);
+                        stack.add(succ);
+                        succStack.add(succ.getSuccessors().iterator());
+                    } else if (onStack.contains(succ)) {
+                        lowlink.put(node, Math.min(lowlink.get(node), index.get(succ)));
+                    }
+                    continue;
+                }
+                
+                // all successors done
+                stack.removeLast();
+                succStack.removeLast();
+                if (lowlink.get(node).equals(index.get(node))) {
+                    // node is the root of an scc
+                    List<TacFunction> scc = new LinkedList<TacFunction>();
+                    CallGraphNode member;
+                    do {
+                        member = sccStack.removeLast();
+                        onStack.remove(member);
+                        scc.add(member.getFunction());
+                    } while (member != node);
+                    sccs.addFirst(scc);
+                }
+                if (!stack.isEmpty()) {
+                    CallGraphNode parent = stack.getLast();
+                    lowlink.put(parent, Math.min(lowlink.get(parent), lowlink.get(node)));
+                }
+            }
+        }
+        
+        return sccs;
     }
 
     public Collection<TacFunction> getFunctions() {
@@ -44,7 +44,19 @@ public class ConnectorComputation {
     // call-string length
     int kSize;
     
-    public ConnectorComputation(List functions, TacFunction mainFunction, int kSize) {
+    // call-string lengths that differ from function to function (null if
+    // all functions use kSize; see MyOptions.adaptiveKSize)
+    private AdaptiveKSize adaptiveK;
+    
+    public ConnectorComputation(List<TacFunction> functions, TacFunction mainFunction, int kSize) {
+        this(functions, mainFunction, kSize, null);
+    }
+    
+    // the call graph doesn't depend on the call-string length, so it can be
+    // taken over from another connector computation for the same program
+    // (see InterStructure); null: compute it
+    ConnectorComputation(List<TacFunction> functions, TacFunction mainFunction, int kSize, 
+            CallGraph callGraph) {
 
         /*
         // LATER: kSize == 0 is not correctly supported yet
@@ -54,6 +66,13 @@ public class ConnectorComputation {
         
         this.kSize = kSize;
         this.mainFunction = mainFunction;
+        this.callGraph = callGraph;
+        
+        // with kSize == 0, exits return to all calls instead of the last
+        // call node of the call string, so the k-size must be uniform
+        if (kSize > 0 && MyOptions.adaptiveKSize > kSize) {
+            this.adaptiveK = new AdaptiveKSize(functions, kSize, MyOptions.adaptiveKSize);
+        }
         
         // start with empty ECS for each function;
         // by the way, build list with call nodes
@@ -63,8 +82,7 @@ public class ConnectorComputation {
         this.function2ECS = new HashMap<TacFunction,ECS>();
         this.containedCalls = new HashMap<TacFunction,List<CfgNodeCall>>();
         
-        for (Iterator iter = functions.iterator(); iter.hasNext();) {
-            TacFunction function = (TacFunction) iter.next();
+        for (TacFunction function : functions) {
             
             this.function2ECS.put(function, new ECS());
             
@@ -76,7 +94,7 @@ public class ConnectorComputation {
         }
         
         // initialize ECS for main function with empty call string
-        CallString emptyCallString = new CallString();
+        CallString emptyCallString = CallString.EMPTY;
         this.function2ECS.put(mainFunction, new ECS(emptyCallString));
         
         // initialize worklist
@@ -152,7 +170,7 @@ public class ConnectorComputation {
                     // callee is still unknown
                     continue;
                 }
-                CallString gamma_2 = gamma.append(callNode, this.kSize);
+                CallString gamma_2 = gamma.append(callNode, this.getKSize(q));
                 ECS ecs_q = (ECS) this.function2ECS.get(q);
                 int pos_2 = ecs_q.getPosition(gamma_2);
                 if (pos_2 == -1) {
@@ -172,7 +190,9 @@ public class ConnectorComputation {
         }
         
         // generate the call graph
-        this.makeCallGraph();
+        if (this.callGraph == null) {
+            this.makeCallGraph();
+        }
     }
     
     public CSContext getTargetContext(CfgNodeCall callNode, int sourcePosition) {
@@ -239,6 +259,11 @@ public class ConnectorComputation {
         return this.call2ConnectorFunction.get(callNode);
     }
     
+    // returns the call-string length for the contexts of the given function
+    public int getKSize(TacFunction function) {
+        return (this.adaptiveK == null ? this.kSize : this.adaptiveK.getKSize(function));
+    }
+    
     public Map<TacFunction,ECS> getFunction2ECS() {
         return this.function2ECS;
     }
@@ -1,13 +1,18 @@
 package analysis.inter;
 
+import java.io.*;
 import java.util.*;
 
 import pixy.*;
 import analysis.Analysis;
 import analysis.AnalysisNode;
+import analysis.AnalysisProfile;
 import analysis.LatticeElement;
 import analysis.TransferFunction;
+import analysis.TransferFunctionId;
 import analysis.inter.callstring.CSAnalysis;
+import analysis.inter.callstring.CSContext;
+import analysis.inter.callstring.CallString;
 import conversion.*;
 import conversion.nodes.*;
 
@@ -49,6 +54,34 @@ extends Analysis {
     // worklist consisting of pairs (Cfg node, lattice element)
     InterWorkList workList;
     
+    // memoized function summaries (null if disabled; see enableSummaries)
+    InterSummaries summaries;
+    
+    // step and time budgets (null if there are none)
+    InterBudget budget;
+    
+    // bypassed identity chains (null if disabled; see bypassIdChains): maps
+    // each node that is bypassed during propagation to its unique successor
+    Map<CfgNode,CfgNode> chainNext;
+    
+    // convergence profile (null if disabled; see MyOptions.profileAnalysis)
+    AnalysisProfile profile;
+    
+    // checkpoints (null if disabled; see enableCheckpoints)
+    InterCheckpoint checkpoint;
+    
+    // spill store for cold phi values (null if disabled; see 
+    // MyOptions.spillThreshold)
+    InterSpillStore spillStore;
+    
+    // folds the phi maps of final functions during the analysis (null if 
+    // disabled; see MyOptions.foldFinalFunctions)
+    InterFrontier frontier;
+    
+    // merges the contexts of a function that have the same entry value (null
+    // if disabled; see MyOptions.collapseContexts)
+    InterCollapse collapse;
+    
 // *********************************************************************************    
 // CONSTRUCTORS ********************************************************************
 // ********************************************************************************* 
@@ -76,6 +109,11 @@ extends Analysis {
         // initialize main context
         this.mainContext = this.analysisType.initContext(this);
 
+        // budgets rely on call strings for collapsing contexts
+        if (InterBudget.isEnabled() && this.analysisType instanceof CSAnalysis) {
+            this.budget = new InterBudget(this.mainFunction);
+        }
+
         // initialize worklist
         this.workList = workList;
         this.workList.add(mainHead, this.mainContext);
@@ -148,7 +186,29 @@ extends Analysis {
     // returns a set of ReverseTarget objects to which interprocedural
     // propagation shall be conducted (used at exit nodes)
     public List<ReverseTarget> getReverseTargets(TacFunction exitedFunction, Context context) {
-        return this.analysisType.getReverseTargets(exitedFunction, context);
+        List<ReverseTarget> reverseTargets = 
+            this.analysisType.getReverseTargets(exitedFunction, context);
+        if (this.budget != null) {
+            // calls that were redirected to this (collapsed) context
+            List<ReverseTarget> redirected = 
+                this.budget.getRedirectedTargets(exitedFunction, context);
+            if (!redirected.isEmpty()) {
+                redirected.addAll(0, reverseTargets);
+                return redirected;
+            }
+        }
+        if (this.collapse != null) {
+            // calls whose contexts were merged into this (canonical) context
+            Set<Context> members = this.collapse.getMembers(exitedFunction, context);
+            if (!members.isEmpty()) {
+                List<ReverseTarget> merged = new LinkedList<ReverseTarget>(reverseTargets);
+                for (Context member : members) {
+                    merged.addAll(this.analysisType.getReverseTargets(exitedFunction, member));
+                }
+                return merged;
+            }
+        }
+        return reverseTargets;
     }
     
 //  getTransferFunction ************************************************************
@@ -197,8 +257,280 @@ extends Analysis {
         return this.analysisType.useSummaries();
     }
 
-//  ********************************************************************************
+//  getSummaryProducers ************************************************************
+    
+    // returns the contexts of the given function whose exit values were used
+    // by calls that would have entered the function under the given context
+    // (i.e., that reused a memoized summary, or that were redirected to the
+    // collapsed context of a degraded function); the analysis information of
+    // such a context has to be looked up under these producer contexts
+    public Set<Context> getSummaryProducers(TacFunction function, Context context) {
+        Context collapsed = null;
+        if (this.budget != null) {
+            collapsed = this.budget.getAlias(function, context);
+        }
+        if (this.collapse != null && collapsed == null) {
+            collapsed = this.collapse.getAlias(function, context);
+        }
+        if (this.summaries == null) {
+            if (collapsed == null) {
+                return Collections.emptySet();
+            }
+            return Collections.singleton(collapsed);
+        }
+        Set<Context> producers = this.summaries.getProducers(function, context);
+        if (collapsed != null) {
+            producers.add(collapsed);
+        }
+        return producers;
+    }
+
+//  collapse ***********************************************************************
+    
+    // adds the given value to the entry value of the given function under
+    // the given context, and returns the canonical context for the resulting
+    // entry value (see InterCollapse); contexts that were split off are
+    // entered again with their own entry values
+    private Context collapse(TacFunction function, Context context, 
+            LatticeElement inValue, InterWorkList workList) {
+        
+        LatticeElement entryValue = this.collapse.getEntryValue(function, context);
+        if (entryValue == null) {
+            entryValue = inValue;
+        } else if (!this.lattice.lessOrEqual(inValue, entryValue)) {
+            entryValue = this.lattice.lub(inValue, entryValue);
+        }
+        List<Context> reentered = new LinkedList<Context>();
+        Context canonical = this.collapse.enter(function, context, 
+                this.recycle(entryValue), reentered);
+        
+        Cfg functionCfg = function.getCfg();
+        InterAnalysisNode exitAnalysisNode = this.getAnalysisNode(functionCfg.getTail());
+        for (Context successor : reentered) {
+            propagate(successor, this.collapse.getEntryValue(function, successor), 
+                    functionCfg.getHead(), workList);
+            // the contexts merged into the successor have to receive its exit value
+            if (exitAnalysisNode != null && exitAnalysisNode.getPhiValue(successor) != null) {
+                workList.add(functionCfg.getTail(), successor);
+            }
+        }
+        return canonical;
+    }
+    
+//  getDegradedFunctions ***********************************************************
+    
+    // returns the functions that exceeded their step or time budget (and were
+    // therefore analyzed under a single context from then on), together with
+    // the reason; empty if there are no budgets
+    public Map<TacFunction,String> getDegradedFunctions() {
+        if (this.budget == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(this.budget.getDegraded());
+    }
+
+//  enableSummaries ****************************************************************
+    
+    // enables memoized function summaries for call-string analyses;
+    // requires getSummaryKey() to be overridden
+    protected void enableSummaries() {
+        if (this.analysisType instanceof CSAnalysis) {
+            this.summaries = new InterSummaries();
+        }
+    }
+
+//  getSummaryKey ******************************************************************
+    
+    // returns an abstraction of the given value at a call to the given callee
+    // such that calls with equal keys have an equivalent effect at the
+    // corresponding call return nodes; null if there is no such key
+    protected Object getSummaryKey(TacFunction callee, LatticeElement inValue) {
+        return null;
+    }
+
+//  bypassIdChains *****************************************************************
+    
+    // bypasses chains of identity transfer functions: a node with the ID
+    // transfer function and 
+    // a single successor which has no other predecessor is bypassed, i.e.,
+    // the value reaching such a node is directly handed to the next node
+    // that actually modifies it (or that merges, branches, calls or returns);
+    // since all nodes on such a chain receive the same incoming value, they
+    // share a single phi map, so the analysis information of bypassed
+    // nodes can still be queried as usual; this is not a sparse (def-use)
+    // propagation: complete lattice elements still pass through all other
+    // nodes; only call after initGeneral()
+    protected void bypassIdChains() {
+        
+        this.chainNext = new HashMap<CfgNode,CfgNode>();
+        int nodeCount = 0;
+        for (TacFunction function : this.functions) {
+            
+            List<CfgNode> nodes = function.getCfg().dfPreOrder();
+            nodeCount += nodes.size();
+            for (CfgNode node : nodes) {
+                CfgNode succ = this.getChainSuccessor(node);
+                if (succ != null) {
+                    this.chainNext.put(node, succ);
+                }
+            }
+            
+            // let each chain share the phi map of its first node
+            for (CfgNode node : nodes) {
+                if (node.getInEdges().size() == 1 && 
+                        this.chainNext.containsKey(node.getPredecessor())) {
+                    // not the first node of its chain
+                    continue;
+                }
+                InterAnalysisNode first = this.getAnalysisNode(node);
+                for (CfgNode next = this.chainNext.get(node); next != null; 
+                        next = this.chainNext.get(next)) {
+                    this.getAnalysisNode(next).sharePhi(first);
+                }
+            }
+        }
+        
+        if (!MyOptions.optionB && MyOptions.optionV) {
+            System.out.println("Bypassed nodes:   " + this.chainNext.size() + 
+                    " of " + nodeCount + " (identity chains)");
+        }
+    }
     
+    // returns the unique successor of the given node if the node can be
+    // bypassed as part of an identity chain, and null otherwise
+    private CfgNode getChainSuccessor(CfgNode node) {
+        
+        // these nodes get a special treatment in visit()
+        if (node instanceof CfgNodeCall || node instanceof CfgNodeCallRet ||
+                node instanceof CfgNodeExit || node instanceof CfgNodeIf) {
+            return null;
+        }
+        if (!(this.getTransferFunction(node) instanceof TransferFunctionId)) {
+            return null;
+        }
+        
+        CfgNode succ = null;
+        for (CfgEdge outEdge : node.getOutEdges()) {
+            if (outEdge == null) {
+                continue;
+            }
+            if (succ != null) {
+                return null;
+            }
+            succ = outEdge.getDest();
+        }
+        if (succ == null || succ.getInEdges().size() != 1) {
+            return null;
+        }
+        return succ;
+    }
+
+//  enableCheckpoints **************************************************************
+
+    // writes checkpoints of the worklist algorithm to the given file, and
+    // resumes from its last checkpoint (see InterCheckpoint); only supported
+    // for call-string analyses without summaries and budgets that can encode
+    // their values (see getCodecPlaces)
+    public void enableCheckpoints(File file) {
+        if (this.summaries != null || this.budget != null || 
+                !InterCheckpoint.isSupported(this)) {
+            if (!MyOptions.optionB && MyOptions.optionV) {
+                System.out.println("Warning: no checkpoints for " + 
+                        this.getClass().getSimpleName());
+            }
+            return;
+        }
+        this.checkpoint = new InterCheckpoint(this, file);
+    }
+
+//  getCodecPlaces *****************************************************************
+
+    // returns the places that may occur in the lattice elements of this
+    // analysis, or null if its lattice elements can't be encoded (which is
+    // required for checkpoints and spilling, see InterCodec); analyses
+    // that can encode them also have to override writeValue() and readValue()
+    protected List<? extends TacPlace> getCodecPlaces() {
+        return null;
+    }
+
+    // encodes the given lattice element
+    protected void writeValue(LatticeElement value, InterCodec.Output out) 
+    throws IOException {
+        throw new RuntimeException("SNH");
+    }
+
+    // reads a lattice element written by writeValue()
+    protected LatticeElement readValue(InterCodec.Input in) 
+    throws IOException {
+        throw new RuntimeException("SNH");
+    }
+
+//  needsPhi ***********************************************************************
+
+    // indicates whether the per-context values at the given node are needed
+    // after the analysis; otherwise, they may be folded as soon as the node's
+    // function has reached its final fixpoint (see InterFrontier)
+    protected boolean needsPhi(CfgNode node) {
+        return false;
+    }
+
+//  supportsParallelSolver *********************************************************
+
+    // indicates whether this analysis may be solved by the parallel SCC solver
+    // (see InterSccSolver); requires that all transfer functions only touch
+    // analysis information of nodes inside the function of the processed node
+    // (e.g., call-return nodes may read their call prep node, which lies in
+    // the same function) or information that doesn't change anymore, and
+    // that shared repositories are thread-safe
+    protected boolean supportsParallelSolver() {
+        return false;
+    }
+
+//  getSccCallGraph ****************************************************************
+
+    // returns the call graph to be condensed by the parallel solver
+    CallGraph getSccCallGraph() {
+        if (this.analysisType instanceof CSAnalysis) {
+            return ((CSAnalysis) this.analysisType).getConnectorComputation().getCallGraph();
+        }
+
+        // no connector computation available: collect the call edges
+        // of all functions
+        CallGraph callGraph = new CallGraph(this.mainFunction);
+        for (TacFunction function : this.functions) {
+            for (CfgNodeCall callNode : function.getCalledFrom()) {
+                callGraph.add(callNode.getEnclosingFunction(), function, callNode);
+            }
+        }
+        return callGraph;
+    }
+
+//  createProfile ******************************************************************
+
+    // creates the convergence profile; for call-string analyses, the stack
+    // of a context consists of the functions containing its call nodes
+    private AnalysisProfile createProfile() {
+        if (!(this.analysisType instanceof CSAnalysis)) {
+            return new AnalysisProfile(this.getClass().getSimpleName());
+        }
+        final ConnectorComputation connectorComp = 
+            ((CSAnalysis) this.analysisType).getConnectorComputation();
+        return new AnalysisProfile(this.getClass().getSimpleName()) {
+            protected List<TacFunction> getStack(TacFunction function, Object context) {
+                CallString callString = connectorComp.getFunction2ECS().get(function).
+                    getCallString(((CSContext) context).getPosition());
+                List<TacFunction> stack = new LinkedList<TacFunction>();
+                for (Object callNode : callString.getCallNodeList()) {
+                    stack.add(((CfgNodeCall) callNode).getEnclosingFunction());
+                }
+                stack.add(function);
+                return stack;
+            }
+        };
+    }
+
+//  ********************************************************************************
+
     private static void debug(String s) {
     	int a=1;
         if (a==2) {
@@ -211,8 +543,65 @@ extends Analysis {
     // this method applies the worklist algorithm
     public void analyze() {
 
+        if (MyOptions.profileAnalysis) {
+            this.profile = this.createProfile();
+        }
+        if (MyOptions.spillThreshold > 0) {
+            this.spillStore = InterSpillStore.create(this);
+        }
+        if (MyOptions.collapseContexts) {
+            this.collapse = InterCollapse.create(this);
+        }
+        if (MyOptions.foldFinalFunctions) {
+            this.frontier = InterFrontier.create(this);
+        }
+
+        // summary users may live in other SCCs, so summaries require the
+        // sequential worklist; the same holds for budgets, profiles,
+        // checkpoints, spilling, early folding and context collapsing
+        if (MyOptions.analysisThreads > 1) {
+            String sequentialReason = null;
+            if (!this.supportsParallelSolver()) {
+                sequentialReason = "not supported";
+            } else if (this.summaries != null) {
+                sequentialReason = "summaries";
+            } else if (this.budget != null) {
+                sequentialReason = "budgets";
+            } else if (this.profile != null) {
+                sequentialReason = "profile";
+            } else if (this.checkpoint != null) {
+                sequentialReason = "checkpoints";
+            } else if (this.spillStore != null) {
+                sequentialReason = "spilling";
+            } else if (this.frontier != null) {
+                sequentialReason = "early folding";
+            } else if (this.collapse != null) {
+                sequentialReason = "context collapsing";
+            }
+            if (sequentialReason == null) {
+                InterSccSolver solver = new InterSccSolver(this, this.getSccCallGraph(), 
+                        MyOptions.analysisThreads);
+                int steps = solver.solve();
+                if (!MyOptions.optionB && MyOptions.optionV) {
+                    System.out.println("Steps total: " + steps);
+                    solver.stats();
+                }
+                return;
+            }
+            if (!MyOptions.optionB && MyOptions.optionV) {
+                System.out.println("Warning: no parallel solver for " +
+                        this.getClass().getSimpleName() + " (" + sequentialReason + ")");
+            }
+        }
+        
         int steps = 0;
         
+        // continue from the last checkpoint; otherwise, the start value has
+        // to go into the first checkpoint
+        if (this.checkpoint != null && !this.checkpoint.resume(this.workList)) {
+            this.checkpoint.changed(this.mainFunction.getCfg().getHead(), this.mainContext);
+        }
+        
         // for each element in the worklist...
         // (each worklist element is a pair of CFG node & context lattice element)
         while (this.workList.hasNext()) {
@@ -222,263 +611,383 @@ extends Analysis {
             
             // remove the element from the worklist
             InterWorkListElement element = this.workList.removeNext();
+            if (this.profile != null) {
+                this.profile.visit(element.getCfgNode(), element.getContext());
+            }
+            if (this.budget == null) {
+                this.visit(element, this.workList);
+            } else {
+                long start = (this.budget.isTimed() ? System.nanoTime() : 0);
+                this.visit(element, this.workList);
+                long time = (this.budget.isTimed() ? System.nanoTime() - start : 0);
+                this.budget.account(element.getCfgNode().getEnclosingFunction(), time);
+            }
+            if (this.checkpoint != null) {
+                this.checkpoint.step(this.workList);
+            }
+            if (this.spillStore != null) {
+                this.spillStore.step(element.getCfgNode());
+            }
+            if (this.frontier != null) {
+                this.frontier.step(this.workList);
+            }
+        }
 
-            // extract information from the element
-            CfgNode node = element.getCfgNode();
-            Context context = element.getContext();
+        if (!MyOptions.optionB && MyOptions.optionV) {
+            System.out.println("Steps total: " + steps);
+            if (this.summaries != null) {
+                this.summaries.stats();
+            }
+            if (this.spillStore != null) {
+                this.spillStore.stats();
+            }
+            if (this.frontier != null) {
+                this.frontier.stats();
+            }
+            if (this.collapse != null) {
+                this.collapse.stats();
+            }
+        }
+        if (this.budget != null) {
+            this.budget.report();
+        }
+        if (this.profile != null) {
+            this.profile.finish();
+        }
+        if (this.checkpoint != null) {
+            this.checkpoint.finish(this.workList);
+        }
+        // worklist algorithm finished!
+    }
 
-            //debug("  " + node.toString() + " (" + node.getOrigLineno() + ")");
+// visit ***************************************************************************
+    
+    // processes a single worklist element; successors whose value changes
+    // are added to the given worklist
+    void visit(InterWorkListElement element, InterWorkList workList) {
 
-            // get incoming value at node n (you need to understand the PHI table :)
-            InterAnalysisNode analysisNode = (InterAnalysisNode) this.interAnalysisInfo.getAnalysisNode(node); 
-            LatticeElement inValue = analysisNode.getPhiValue(context);
-            if (inValue == null) {
-                throw new RuntimeException("SNH");
+        // extract information from the element
+        CfgNode node = element.getCfgNode();
+        Context context = element.getContext();
+        
+        // bypassed identity chain: the last node of the chain receives the
+        // same incoming value (same phi map) and is processed right away
+        if (this.chainNext != null) {
+            for (CfgNode next = this.chainNext.get(node); next != null;
+                    next = this.chainNext.get(next)) {
+                node = next;
             }
+        }
 
-            try {
-            	//System.out.println("the value of the current node in analysis is"+node.toString());
-            	
-            // distinguish between various types of CFG nodes
-            if (node instanceof CfgNodeCall) {
-                
-                CfgNodeCall callNode = (CfgNodeCall) node;
-                
-                //System.out.println("Call: " + callNode.getFunctionNamePlace());
-                //System.out.println("Line: " + node.getOrigLineno());
-
-                // get necessary function information (= called function)
-                TacFunction function = callNode.getCallee();
-                CfgNodeCallRet callRet = (CfgNodeCallRet) node.getOutEdge(0).getDest();
-
-                if (function == null) {
-                    // callee could not be determined yet;
-                    // the search for a function summary doesn't make
-                    // sense; simply go on to the return node;
-                    // the concrete analysis is responsible for handling
-                    // calls to unknown functions in the transfer functions
-                    // for CallPrep and CallRet
-
-                    // note: even though calls to unknown functions will be
-                    // replaced with a special cfg node at the end of tac conversion,
-                    // this case might still occur *during* tac conversion
-                    // (especially during include file resolution)
-                    
-                    propagate(context, inValue, callRet);
-                    continue;
-                }
-                
-                Cfg functionCfg = function.getCfg();
+        //debug("  " + node.toString() + " (" + node.getOrigLineno() + ")");
 
-                //System.out.println("CALLING: " + function.getName());
-                //System.out.println("NAME_IS: " + callNode.getFunctionNamePlace());
-                
-                CfgNode exitNode = functionCfg.getTail();
-                // the tail of the function's CFG has to be an exit node
-                if (!(exitNode instanceof CfgNodeExit)) {
-                    throw new RuntimeException("SNH");
-                }
-                
-                Context propagationContext = this.getPropagationContext(callNode, context);
-                
-                // look if the exit node's PHI map has an entry under the context
-                // resulting from this call
-                InterAnalysisNode exitAnalysisNode = (InterAnalysisNode) this.interAnalysisInfo.getAnalysisNode(exitNode);
-                if (exitAnalysisNode == null) {
-                    // this can only mean that there is no way to reach the
-                    // function's natural exit node, i.e. there is something like
-                    // die() on each path to the natural exit node; in this
-                    // case, we simply enter the function; this can lead to
-                    // redundant computations, but it is simpler than a
-                    // special, more efficient treatment of this rare case
-                    CfgNode entryNode = functionCfg.getHead();
-                    propagate(propagationContext, inValue, entryNode);
-                    continue;
-                }
-                
-                LatticeElement exitInValue = exitAnalysisNode.getPhiValue(propagationContext);
+        // get incoming value at node n (you need to understand the PHI table :)
+        InterAnalysisNode analysisNode = (InterAnalysisNode) this.interAnalysisInfo.getAnalysisNode(node); 
+        LatticeElement inValue = analysisNode.getPhiValue(context);
+        if (inValue == null) {
+            throw new RuntimeException("SNH");
+        }
+
+        try {
+        	//System.out.println("the value of the current node in analysis is"+node.toString());
+        	
+        // distinguish between various types of CFG nodes
+        if (node instanceof CfgNodeCall) {
+            
+            CfgNodeCall callNode = (CfgNodeCall) node;
+            
+            //System.out.println("Call: " + callNode.getFunctionNamePlace());
+            //System.out.println("Line: " + node.getOrigLineno());
+
+            // get necessary function information (= called function)
+            TacFunction function = callNode.getCallee();
+            CfgNodeCallRet callRet = (CfgNodeCallRet) node.getOutEdge(0).getDest();
+
+            if (function == null) {
+                // callee could not be determined yet;
+                // the search for a function summary doesn't make
+                // sense; simply go on to the return node;
+                // the concrete analysis is responsible for handling
+                // calls to unknown functions in the transfer functions
+                // for CallPrep and CallRet
+
+                // note: even though calls to unknown functions will be
+                // replaced with a special cfg node at the end of tac conversion,
+                // this case might still occur *during* tac conversion
+                // (especially during include file resolution)
                 
-                if (this.useSummaries() && exitInValue != null) {
-                    
-                    // previously computed function summary can be used;
-                    // determine successor node (unique) of this call node
-                    CfgEdge[] outEdges = callNode.getOutEdges();
-                    CfgNode succ = outEdges[0].getDest();
-                    propagate(context, exitInValue, succ);
-                    
-                } else {
-                    
-                    // there is no function summary yet (or we don't want to
-                    // use summaries)
+                propagate(context, inValue, callRet, workList);
+                return;
+            }
+            
+            Cfg functionCfg = function.getCfg();
 
-                    // necessary for call-string analyses
-                    // EFF: think about additional conditions to add here
-                    if ((this.analysisType instanceof CSAnalysis) && exitInValue != null) {
-                        this.workList.add(exitNode, propagationContext);
+            //System.out.println("CALLING: " + function.getName());
+            //System.out.println("NAME_IS: " + callNode.getFunctionNamePlace());
+            
+            CfgNode exitNode = functionCfg.getTail();
+            // the tail of the function's CFG has to be an exit node
+            if (!(exitNode instanceof CfgNodeExit)) {
+                throw new RuntimeException("SNH");
+            }
+            
+            Context propagationContext = this.getPropagationContext(callNode, context);
+            
+            // degraded callee (see InterBudget): enter it under its
+            // collapsed context instead
+            boolean degraded = (this.budget != null && this.budget.isDegraded(function));
+            if (degraded) {
+                propagationContext = this.budget.collapse(callNode, context, 
+                        function, propagationContext);
+            }
+            
+            // context collapsing (see InterCollapse): enter the callee under
+            // the canonical context for the resulting entry value instead
+            if (this.collapse != null) {
+                propagationContext = this.collapse(function, propagationContext, 
+                        inValue, workList);
+                inValue = this.collapse.getEntryValue(function, propagationContext);
+            }
+            
+            // look if the exit node's PHI map has an entry under the context
+            // resulting from this call
+            InterAnalysisNode exitAnalysisNode = (InterAnalysisNode) this.interAnalysisInfo.getAnalysisNode(exitNode);
+            if (exitAnalysisNode == null) {
+                // this can only mean that there is no way to reach the
+                // function's natural exit node, i.e. there is something like
+                // die() on each path to the natural exit node; in this
+                // case, we simply enter the function; this can lead to
+                // redundant computations, but it is simpler than a
+                // special, more efficient treatment of this rare case
+                CfgNode entryNode = functionCfg.getHead();
+                propagate(propagationContext, inValue, entryNode, workList);
+                return;
+            }
+            
+            // memoized summary: if the callee has already been entered under
+            // another context with an equivalent entry value, use the exit
+            // value of that context instead of entering the callee again
+            if (this.summaries != null && !degraded) {
+                Object key = this.getSummaryKey(function, inValue);
+                LatticeElement[] summaryValue = new LatticeElement[1];
+                if (key != null && this.summaries.reuse(callNode, context, function, key, 
+                        propagationContext, exitAnalysisNode, summaryValue)) {
+                    if (summaryValue[0] != null) {
+                        propagate(context, summaryValue[0], callRet, workList);
                     }
-                    
-                    // there is no function summary yet (or we don't want to
-                    // use summaries), so compute it now by entering the function
-                    CfgNode entryNode = functionCfg.getHead();
-                    propagate(propagationContext, inValue, entryNode);
+                    return;
                 }
+            }
+            
+            LatticeElement exitInValue = exitAnalysisNode.getPhiValue(propagationContext);
+            
+            if (this.useSummaries() && exitInValue != null) {
                 
-            // calls to a builtin function are simply treated by invoking
-            // the corresponding transfer function; covered by the catch-all below
-            //} else if (node instanceof CfgNodeCallBuiltin) {
+                // previously computed function summary can be used;
+                // determine successor node (unique) of this call node
+                CfgEdge[] outEdges = callNode.getOutEdges();
+                CfgNode succ = outEdges[0].getDest();
+                propagate(context, exitInValue, succ, workList);
                 
-            } else if (node instanceof CfgNodeExit) {
-
-                CfgNodeExit exitNode = (CfgNodeExit) node;
+            } else {
                 
-                // the function to this exit node
-                TacFunction function = exitNode.getEnclosingFunction();
+                // there is no function summary yet (or we don't want to
+                // use summaries)
 
-                // no need to proceed if this is the exit node of the
-                // main function
-                if (function == this.mainFunction) {
-                    continue;
+                // necessary for call-string analyses
+                // EFF: think about additional conditions to add here
+                if ((this.analysisType instanceof CSAnalysis) && exitInValue != null) {
+                    workList.add(exitNode, propagationContext);
                 }
                 
-                // the exit node gets a special treatment: pass incoming value
-                // in a lazy manner
-                // LatticeElement outValue = this.analysisInfo[node.getId()].transfer(inValue);
-                LatticeElement outValue = inValue;
-
-                // get targets that we have to return to
-                List reverseTargets = this.getReverseTargets(function, context);
+                // there is no function summary yet (or we don't want to
+                // use summaries), so compute it now by entering the function
+                CfgNode entryNode = functionCfg.getHead();
+                propagate(propagationContext, inValue, entryNode, workList);
+            }
+            
+        // calls to a builtin function are simply treated by invoking
+        // the corresponding transfer function; covered by the catch-all below
+        //} else if (node instanceof CfgNodeCallBuiltin) {
+            
+        } else if (node instanceof CfgNodeExit) {
 
-                // for each target
-                for (Iterator iter = reverseTargets.iterator(); iter.hasNext();) {
-                    ReverseTarget reverseTarget = (ReverseTarget) iter.next();
-                    
-                    // extract target call node
-                    CfgNodeCall callNode = reverseTarget.getCallNode();
-                    
-                    //debug("reverse target: " + callNode.getOrigLineno());
+            CfgNodeExit exitNode = (CfgNodeExit) node;
+            
+            // the function to this exit node
+            TacFunction function = exitNode.getEnclosingFunction();
 
-                    // determine successor node (unique) of the call node
-                    CfgEdge[] outEdges = callNode.getOutEdges();
-                    CfgNodeCallRet callRetNode = (CfgNodeCallRet) outEdges[0].getDest();
-                    
-                    // determine predecessor node (unique) of the call node
-                    CfgNodeCallPrep callPrepNode = callRetNode.getCallPrepNode();
-                    
-                    // extract set of target contexts
-                    Set contextSet = reverseTarget.getContexts();
-                    for (Iterator contextIter = contextSet.iterator(); contextIter.hasNext();) {
-                        Context targetContext = (Context) contextIter.next();
-
-                        // if the incoming value at the callprep node is undefined, this means
-                        // that the analysis hasn't made the call under this context
-                        // (can happen for call-string analysis);
-                        // => don't propagate
-                        //if (this.analysisInfo[callPrepNode.getId()].getPhiValue(targetContext) == null) {
-                        InterAnalysisNode callPrepANode = (InterAnalysisNode) this.interAnalysisInfo.getAnalysisNode(callPrepNode);
-                        if (callPrepANode.getPhiValue(targetContext) == null) {
-                            // don't propagate
-                        } else {
-                            // propagate!
-                            propagate(targetContext, outValue, callRetNode);
-                        }
-                    }
+            // no need to proceed if this is the exit node of the
+            // main function
+            if (function == this.mainFunction) {
+                return;
+            }
+            
+            // the exit node gets a special treatment: pass incoming value
+            // in a lazy manner
+            // LatticeElement outValue = this.analysisInfo[node.getId()].transfer(inValue);
+            LatticeElement outValue = inValue;
+
+            // update the summaries produced under this context
+            if (this.summaries != null) {
+                for (InterWorkListElement user : 
+                        this.summaries.exitReached(function, context, outValue, this.lattice)) {
+                    workList.add(user.getCfgNode(), user.getContext());
                 }
+            }
+            
+            // get targets that we have to return to
+            List reverseTargets = this.getReverseTargets(function, context);
+
+            // for each target
+            for (Iterator iter = reverseTargets.iterator(); iter.hasNext();) {
+                ReverseTarget reverseTarget = (ReverseTarget) iter.next();
                 
-            } else if (node instanceof CfgNodeIf) {
-                
-                CfgNodeIf ifNode = (CfgNodeIf) node;
+                // extract target call node
+                CfgNodeCall callNode = reverseTarget.getCallNode();
                 
-                // System.out.println("If node");
-
-                LatticeElement outValue = this.interAnalysisInfo.getAnalysisNode(node).transfer(inValue);
-                CfgEdge[] outEdges = node.getOutEdges();
-
-                // try to evaluate the "if" condition
-                Boolean eval = this.evalIf(ifNode, inValue);
-
-                if (eval == null) {
-                    // static evaluation of if condition failed, continue
-                    // analysis along both outgoing edges
-                    // System.out.println("Can't evaluate 'if' statically");
-
-                    propagate(context, outValue, outEdges[0].getDest());
-                    propagate(context, outValue, outEdges[1].getDest());
-
-                } else if(eval == Boolean.TRUE) {
-                    // continue analysis along true edge
-                    //System.out.println("evaluated 'if' to true! " + node.getFileName() + ", line " + node.getOrigLineno());
-                    //System.out.println(Dumper.makeCfgNodeName(ifNode));
-                    propagate(context, outValue, outEdges[1].getDest());
-                } else {
-                    // continue analysis along false edge
-                    //System.out.println("evaluated 'if' to false! line: " + node.getFileName() + ", line " + node.getOrigLineno());
-                    //System.out.println(Dumper.makeCfgNodeName(ifNode));
-                    propagate(context, outValue, outEdges[0].getDest());
-                }
+                //debug("reverse target: " + callNode.getOrigLineno());
 
-            } else if (node instanceof CfgNodeCallRet) {
+                // determine successor node (unique) of the call node
+                CfgEdge[] outEdges = callNode.getOutEdges();
+                CfgNodeCallRet callRetNode = (CfgNodeCallRet) outEdges[0].getDest();
+                
+                // determine predecessor node (unique) of the call node
+                CfgNodeCallPrep callPrepNode = callRetNode.getCallPrepNode();
                 
-                // a call return node is to be handled just as a normal node,
-                // with the exception that it also needs to know about the
-                // current context
-
-                // apply transfer function to incoming value
-                InterAnalysisNode aNode = (InterAnalysisNode) this.interAnalysisInfo.getAnalysisNode(node);
-                LatticeElement outValue = aNode.transfer(inValue, context);
-
-                // for each outgoing edge...
-                CfgEdge[] outEdges = node.getOutEdges();
-                for (int i = 0; i < outEdges.length; i++) {
-                    if (outEdges[i] != null) {
-                        
-                        // determine the successor
-                        CfgNode succ = outEdges[i].getDest();
-
-                        // propagate the result of applying the transfer function
-                        // to the successor (under the current context) 
-                        propagate(context, outValue, succ);
+                // extract set of target contexts
+                Set contextSet = reverseTarget.getContexts();
+                for (Iterator contextIter = contextSet.iterator(); contextIter.hasNext();) {
+                    Context targetContext = (Context) contextIter.next();
+
+                    // if the incoming value at the callprep node is undefined, this means
+                    // that the analysis hasn't made the call under this context
+                    // (can happen for call-string analysis);
+                    // => don't propagate
+                    //if (this.analysisInfo[callPrepNode.getId()].getPhiValue(targetContext) == null) {
+                    InterAnalysisNode callPrepANode = (InterAnalysisNode) this.interAnalysisInfo.getAnalysisNode(callPrepNode);
+                    if (callPrepANode.getPhiValue(targetContext) == null) {
+                        // don't propagate
+                    } else {
+                        // propagate!
+                        propagate(targetContext, outValue, callRetNode, workList);
                     }
                 }
+            }
+            
+        } else if (node instanceof CfgNodeIf) {
+            
+            CfgNodeIf ifNode = (CfgNodeIf) node;
+            
+            // System.out.println("If node");
+
+            LatticeElement outValue = this.interAnalysisInfo.getAnalysisNode(node).transfer(inValue);
+            CfgEdge[] outEdges = node.getOutEdges();
+
+            // try to evaluate the "if" condition
+            Boolean eval = this.evalIf(ifNode, inValue);
+
+            if (eval == null) {
+                // static evaluation of if condition failed, continue
+                // analysis along both outgoing edges
+                // System.out.println("Can't evaluate 'if' statically");
 
+                propagate(context, outValue, outEdges[0].getDest(), workList);
+                propagate(context, outValue, outEdges[1].getDest(), workList);
+
+            } else if(eval == Boolean.TRUE) {
+                // continue analysis along true edge
+                //System.out.println("evaluated 'if' to true! " + node.getFileName() + ", line " + node.getOrigLineno());
+                //System.out.println(Dumper.makeCfgNodeName(ifNode));
+                propagate(context, outValue, outEdges[1].getDest(), workList);
             } else {
-                
-                // apply transfer function to incoming value
-                LatticeElement outValue;
-                outValue = this.interAnalysisInfo.getAnalysisNode(node).transfer(inValue);
-
-                // for each outgoing edge...
-                CfgEdge[] outEdges = node.getOutEdges();
-                for (int i = 0; i < outEdges.length; i++) {
-                    if (outEdges[i] != null) {
-                        
-                        // determine the successor
-                        CfgNode succ = outEdges[i].getDest();
-
-                        // propagate the result of applying the transfer function
-                        // to the successor (under the current context)
-                        //System.out.println("propagating...: " + node + " -> " + succ);
-                        propagate(context, outValue, succ);
-                    }
+                // continue analysis along false edge
+                //System.out.println("evaluated 'if' to false! line: " + node.getFileName() + ", line " + node.getOrigLineno());
+                //System.out.println(Dumper.makeCfgNodeName(ifNode));
+                propagate(context, outValue, outEdges[0].getDest(), workList);
+            }
+
+        } else if (node instanceof CfgNodeCallRet) {
+            
+            // a call return node is to be handled just as a normal node,
+            // with the exception that it also needs to know about the
+            // current context
+
+            // apply transfer function to incoming value
+            InterAnalysisNode aNode = (InterAnalysisNode) this.interAnalysisInfo.getAnalysisNode(node);
+            LatticeElement outValue = aNode.transfer(inValue, context);
+
+            // for each outgoing edge...
+            CfgEdge[] outEdges = node.getOutEdges();
+            for (int i = 0; i < outEdges.length; i++) {
+                if (outEdges[i] != null) {
+                    
+                    // determine the successor
+                    CfgNode succ = outEdges[i].getDest();
+
+                    // propagate the result of applying the transfer function
+                    // to the successor (under the current context) 
+                    propagate(context, outValue, succ, workList);
                 }
             }
+
+        } else {
             
-            } catch (RuntimeException ex) {
-                System.out.println("File:" + node.getFileName() + ", Line: " + node.getOrigLineno());
-                throw ex;
+            // apply transfer function to incoming value
+            LatticeElement outValue;
+            outValue = this.interAnalysisInfo.getAnalysisNode(node).transfer(inValue);
+
+            // for each outgoing edge...
+            CfgEdge[] outEdges = node.getOutEdges();
+            for (int i = 0; i < outEdges.length; i++) {
+                if (outEdges[i] != null) {
+                    
+                    // determine the successor
+                    CfgNode succ = outEdges[i].getDest();
+
+                    // propagate the result of applying the transfer function
+                    // to the successor (under the current context)
+                    //System.out.println("propagating...: " + node + " -> " + succ);
+                    propagate(context, outValue, succ, workList);
+                }
             }
         }
-
-        if (!MyOptions.optionB && MyOptions.optionV) {
-            System.out.println("Steps total: " + steps);
+        
+        } catch (RuntimeException ex) {
+            System.out.println("File:" + node.getFileName() + ", Line: " + node.getOrigLineno());
+            throw ex;
         }
-        // worklist algorithm finished!
     }
 
 // propagate ***********************************************************************
     
-    // helper method for analyze();
+    // helper method for visit();
     // propagates a value under the given context to the target node
-    void propagate(Context context, LatticeElement value, CfgNode target) {
+    void propagate(Context context, LatticeElement value, CfgNode target, 
+            InterWorkList workList) {
+        
+        if (this.profile == null) {
+            this.merge(context, value, target, workList);
+            return;
+        }
+        
+        InterAnalysisNode analysisNode = this.interAnalysisInfo.getAnalysisNode(target);
+        LatticeElement oldPhiValue = (analysisNode == null ? null : analysisNode.getPhiValue(context));
+        long start = System.nanoTime();
+        boolean changed = this.merge(context, value, target, workList);
+        long time = System.nanoTime() - start;
+        if (changed) {
+            this.profile.merge(target, time, this.getSize(analysisNode.getPhiValue(context)), 
+                    (oldPhiValue == null ? 0 : this.getSize(oldPhiValue)));
+        } else {
+            this.profile.merge(target, time, -1, -1);
+        }
+    }
+    
+    // merges a value under the given context into the value of the target
+    // node; returns true if this changed the target's value
+    private boolean merge(Context context, LatticeElement value, CfgNode target, 
+            InterWorkList workList) {
         
         //System.out.println("propagating to " + target);
         //value.dump();
@@ -508,14 +1017,29 @@ extends Analysis {
         if (value == oldPhiValue) {
             //Mona Nashaat
         	//System.out.println("exact match!");
-            return;
+            return false;
+        }
+        
+        // speedup: if the incoming value is covered by the target value, 
+        // the lub can't change it either (checked without allocations)
+        if (this.lattice.lessOrEqual(value, oldPhiValue)) {
+            return false;
         }
 
-        // the new PHI value is computed as usual (with lub)
-        LatticeElement newPhiValue = this.lattice.lub(value, oldPhiValue);
+        // the new PHI value is computed as usual (with lub);
+        // in delta mode, the lub itself tells us whether anything changed
+        LatticeElement newPhiValue;
+        boolean changed;
+        if (MyOptions.deltaPropagation) {
+            newPhiValue = this.lattice.lubDelta(value, oldPhiValue);
+            changed = (newPhiValue != oldPhiValue);
+        } else {
+            newPhiValue = this.lattice.lub(value, oldPhiValue);
+            changed = !oldPhiValue.equals(newPhiValue);
+        }
 
         // if the PHI value changed...
-        if (!oldPhiValue.equals(newPhiValue)) {
+        if (changed) {
             
             /*System.out.println(target);
             System.out.println("old phi value:");
@@ -525,10 +1049,13 @@ extends Analysis {
             
             // update analysis information
             analysisNode.setPhiValue(context, newPhiValue);
+            if (this.checkpoint != null) {
+                this.checkpoint.changed(target, context);
+            }
 
             // add this node (under the current context) to the worklist
             // System.out.println("adding " + target.getId() +  ") to worklist");
-            this.workList.add(target, context);
+            workList.add(target, context);
             
         } /*else {
 
@@ -539,6 +1066,7 @@ extends Analysis {
             System.out.println("new phi value: " + newPhiValue);
             newPhiValue.dump();
         }*/
+        return changed;
     }
     
 
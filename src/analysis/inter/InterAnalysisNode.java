@@ -18,13 +18,22 @@ extends AnalysisNode {
     // via setFoldedValue, since we want it to be recycled for some analyses!
     LatticeElement foldedValue;
     
+    // where the values of the phi map have been spilled to (null if they
+    // are on the heap; see InterSpillStore)
+    InterSpillStore.Page spilled;
+    
 // *********************************************************************************    
 // CONSTRUCTORS ********************************************************************
 // ********************************************************************************* 
     
     protected InterAnalysisNode(TransferFunction tf) {
+        this(tf, new HashMap<Context,LatticeElement>());
+    }
+    
+    // for analysis types that want to use a specialized phi map
+    protected InterAnalysisNode(TransferFunction tf, Map<Context,LatticeElement> phi) {
         super(tf);
-        this.phi = new HashMap<Context,LatticeElement>();
+        this.phi = phi;
         this.foldedValue = null;
     }
     
@@ -33,16 +42,19 @@ extends AnalysisNode {
 // *********************************************************************************
     
     public Map<Context,LatticeElement> getPhi() {
+        this.pageIn();
         return this.phi;
     }
 
     public Set<Context> getContexts() {
+        this.pageIn();
         return this.phi.keySet();
     }
     
     // returns the lattice element currently stored in the PHI map under the 
     // given context; can be null
     public LatticeElement getPhiValue(Context context) {
+        this.pageIn();
         return ((LatticeElement) this.phi.get(context));
     }
     
@@ -53,6 +65,7 @@ extends AnalysisNode {
             return this.foldedValue;
         }
         
+        this.pageIn();
         Iterator iter = this.phi.values().iterator();
         if (!iter.hasNext()) {
             return null;
@@ -81,6 +94,7 @@ extends AnalysisNode {
     // only do this after having set the folded value
     public void clearPhiMap() {
         this.phi = null;
+        this.spilled = null;
     }
 
     // don't call this function without having checked whether
@@ -104,6 +118,7 @@ extends AnalysisNode {
             return this.foldedValue;
         }
         
+        this.pageIn();
         Iterator iter = this.phi.values().iterator();
         if (!iter.hasNext()) {
             return null;
@@ -129,13 +144,31 @@ extends AnalysisNode {
 
     // sets the PHI value for the given context
     protected void setPhiValue(Context context, LatticeElement value) {
+        this.pageIn();
         this.phi.put(context, value);
     }
+
+    // makes this node use the phi map of the given node (for nodes that
+    // are guaranteed to have the same incoming values, see 
+    // InterAnalysis.bypassIdChains)
+    void sharePhi(InterAnalysisNode other) {
+        this.phi = other.phi;
+    }
     
 // *********************************************************************************
 // OTHER ***************************************************************************
 // *********************************************************************************
 
+    // reads the values of the phi map back from the spill store if they
+    // have been spilled
+    private void pageIn() {
+        if (this.spilled != null) {
+            InterSpillStore.Page page = this.spilled;
+            this.spilled = null;
+            page.pageIn(this.phi);
+        }
+    }
+
     LatticeElement transfer(LatticeElement value, Context context) {
         return ((LatticeElement) tf.transfer(value, context));
     }
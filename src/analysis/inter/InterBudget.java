@@ -0,0 +1,216 @@
+package analysis.inter;
+
+import java.util.*;
+
+import pixy.MyOptions;
+import conversion.TacFunction;
+import conversion.nodes.CfgNodeCall;
+
+// step and time budgets for the worklist algorithm of call-string analyses
+// (see MyOptions); a function that exceeds its own budget (or every function,
+// as soon as the global budget is exceeded) is degraded: calls that would
+// enter it under some context enter it under a single "collapsed" context
+// instead (i.e., the function is analyzed as with k = 0 from then on), and
+// the collapsed context returns to these calls as well;
+// this bounds the number of contexts that are still to be analyzed, at the
+// cost of precision for the degraded functions
+final class InterBudget {
+
+    private TacFunction mainFunction;
+
+    // budgets (0: unlimited); times in nanoseconds
+    private long stepBudget;
+    private long timeBudget;
+    private long functionStepBudget;
+    private long functionTimeBudget;
+
+    private long steps;
+    private long startTime;
+
+    // function -> {steps, time} spent for its nodes
+    private Map<TacFunction,long[]> functionCosts;
+
+    // why all functions are degraded (null as long as the global budget
+    // has not been exceeded)
+    private String allDegraded;
+
+    // degraded function -> reason
+    private Map<TacFunction,String> degraded;
+
+    // degraded function -> collapsed context
+    private Map<TacFunction,Context> collapsed;
+
+    // degraded function -> call node -> calling contexts that were
+    // redirected to the collapsed context
+    private Map<TacFunction,Map<CfgNodeCall,Set<Context>>> redirected;
+
+    // degraded function -> context that was redirected -> collapsed context
+    private Map<TacFunction,Map<Context,Context>> aliases;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    InterBudget(TacFunction mainFunction) {
+        this.mainFunction = mainFunction;
+        this.stepBudget = MyOptions.analysisStepBudget;
+        this.timeBudget = MyOptions.analysisTimeBudget * 1000000L;
+        this.functionStepBudget = MyOptions.functionStepBudget;
+        this.functionTimeBudget = MyOptions.functionTimeBudget * 1000000L;
+        this.startTime = System.nanoTime();
+        this.functionCosts = new HashMap<TacFunction,long[]>();
+        this.degraded = new LinkedHashMap<TacFunction,String>();
+        this.collapsed = new HashMap<TacFunction,Context>();
+        this.redirected = new HashMap<TacFunction,Map<CfgNodeCall,Set<Context>>>();
+        this.aliases = new HashMap<TacFunction,Map<Context,Context>>();
+    }
+
+// *********************************************************************************
+// GET *****************************************************************************
+// *********************************************************************************
+
+    // is any budget set?
+    static boolean isEnabled() {
+        return MyOptions.analysisStepBudget > 0 || MyOptions.analysisTimeBudget > 0 ||
+            MyOptions.functionStepBudget > 0 || MyOptions.functionTimeBudget > 0;
+    }
+
+    // does account() need the time spent for each step?
+    boolean isTimed() {
+        return this.functionTimeBudget > 0;
+    }
+
+    boolean isDegraded(TacFunction function) {
+        if (function == this.mainFunction) {
+            return false;
+        }
+        return this.allDegraded != null || this.degraded.containsKey(function);
+    }
+
+    // degraded function -> reason
+    Map<TacFunction,String> getDegraded() {
+        return this.degraded;
+    }
+
+    // returns the collapsed context that the given context of the given
+    // function was redirected to, or null
+    Context getAlias(TacFunction function, Context context) {
+        Map<Context,Context> functionAliases = this.aliases.get(function);
+        if (functionAliases == null) {
+            return null;
+        }
+        return functionAliases.get(context);
+    }
+
+    // returns the calls that were redirected to the given context of the
+    // given function (empty if this is not a collapsed context)
+    List<ReverseTarget> getRedirectedTargets(TacFunction function, Context context) {
+        List<ReverseTarget> retMe = new LinkedList<ReverseTarget>();
+        if (!context.equals(this.collapsed.get(function))) {
+            return retMe;
+        }
+        Map<CfgNodeCall,Set<Context>> functionRedirected = this.redirected.get(function);
+        if (functionRedirected == null) {
+            return retMe;
+        }
+        for (Map.Entry<CfgNodeCall,Set<Context>> entry : functionRedirected.entrySet()) {
+            retMe.add(new ReverseTarget(entry.getKey(), entry.getValue()));
+        }
+        return retMe;
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+//  account ************************************************************************
+
+    // accounts for a single step of the worklist algorithm at a node of the
+    // given function (time: only required if isTimed()), and degrades
+    // functions whose budget is exceeded
+    void account(TacFunction function, long time) {
+
+        this.steps++;
+        if (this.allDegraded == null) {
+            if (this.stepBudget > 0 && this.steps > this.stepBudget) {
+                this.allDegraded = "global step budget exceeded";
+            } else if (this.timeBudget > 0 && (this.steps & 0xff) == 0 &&
+                    System.nanoTime() - this.startTime > this.timeBudget) {
+                this.allDegraded = "global time budget exceeded";
+            }
+        }
+
+        if (this.functionStepBudget <= 0 && this.functionTimeBudget <= 0) {
+            return;
+        }
+        long[] costs = this.functionCosts.get(function);
+        if (costs == null) {
+            costs = new long[2];
+            this.functionCosts.put(function, costs);
+        }
+        costs[0]++;
+        costs[1] += time;
+        if (function == this.mainFunction || this.degraded.containsKey(function)) {
+            return;
+        }
+        if (this.functionStepBudget > 0 && costs[0] > this.functionStepBudget) {
+            this.degraded.put(function, "step budget exceeded");
+        } else if (this.functionTimeBudget > 0 && costs[1] > this.functionTimeBudget) {
+            this.degraded.put(function, "time budget exceeded");
+        }
+    }
+
+//  collapse ***********************************************************************
+
+    // called for a call node (under the given calling context) that would
+    // enter the given degraded callee under the given propagation context;
+    // returns the context under which the callee has to be entered instead
+    Context collapse(CfgNodeCall callNode, Context context, TacFunction callee,
+            Context propagationContext) {
+
+        if (!this.degraded.containsKey(callee)) {
+            // only degraded due to the global budget
+            this.degraded.put(callee, this.allDegraded);
+        }
+
+        Context collapsedContext = this.collapsed.get(callee);
+        if (collapsedContext == null) {
+            // the first call after degradation determines the collapsed context
+            this.collapsed.put(callee, propagationContext);
+            return propagationContext;
+        }
+        if (collapsedContext.equals(propagationContext)) {
+            return propagationContext;
+        }
+
+        Map<CfgNodeCall,Set<Context>> calleeRedirected = this.redirected.get(callee);
+        if (calleeRedirected == null) {
+            calleeRedirected = new LinkedHashMap<CfgNodeCall,Set<Context>>();
+            this.redirected.put(callee, calleeRedirected);
+        }
+        Set<Context> callContexts = calleeRedirected.get(callNode);
+        if (callContexts == null) {
+            callContexts = new LinkedHashSet<Context>();
+            calleeRedirected.put(callNode, callContexts);
+        }
+        callContexts.add(context);
+
+        Map<Context,Context> calleeAliases = this.aliases.get(callee);
+        if (calleeAliases == null) {
+            calleeAliases = new HashMap<Context,Context>();
+            this.aliases.put(callee, calleeAliases);
+        }
+        calleeAliases.put(propagationContext, collapsedContext);
+
+        return collapsedContext;
+    }
+
+//  report *************************************************************************
+
+    void report() {
+        for (Map.Entry<TacFunction,String> entry : this.degraded.entrySet()) {
+            System.out.println("Warning: Analysis of function " + entry.getKey().getName() +
+                    " degraded to a single context (" + entry.getValue() + ")");
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package analysis.inter;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import pixy.MyOptions;
+import analysis.LatticeElement;
+import analysis.inter.callstring.CSAnalysis;
+import analysis.inter.callstring.CSContext;
+import analysis.inter.callstring.CallString;
+import analysis.inter.callstring.ECS;
+import conversion.TacFunction;
+import conversion.TacPlace;
+import conversion.nodes.CfgNode;
+
+// checkpoints of the worklist algorithm of a call-string analysis (see
+// MyOptions.checkpointPath): every once in a while, the phi values that
+// changed since the last checkpoint and the current worklist are appended
+// to the checkpoint file; an analysis of the same input (the file name
+// is derived from a hash of the input, see Checker) resumes from the last
+// complete checkpoint of that file;
+// file format: a sequence of records (int length + bytes); the first record
+// describes the numbering of nodes, places and contexts used by the other
+// records (functions with their number of nodes, place names, and the call
+// strings of the connector computation), so that the resumed run can check
+// that it uses the same numbering; each further record is a checkpoint;
+// values are encoded with an InterCodec, so recycled objects (lattice
+// elements, dep sets) are written only once per file;
+// the records are encoded by the solver thread, and written to disk by a
+// background thread
+final class InterCheckpoint {
+
+    private static final int MAGIC = 0x50434b50;
+    private static final int VERSION = 2;
+
+    private InterAnalysis analysis;
+    private File file;
+    private InterCodec codec;
+
+    // node/context pairs whose phi value changed since the last checkpoint
+    private Set<InterWorkListElement> changed;
+
+    private long steps;
+    private long lastTime;
+
+    // length of the complete records in the file
+    private long length;
+
+    // writes the encoded records (null if checkpoints are disabled, e.g.,
+    // because a value couldn't be encoded)
+    private ExecutorService writer;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    InterCheckpoint(InterAnalysis analysis, File file) {
+        this.analysis = analysis;
+        this.file = file;
+        this.codec = new InterCodec(analysis);
+        this.changed = new LinkedHashSet<InterWorkListElement>();
+        this.lastTime = System.currentTimeMillis();
+        this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "checkpoint writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // are checkpoints supported for the given analysis?
+    static boolean isSupported(InterAnalysis analysis) {
+        return analysis.analysisType instanceof CSAnalysis &&
+            InterCodec.isSupported(analysis);
+    }
+
+// *********************************************************************************
+// WRITING *************************************************************************
+// *********************************************************************************
+
+//  start **************************************************************************
+
+    // starts a new checkpoint file with the first record
+    private void start() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        this.writeHeader(new DataOutputStream(bytes));
+        this.file.getParentFile().mkdirs();
+        this.file.delete();
+        this.write(bytes);
+    }
+
+    // the numbering of nodes, places and contexts
+    private void writeHeader(DataOutputStream out) throws IOException {
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        // functions: name and number of nodes
+        out.writeInt(this.analysis.getFunctions().size());
+        for (TacFunction function : this.analysis.getFunctions()) {
+            out.writeUTF(function.getName());
+            out.writeInt(InterCodec.getNodes(function).size());
+        }
+
+        // places: names in the order of their numbers
+        Set<String> names = new HashSet<String>();
+        out.writeInt(this.codec.getPlaces().size());
+        for (TacPlace place : this.codec.getPlaces()) {
+            if (!names.add(place.toString())) {
+                throw new IOException("ambiguous place " + place);
+            }
+            out.writeUTF(place.toString());
+        }
+
+        // contexts: call strings of each function
+        InterCodec.Output nodes = this.codec.output(out);
+        Map<TacFunction,ECS> function2ECS = ((CSAnalysis) this.analysis.analysisType).
+            getConnectorComputation().getFunction2ECS();
+        for (TacFunction function : this.analysis.getFunctions()) {
+            List<?> callStrings = function2ECS.get(function).getCallStrings();
+            out.writeInt(callStrings.size());
+            for (Object callStringX : callStrings) {
+                List<?> callNodes = ((CallString) callStringX).getCallNodeList();
+                out.writeInt(callNodes.size());
+                for (Object callNode : callNodes) {
+                    nodes.writeNode((CfgNode) callNode);
+                }
+            }
+        }
+        out.flush();
+    }
+
+//  changed ************************************************************************
+
+    // the phi value of the given node changed under the given context
+    void changed(CfgNode node, Context context) {
+        if (this.writer != null) {
+            this.changed.add(new InterWorkListElement(node, context));
+        }
+    }
+
+//  step ***************************************************************************
+
+    // called after each step of the worklist algorithm; writes a checkpoint
+    // if it is time to do so
+    void step(InterWorkList workList) {
+        this.steps++;
+        if (this.writer == null || this.steps % 1000 != 0) {
+            return;
+        }
+        long time = System.currentTimeMillis();
+        if (time - this.lastTime < MyOptions.checkpointInterval) {
+            return;
+        }
+        this.lastTime = time;
+        this.checkpoint(workList);
+    }
+
+//  finish *************************************************************************
+
+    // writes the final checkpoint (with an empty worklist) and waits until
+    // all records are on disk
+    void finish(InterWorkList workList) {
+        if (this.writer == null) {
+            return;
+        }
+        this.checkpoint(workList);
+        this.writer.shutdown();
+        try {
+            this.writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+//  checkpoint *********************************************************************
+
+    private void checkpoint(InterWorkList workList) {
+
+        // the worklist can only be read by emptying it
+        List<InterWorkListElement> pending = new LinkedList<InterWorkListElement>();
+        while (workList.hasNext()) {
+            pending.add(workList.removeNext());
+        }
+        for (InterWorkListElement element : pending) {
+            workList.add(element.getCfgNode(), element.getContext());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InterCodec.Output out = this.codec.output(bytes);
+        try {
+            out.writeLong(this.steps);
+            out.writeInt(this.changed.size());
+            for (InterWorkListElement element : this.changed) {
+                CfgNode node = element.getCfgNode();
+                out.writeNode(node);
+                writeContext(element.getContext(), out);
+                LatticeElement value = this.analysis.getAnalysisNode(node).
+                    getPhiValue(element.getContext());
+                if (out.writeRef(value)) {
+                    this.analysis.writeValue(value, out);
+                }
+            }
+            out.writeInt(pending.size());
+            for (InterWorkListElement element : pending) {
+                out.writeNode(element.getCfgNode());
+                writeContext(element.getContext(), out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Warning: checkpoints disabled: " + e.getMessage());
+            this.writer.shutdownNow();
+            this.writer = null;
+            return;
+        }
+        this.changed.clear();
+        this.write(bytes);
+    }
+
+    private static void writeContext(Context context, DataOutputStream out)
+    throws IOException {
+        if (!(context instanceof CSContext)) {
+            throw new IOException("unsupported context " + context);
+        }
+        out.writeInt(((CSContext) context).getPosition());
+    }
+
+    // appends the given record to the file (in the background)
+    private void write(final ByteArrayOutputStream bytes) {
+        this.writer.execute(new Runnable() {
+            public void run() {
+                try {
+                    FileOutputStream stream = new FileOutputStream(file, true);
+                    DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(stream));
+                    out.writeInt(bytes.size());
+                    bytes.writeTo(out);
+                    out.flush();
+                    stream.getFD().sync();
+                    out.close();
+                } catch (IOException e) {
+                    System.out.println("Warning: can't write checkpoint " + file + ": " +
+                            e.getMessage());
+                }
+            }
+        });
+    }
+
+// *********************************************************************************
+// READING *************************************************************************
+// *********************************************************************************
+
+//  resume *************************************************************************
+
+    // opens the checkpoint file: if it contains a complete checkpoint,
+    // replaces the phi values and the worklist with those of the last
+    // checkpoint, and returns true; otherwise, starts a new file
+    boolean resume(InterWorkList workList) {
+
+        Map<InterWorkListElement,LatticeElement> values =
+            new LinkedHashMap<InterWorkListElement,LatticeElement>();
+        List<InterWorkListElement> pending = null;
+
+        if (this.file.exists()) {
+            try {
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(new FileInputStream(this.file)));
+                try {
+                    byte[] header = this.readRecord(in);
+                    byte[] record;
+                    if (header != null) {
+                        this.checkHeader(header);
+                    }
+                    while (header != null && (record = this.readRecord(in)) != null) {
+                        InterCodec.Input recordIn = this.codec.input(record);
+                        this.steps = recordIn.readLong();
+                        int changedCount = recordIn.readInt();
+                        for (int i = 0; i < changedCount; i++) {
+                            CfgNode node = recordIn.readNode();
+                            Context context = new CSContext(recordIn.readInt());
+                            LatticeElement value = (LatticeElement) recordIn.readRef();
+                            if (value == null) {
+                                value = this.analysis.readValue(recordIn);
+                                recordIn.define(value);
+                            }
+                            values.put(new InterWorkListElement(node, context), value);
+                        }
+                        int pendingCount = recordIn.readInt();
+                        pending = new LinkedList<InterWorkListElement>();
+                        for (int i = 0; i < pendingCount; i++) {
+                            CfgNode node = recordIn.readNode();
+                            pending.add(new InterWorkListElement(node,
+                                    new CSContext(recordIn.readInt())));
+                        }
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                System.out.println("Warning: ignoring checkpoint " + this.file + ": " +
+                        e.getMessage());
+                pending = null;
+            }
+        }
+
+        if (pending == null) {
+            // nothing to resume: start from scratch
+            this.codec.reset();
+            this.steps = 0;
+            try {
+                this.start();
+            } catch (IOException e) {
+                System.out.println("Warning: checkpoints disabled: " + e.getMessage());
+                this.writer.shutdownNow();
+                this.writer = null;
+            }
+            return false;
+        }
+
+        // drop an incomplete record at the end, so that the following
+        // checkpoints can be appended
+        try {
+            RandomAccessFile truncated = new RandomAccessFile(this.file, "rw");
+            truncated.setLength(this.length);
+            truncated.close();
+        } catch (IOException e) {
+            System.out.println("Warning: checkpoints disabled: " + e.getMessage());
+            this.writer.shutdownNow();
+            this.writer = null;
+        }
+
+        for (Map.Entry<InterWorkListElement,LatticeElement> entry : values.entrySet()) {
+            InterWorkListElement element = entry.getKey();
+            this.analysis.getAnalysisNode(element.getCfgNode()).setPhiValue(
+                    element.getContext(), entry.getValue());
+        }
+        while (workList.hasNext()) {
+            workList.removeNext();
+        }
+        for (InterWorkListElement element : pending) {
+            workList.add(element.getCfgNode(), element.getContext());
+        }
+        if (!MyOptions.optionB && MyOptions.optionV) {
+            System.out.println("Resumed from checkpoint: " + this.file + " (" +
+                    this.steps + " steps, " + pending.size() + " pending)");
+        }
+        return true;
+    }
+
+    // reads the next record; returns null if there is none (or if it is
+    // incomplete, e.g., because the analysis was killed while it was written)
+    private byte[] readRecord(DataInputStream in) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+        } catch (EOFException e) {
+            return null;
+        }
+        this.length += 4 + bytes.length;
+        return bytes;
+    }
+
+    // checks that the checkpointed run used the same numbering as this one
+    private void checkHeader(byte[] header) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        this.writeHeader(new DataOutputStream(bytes));
+        if (!Arrays.equals(header, bytes.toByteArray())) {
+            throw new IOException("different program or format");
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package analysis.inter;
+
+import java.io.*;
+import java.util.*;
+
+import conversion.TacFormalParam;
+import conversion.TacFunction;
+import conversion.TacPlace;
+import conversion.nodes.CfgNode;
+import conversion.nodes.CfgNodeBasicBlock;
+
+// binary encoding of the lattice elements of an analysis, used for
+// checkpoints (see InterCheckpoint) and for spilling phi values to disk
+// (see InterSpillStore); nodes and places are encoded by their numbers,
+// and recycled objects (lattice elements, dep sets) only by their number
+// once they have been written (see Output.writeRef); the analysis encodes
+// its elements with writeValue() and readValue()
+public final class InterCodec {
+
+    // the numbering of nodes (of all functions, see getNodes) and places
+    private List<CfgNode> nodes;
+    private Map<CfgNode,Integer> nodeIds;
+    private List<TacPlace> places;
+    private Map<TacPlace,Integer> placeIds;
+
+    // recycled objects written or read so far (number -> object, and
+    // object -> number; an object that was read several times has the
+    // last of its numbers)
+    private List<Object> defined;
+    private Map<Object,Integer> refs;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    InterCodec(InterAnalysis analysis) {
+        this.nodes = new ArrayList<CfgNode>();
+        this.nodeIds = new HashMap<CfgNode,Integer>();
+        for (TacFunction function : analysis.getFunctions()) {
+            for (CfgNode node : getNodes(function)) {
+                this.nodeIds.put(node, this.nodes.size());
+                this.nodes.add(node);
+            }
+        }
+        this.places = new ArrayList<TacPlace>(analysis.getCodecPlaces());
+        this.placeIds = new HashMap<TacPlace,Integer>();
+        for (TacPlace place : this.places) {
+            this.placeIds.put(place, this.placeIds.size());
+        }
+        this.defined = new ArrayList<Object>();
+        this.refs = new IdentityHashMap<Object,Integer>();
+    }
+
+    // can the values of the given analysis be encoded?
+    static boolean isSupported(InterAnalysis analysis) {
+        return analysis.getCodecPlaces() != null;
+    }
+
+    // the nodes of the given function that may be encoded, in a fixed
+    // order: the nodes of its cfg (including the nodes inside basic
+    // blocks), and the nodes of its default param cfgs
+    static List<CfgNode> getNodes(TacFunction function) {
+        List<CfgNode> nodes = new ArrayList<CfgNode>();
+        for (CfgNode node : function.getCfg().dfPreOrder()) {
+            nodes.add(node);
+            if (node instanceof CfgNodeBasicBlock) {
+                nodes.addAll(((CfgNodeBasicBlock) node).getContainedNodes());
+            }
+        }
+        for (Object paramX : function.getParams()) {
+            TacFormalParam param = (TacFormalParam) paramX;
+            if (param.hasDefault()) {
+                nodes.addAll(param.getDefaultCfg().dfPreOrder());
+            }
+        }
+        return nodes;
+    }
+
+// *********************************************************************************
+// GET *****************************************************************************
+// *********************************************************************************
+
+    List<TacPlace> getPlaces() {
+        return this.places;
+    }
+
+    Output output(OutputStream out) {
+        return new Output(out);
+    }
+
+    Input input(byte[] bytes) {
+        return new Input(bytes);
+    }
+
+    // forgets all recycled objects (e.g., when starting a new file)
+    void reset() {
+        this.defined.clear();
+        this.refs.clear();
+    }
+
+// *********************************************************************************
+// STREAMS *************************************************************************
+// *********************************************************************************
+
+    public final class Output
+    extends DataOutputStream {
+
+        private Output(OutputStream out) {
+            super(out);
+        }
+
+        public void writeNode(CfgNode node) throws IOException {
+            if (node == null) {
+                this.writeInt(-1);
+                return;
+            }
+            Integer id = nodeIds.get(node);
+            if (id == null) {
+                throw new IOException("unknown node " + node);
+            }
+            this.writeInt(id);
+        }
+
+        public void writePlace(TacPlace place) throws IOException {
+            Integer id = placeIds.get(place);
+            if (id == null) {
+                throw new IOException("unknown place " + place);
+            }
+            this.writeInt(id);
+        }
+
+        // writes a reference to the given recycled object if it has already
+        // been written (or read), and returns false; otherwise, numbers the
+        // object and returns true, and the caller has to write the object
+        public boolean writeRef(Object object) throws IOException {
+            Integer id = refs.get(object);
+            if (id != null) {
+                this.writeInt(id);
+                return false;
+            }
+            id = defined.size();
+            defined.add(object);
+            refs.put(object, id);
+            this.writeInt(-1 - id);
+            return true;
+        }
+    }
+
+    public final class Input
+    extends DataInputStream {
+
+        // numbers of the objects that are being read (innermost last)
+        private LinkedList<Integer> reading;
+
+        private Input(byte[] bytes) {
+            super(new ByteArrayInputStream(bytes));
+            this.reading = new LinkedList<Integer>();
+        }
+
+        public CfgNode readNode() throws IOException {
+            int id = this.readInt();
+            if (id >= nodes.size()) {
+                throw new IOException("unknown node " + id);
+            }
+            return (id == -1 ? null : nodes.get(id));
+        }
+
+        public TacPlace readPlace() throws IOException {
+            int id = this.readInt();
+            if (id < 0 || id >= places.size()) {
+                throw new IOException("unknown place " + id);
+            }
+            return places.get(id);
+        }
+
+        // returns the referenced object, or null if it follows (the caller
+        // has to read it and call define())
+        public Object readRef() throws IOException {
+            int id = this.readInt();
+            if (id < 0) {
+                this.reading.add(-1 - id);
+                return null;
+            }
+            if (id >= defined.size() || defined.get(id) == null) {
+                throw new IOException("unknown reference " + id);
+            }
+            return defined.get(id);
+        }
+
+        // the object that was announced by the last readRef() has been read
+        public void define(Object object) {
+            int id = this.reading.removeLast();
+            while (defined.size() <= id) {
+                defined.add(null);
+            }
+            defined.set(id, object);
+            refs.put(object, id);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package analysis.inter;
+
+import java.util.*;
+
+import pixy.MyOptions;
+import analysis.LatticeElement;
+import analysis.inter.callstring.CSAnalysis;
+import conversion.TacFunction;
+
+// context collapsing for call-string analyses (see MyOptions.collapseContexts):
+// the contexts of a function whose (recycled) entry values are identical
+// are merged into a single canonical context, i.e., calls that would enter
+// the function under one of the merged contexts enter it under the canonical
+// context instead, and the canonical context returns to these calls as well
+// (see InterAnalysis.getReverseTargets); the entry value of a context is the
+// lub of all values that entered the function under this context; if the
+// entry value of a merged context changes, the context is split off again
+// (and analyzed under its own context, or merged into another one); if the
+// entry value of a canonical context changes, one of its merged contexts
+// becomes the canonical context of the others;
+// the results are the same as without collapsing, since contexts with the
+// same entry value lead to the same values inside the function
+final class InterCollapse {
+
+    // function -> context -> entry value (recycled)
+    private Map<TacFunction,Map<Context,LatticeElement>> entries;
+
+    // function -> entry value -> canonical context
+    private Map<TacFunction,Map<LatticeElement,Context>> canonicals;
+
+    // function -> merged context -> canonical context
+    private Map<TacFunction,Map<Context,Context>> aliases;
+
+    // function -> canonical context -> merged contexts
+    private Map<TacFunction,Map<Context,Set<Context>>> members;
+
+    // statistics
+    private int merges;
+    private int splits;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    private InterCollapse() {
+        this.entries = new HashMap<TacFunction,Map<Context,LatticeElement>>();
+        this.canonicals = new HashMap<TacFunction,Map<LatticeElement,Context>>();
+        this.aliases = new HashMap<TacFunction,Map<Context,Context>>();
+        this.members = new HashMap<TacFunction,Map<Context,Set<Context>>>();
+    }
+
+    // returns context collapsing for the given analysis, or null if it
+    // can't be used: summaries and budgets redirect calls themselves, and
+    // checkpoints don't record the merged contexts
+    static InterCollapse create(InterAnalysis analysis) {
+        if (!(analysis.analysisType instanceof CSAnalysis) || analysis.summaries != null ||
+                analysis.budget != null || analysis.checkpoint != null) {
+            if (!MyOptions.optionB && MyOptions.optionV) {
+                System.out.println("Warning: no context collapsing for " +
+                        analysis.getClass().getSimpleName());
+            }
+            return null;
+        }
+        return new InterCollapse();
+    }
+
+// *********************************************************************************
+// GET *****************************************************************************
+// *********************************************************************************
+
+    // returns the entry value of the given function under the given
+    // context, or null if it hasn't been entered under this context yet
+    LatticeElement getEntryValue(TacFunction function, Context context) {
+        Map<Context,LatticeElement> functionEntries = this.entries.get(function);
+        return (functionEntries == null ? null : functionEntries.get(context));
+    }
+
+    // returns the canonical context that the given context of the given
+    // function was merged into, or null
+    Context getAlias(TacFunction function, Context context) {
+        Map<Context,Context> functionAliases = this.aliases.get(function);
+        return (functionAliases == null ? null : functionAliases.get(context));
+    }
+
+    // returns the contexts that were merged into the given context of the
+    // given function (empty if this is not a canonical context)
+    Set<Context> getMembers(TacFunction function, Context context) {
+        Set<Context> retMe = getMap(this.members, function).get(context);
+        if (retMe == null) {
+            return Collections.emptySet();
+        }
+        return retMe;
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+//  enter **************************************************************************
+
+    // called for a call that enters the given function under the given
+    // context, which gives this context the given (recycled) entry value;
+    // returns the context under which the function has to be entered instead;
+    // contexts that are split off and have to be entered with their own
+    // entry values are added to the given list
+    Context enter(TacFunction function, Context context, LatticeElement entryValue,
+            List<Context> reentered) {
+
+        Map<Context,LatticeElement> functionEntries = getMap(this.entries, function);
+        LatticeElement oldEntryValue = functionEntries.get(context);
+        if (entryValue == oldEntryValue) {
+            Context canonical = this.getAlias(function, context);
+            return (canonical == null ? context : canonical);
+        }
+        functionEntries.put(context, entryValue);
+        if (oldEntryValue != null) {
+            this.split(function, context, oldEntryValue, reentered);
+        }
+
+        Map<LatticeElement,Context> functionCanonicals = this.canonicals.get(function);
+        if (functionCanonicals == null) {
+            // recycled values are compared by identity
+            functionCanonicals = new IdentityHashMap<LatticeElement,Context>();
+            this.canonicals.put(function, functionCanonicals);
+        }
+        Context canonical = functionCanonicals.get(entryValue);
+        if (canonical == null) {
+            functionCanonicals.put(entryValue, context);
+            return context;
+        }
+
+        // merge
+        getMap(this.aliases, function).put(context, canonical);
+        Map<Context,Set<Context>> functionMembers = getMap(this.members, function);
+        Set<Context> canonicalMembers = functionMembers.get(canonical);
+        if (canonicalMembers == null) {
+            canonicalMembers = new LinkedHashSet<Context>();
+            functionMembers.put(canonical, canonicalMembers);
+        }
+        canonicalMembers.add(context);
+        this.merges++;
+        return canonical;
+    }
+
+//  split **************************************************************************
+
+    // removes the given context from the group of its old entry value
+    private void split(TacFunction function, Context context, LatticeElement oldEntryValue,
+            List<Context> reentered) {
+
+        Map<Context,Set<Context>> functionMembers = getMap(this.members, function);
+        Context canonical = getMap(this.aliases, function).remove(context);
+        if (canonical != null) {
+            // a merged context
+            functionMembers.get(canonical).remove(context);
+            this.splits++;
+            return;
+        }
+
+        // a canonical context: the first of its merged contexts takes over
+        Map<LatticeElement,Context> functionCanonicals = this.canonicals.get(function);
+        functionCanonicals.remove(oldEntryValue);
+        Set<Context> group = functionMembers.remove(context);
+        if (group == null || group.isEmpty()) {
+            return;
+        }
+        Iterator<Context> iter = group.iterator();
+        Context successor = iter.next();
+        iter.remove();
+        functionCanonicals.put(oldEntryValue, successor);
+        Map<Context,Context> functionAliases = this.aliases.get(function);
+        functionAliases.remove(successor);
+        for (Context member : group) {
+            functionAliases.put(member, successor);
+        }
+        if (!group.isEmpty()) {
+            functionMembers.put(successor, group);
+        }
+        reentered.add(successor);
+        this.splits++;
+    }
+
+    private static <V> Map<Context,V> getMap(Map<TacFunction,Map<Context,V>> maps,
+            TacFunction function) {
+        Map<Context,V> retMe = maps.get(function);
+        if (retMe == null) {
+            retMe = new HashMap<Context,V>();
+            maps.put(function, retMe);
+        }
+        return retMe;
+    }
+
+//  stats **************************************************************************
+
+    void stats() {
+        int merged = 0;
+        for (Map<Context,Context> functionAliases : this.aliases.values()) {
+            merged += functionAliases.size();
+        }
+        System.out.println("Collapsed contexts: " + merged + " merged at the end (" +
+                this.merges + " merges, " + this.splits + " splits)");
+    }
+}
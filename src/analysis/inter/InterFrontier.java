@@ -0,0 +1,190 @@
+package analysis.inter;
+
+import java.util.*;
+
+import pixy.MyOptions;
+import analysis.LatticeElement;
+import analysis.inter.callstring.CSAnalysis;
+import conversion.TacFunction;
+import conversion.nodes.CfgNode;
+import conversion.nodes.CfgNodeCall;
+import conversion.nodes.CfgNodeExit;
+
+// folds the phi maps of functions that have reached their final fixpoint
+// while the worklist algorithm is still running (see
+// MyOptions.foldFinalFunctions), such that the analysis information of
+// finished functions doesn't pile up until the end;
+// a function is final if none of its nodes can be reached (under any
+// context) from the elements on the worklist: values flow along the cfg
+// edges, into the callees (under the propagation contexts of the calls)
+// and back to the callers (under the reverse targets of the exit's
+// context);
+// the nodes whose per-context values are still needed after the analysis
+// are kept (see InterAnalysis.needsPhi)
+final class InterFrontier {
+
+    // minimal number of steps between two checks
+    private static final int MIN_INTERVAL = 10000;
+
+    // minimal number of steps between two checks, per node/context pair
+    // traversed by the last check
+    private static final int COST_FACTOR = 4;
+
+    private InterAnalysis analysis;
+
+    // the functions that have been folded
+    private Set<TacFunction> folded;
+
+    private long steps;
+    private long nextCheck;
+
+    // statistics
+    private int checks;
+    private int foldedNodes;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    private InterFrontier(InterAnalysis analysis) {
+        this.analysis = analysis;
+        this.folded = new HashSet<TacFunction>();
+        this.nextCheck = MIN_INTERVAL;
+    }
+
+    // returns a frontier for the given analysis, or null if it can't be
+    // tracked: summaries, budgets and context collapsing let contexts flow
+    // in ways that the reachability check doesn't see, and checkpoints
+    // need all values
+    static InterFrontier create(InterAnalysis analysis) {
+        if (!(analysis.analysisType instanceof CSAnalysis) || analysis.summaries != null ||
+                analysis.budget != null || analysis.checkpoint != null ||
+                analysis.collapse != null) {
+            if (!MyOptions.optionB && MyOptions.optionV) {
+                System.out.println("Warning: no early folding for " +
+                        analysis.getClass().getSimpleName());
+            }
+            return null;
+        }
+        return new InterFrontier(analysis);
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+//  step ***************************************************************************
+
+    // called after each step of the worklist algorithm; folds the
+    // functions that became final since the last check
+    void step(InterWorkList workList) {
+        this.steps++;
+        if (this.steps < this.nextCheck) {
+            return;
+        }
+
+        // the worklist can only be read by emptying it
+        List<InterWorkListElement> pending = new LinkedList<InterWorkListElement>();
+        while (workList.hasNext()) {
+            pending.add(workList.removeNext());
+        }
+        for (InterWorkListElement element : pending) {
+            workList.add(element.getCfgNode(), element.getContext());
+        }
+
+        // the checks take time proportional to the reachable node/context
+        // pairs, so they become rarer if there are many of them
+        int cost = this.foldFinal(pending);
+        this.nextCheck = this.steps + Math.max(MIN_INTERVAL, COST_FACTOR * cost);
+        this.checks++;
+    }
+
+//  foldFinal **********************************************************************
+
+    // folds the functions that can't be reached from the given worklist
+    // elements; returns the number of traversed node/context pairs
+    private int foldFinal(List<InterWorkListElement> pending) {
+
+        // forward traversal of the interprocedural cfg, along the same
+        // edges as the worklist algorithm (see InterAnalysis.visit)
+        Set<InterWorkListElement> visited = new HashSet<InterWorkListElement>();
+        LinkedList<InterWorkListElement> queue = new LinkedList<InterWorkListElement>();
+        Set<TacFunction> reached = new HashSet<TacFunction>();
+        for (InterWorkListElement element : pending) {
+            reach(element.getCfgNode(), element.getContext(), visited, queue);
+        }
+        while (!queue.isEmpty()) {
+            InterWorkListElement element = queue.removeFirst();
+            CfgNode node = element.getCfgNode();
+            Context context = element.getContext();
+            TacFunction function = node.getEnclosingFunction();
+            reached.add(function);
+
+            if (node instanceof CfgNodeCall && ((CfgNodeCall) node).getCallee() != null) {
+                // into the callee
+                CfgNodeCall callNode = (CfgNodeCall) node;
+                reach(callNode.getCallee().getCfg().getHead(),
+                        this.analysis.getPropagationContext(callNode, context), visited, queue);
+            } else if (node instanceof CfgNodeExit && function != this.analysis.mainFunction) {
+                // back to the callers
+                for (ReverseTarget reverseTarget : this.analysis.getReverseTargets(function, context)) {
+                    CfgNode callRetNode = reverseTarget.getCallNode().getSuccessor(0);
+                    for (Object targetContext : reverseTarget.getContexts()) {
+                        reach(callRetNode, (Context) targetContext, visited, queue);
+                    }
+                }
+            }
+            // (a call also continues with its call-return node, in case
+            // the callee never returns)
+            for (CfgNode succ : node.getSuccessors()) {
+                reach(succ, context, visited, queue);
+            }
+        }
+
+        for (TacFunction function : reached) {
+            if (this.folded.contains(function)) {
+                throw new RuntimeException("SNH: folded function reached: " + function.getName());
+            }
+        }
+        for (TacFunction function : this.analysis.getFunctions()) {
+            if (!reached.contains(function) && this.folded.add(function)) {
+                this.fold(function);
+            }
+        }
+        return visited.size();
+    }
+
+    private static void reach(CfgNode node, Context context,
+            Set<InterWorkListElement> visited, LinkedList<InterWorkListElement> queue) {
+        InterWorkListElement element = new InterWorkListElement(node, context);
+        if (visited.add(element)) {
+            queue.add(element);
+        }
+    }
+
+//  fold ***************************************************************************
+
+    // folds and releases the phi maps of the given function (like
+    // InterAnalysisInfo.foldRecycledAndClean)
+    private void fold(TacFunction function) {
+        for (CfgNode node : InterCodec.getNodes(function)) {
+            InterAnalysisNode analysisNode = this.analysis.getAnalysisNode(node);
+            if (analysisNode == null || analysisNode.hasFoldedValue() ||
+                    this.analysis.needsPhi(node)) {
+                continue;
+            }
+            LatticeElement foldedValue = analysisNode.computeFoldedValue();
+            analysisNode.setFoldedValue(this.analysis.recycle(foldedValue));
+            analysisNode.clearPhiMap();
+            this.foldedNodes++;
+        }
+    }
+
+//  stats **************************************************************************
+
+    void stats() {
+        System.out.println("Folded early: " + this.folded.size() + " of " +
+                this.analysis.getFunctions().size() + " functions, " + this.foldedNodes +
+                " nodes (" + this.checks + " checks)");
+    }
+}
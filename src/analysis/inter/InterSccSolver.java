@@ -0,0 +1,331 @@
+package analysis.inter;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import conversion.TacFunction;
+import conversion.nodes.*;
+
+// parallel variant of InterAnalysis.analyze():
+// the call graph is condensed into its strongly connected components (SCCs),
+// and each SCC gets its own worklist; the SCCs are arranged in levels
+// (callers before callees), and the SCCs of a level are solved concurrently;
+// a thread only touches the analysis information of its own SCC:
+// worklist elements that cross SCC boundaries (call nodes with a callee in
+// another SCC, exit nodes of functions that are called from another SCC)
+// are deferred and processed sequentially after each level;
+// the levels are swept top-down until no SCC has any work left
+final class InterSccSolver {
+
+    private InterAnalysis analysis;
+    private int threads;
+
+    // the SCCs in topological order
+    private List<List<TacFunction>> sccs;
+
+    // function -> index of its SCC
+    private Map<TacFunction,Integer> function2Scc;
+
+    // level -> indices of the SCCs on this level
+    private List<List<Integer>> levels;
+
+    // functions that are called from outside their own SCC
+    private Set<TacFunction> externallyCalled;
+
+    // one worklist per SCC, and the deferred elements of each SCC
+    private InterWorkList[] workLists;
+    private List<List<InterWorkListElement>> deferred;
+
+    // dispatches elements to the worklist of the corresponding SCC;
+    // used for the (sequential) processing of deferred elements
+    private InterWorkList router;
+
+    // statistics
+    private int[] steps;
+    private int waves;
+    private int parallelWaves;
+    private int deferredSteps;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    InterSccSolver(InterAnalysis analysis, CallGraph callGraph, int threads) {
+
+        this.analysis = analysis;
+        this.threads = threads;
+
+        // functions that are not part of the call graph (i.e., unreachable)
+        // form SCCs of their own
+        this.sccs = callGraph.getSccs();
+        for (TacFunction function : analysis.getFunctions()) {
+            if (!callGraph.reachable(function)) {
+                List<TacFunction> scc = new LinkedList<TacFunction>();
+                scc.add(function);
+                this.sccs.add(scc);
+            }
+        }
+
+        this.function2Scc = new HashMap<TacFunction,Integer>();
+        int i = 0;
+        for (List<TacFunction> scc : this.sccs) {
+            for (TacFunction function : scc) {
+                this.function2Scc.put(function, i);
+            }
+            i++;
+        }
+
+        // level of an SCC: length of the longest path from a root SCC;
+        // since the SCCs are sorted topologically, the callers' levels
+        // are already known
+        int[] sccLevel = new int[this.sccs.size()];
+        int maxLevel = 0;
+        i = 0;
+        for (List<TacFunction> scc : this.sccs) {
+            for (TacFunction function : scc) {
+                if (!callGraph.reachable(function)) {
+                    continue;
+                }
+                for (CallGraphNode caller : callGraph.getCallers(function)) {
+                    int callerScc = this.function2Scc.get(caller.getFunction());
+                    if (callerScc != i && sccLevel[callerScc] + 1 > sccLevel[i]) {
+                        sccLevel[i] = sccLevel[callerScc] + 1;
+                    }
+                }
+            }
+            maxLevel = Math.max(maxLevel, sccLevel[i]);
+            i++;
+        }
+        this.levels = new ArrayList<List<Integer>>();
+        for (int level = 0; level <= maxLevel; level++) {
+            this.levels.add(new LinkedList<Integer>());
+        }
+        for (i = 0; i < sccLevel.length; i++) {
+            this.levels.get(sccLevel[i]).add(i);
+        }
+
+        this.externallyCalled = new HashSet<TacFunction>();
+        for (TacFunction function : analysis.getFunctions()) {
+            Integer scc = this.function2Scc.get(function);
+            for (CfgNodeCall callNode : function.getCalledFrom()) {
+                if (!scc.equals(this.function2Scc.get(callNode.getEnclosingFunction()))) {
+                    this.externallyCalled.add(function);
+                    break;
+                }
+            }
+        }
+
+        this.workLists = new InterWorkList[this.sccs.size()];
+        this.deferred = new ArrayList<List<InterWorkListElement>>();
+        if (analysis.workList instanceof InterWorkListBetter) {
+            this.makeSparseWorkLists(((InterWorkListBetter) analysis.workList).getOrder());
+        }
+        for (i = 0; i < this.workLists.length; i++) {
+            if (this.workLists[i] == null) {
+                this.workLists[i] = new InterWorkListPoor();
+            }
+            this.deferred.add(new LinkedList<InterWorkListElement>());
+        }
+        this.router = new Router();
+        this.steps = new int[this.sccs.size()];
+    }
+
+    // creates the worklists of the SCCs, each one covering the reverse
+    // postorders of the nodes inside its SCC
+    private void makeSparseWorkLists(InterWorkListOrder order) {
+
+        // reverse postorder -> SCC, and the number of elements per SCC
+        int[] rpo2Scc = new int[order.size()];
+        int[] counts = new int[this.sccs.size()];
+        for (int rpo = 0; rpo < rpo2Scc.length; rpo++) {
+            TacFunction function = order.getElement(rpo).getCfgNode().getEnclosingFunction();
+            rpo2Scc[rpo] = this.function2Scc.get(function);
+            counts[rpo2Scc[rpo]]++;
+        }
+
+        // number the reverse postorders densely within each SCC
+        int[] local = new int[rpo2Scc.length];
+        int[][] rpos = new int[counts.length][];
+        for (int scc = 0; scc < counts.length; scc++) {
+            rpos[scc] = new int[counts[scc]];
+            counts[scc] = 0;
+        }
+        for (int rpo = 0; rpo < rpo2Scc.length; rpo++) {
+            int scc = rpo2Scc[rpo];
+            local[rpo] = counts[scc];
+            rpos[scc][counts[scc]++] = rpo;
+        }
+
+        for (int scc = 0; scc < counts.length; scc++) {
+            this.workLists[scc] = new InterWorkListSparse(order, local, rpos[scc]);
+        }
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+//  solve **************************************************************************
+
+    // solves the analysis; returns the number of processed worklist elements
+    int solve() {
+
+        // distribute the initial worklist
+        while (this.analysis.workList.hasNext()) {
+            InterWorkListElement element = this.analysis.workList.removeNext();
+            this.router.add(element.getCfgNode(), element.getContext());
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        try {
+            boolean pending = true;
+            while (pending) {
+                pending = false;
+                for (List<Integer> level : this.levels) {
+                    List<Integer> wave = new LinkedList<Integer>();
+                    for (Integer scc : level) {
+                        if (this.workLists[scc].hasNext()) {
+                            wave.add(scc);
+                        }
+                    }
+                    if (wave.isEmpty()) {
+                        continue;
+                    }
+                    pending = true;
+                    this.waves++;
+
+                    if (wave.size() == 1) {
+                        this.solveScc(wave.get(0));
+                    } else {
+                        this.parallelWaves++;
+                        this.solveWave(pool, wave);
+                    }
+
+                    // process the elements that cross SCC boundaries
+                    for (Integer scc : wave) {
+                        List<InterWorkListElement> deferredHere = this.deferred.get(scc);
+                        while (!deferredHere.isEmpty()) {
+                            this.deferredSteps++;
+                            this.analysis.visit(deferredHere.remove(0), this.router);
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        int total = this.deferredSteps;
+        for (int s : this.steps) {
+            total += s;
+        }
+        return total;
+    }
+
+//  solveWave **********************************************************************
+
+    // solves the given (independent) SCCs concurrently
+    private void solveWave(ForkJoinPool pool, List<Integer> wave) {
+
+        List<Callable<Object>> tasks = new LinkedList<Callable<Object>>();
+        for (final Integer scc : wave) {
+            tasks.add(new Callable<Object>() {
+                public Object call() {
+                    solveScc(scc);
+                    return null;
+                }
+            });
+        }
+
+        for (Future<Object> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+//  solveScc ***********************************************************************
+
+    // runs the worklist algorithm on the given SCC until its worklist
+    // is empty; elements crossing SCC boundaries are deferred
+    private void solveScc(int scc) {
+        InterWorkList workList = this.workLists[scc];
+        List<InterWorkListElement> deferredHere = this.deferred.get(scc);
+        int steps = 0;
+        while (workList.hasNext()) {
+            InterWorkListElement element = workList.removeNext();
+            if (this.crossesScc(element.getCfgNode(), scc)) {
+                deferredHere.add(element);
+                continue;
+            }
+            steps++;
+            this.analysis.visit(element, workList);
+        }
+        this.steps[scc] += steps;
+    }
+
+//  crossesScc *********************************************************************
+
+    // does the processing of this node read or write analysis information
+    // of another SCC?
+    private boolean crossesScc(CfgNode node, int scc) {
+        if (node instanceof CfgNodeCall) {
+            TacFunction callee = ((CfgNodeCall) node).getCallee();
+            if (callee == null) {
+                return false;
+            }
+            Integer calleeScc = this.function2Scc.get(callee);
+            return (calleeScc == null || calleeScc != scc);
+        } else if (node instanceof CfgNodeExit) {
+            return this.externallyCalled.contains(node.getEnclosingFunction());
+        }
+        return false;
+    }
+
+//  stats **************************************************************************
+
+    void stats() {
+        int largest = 0;
+        for (List<TacFunction> scc : this.sccs) {
+            largest = Math.max(largest, scc.size());
+        }
+        System.out.println("SCCs:             " + this.sccs.size() + " (largest: " + largest + ")");
+        System.out.println("Levels:           " + this.levels.size());
+        System.out.println("Waves:            " + this.waves + " (parallel: " + this.parallelWaves + ")");
+        System.out.println("Deferred steps:   " + this.deferredSteps);
+    }
+
+// *********************************************************************************
+// Router **************************************************************************
+// *********************************************************************************
+
+    private class Router
+    implements InterWorkList {
+
+        public void add(CfgNode cfgNode, Context context) {
+            Integer scc = function2Scc.get(cfgNode.getEnclosingFunction());
+            if (scc == null) {
+                throw new RuntimeException("SNH");
+            }
+            workLists[scc].add(cfgNode, context);
+        }
+
+        public InterWorkListElement removeNext() {
+            throw new RuntimeException("SNH");
+        }
+
+        public boolean hasNext() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package analysis.inter;
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+import pixy.MyOptions;
+import analysis.LatticeElement;
+import conversion.TacFunction;
+import conversion.nodes.CfgNode;
+
+// spills the phi maps of cold functions to disk when the heap runs full
+// (see MyOptions.spillThreshold): whenever the old generation is fuller
+// than the threshold, the phi maps of the functions that haven't been
+// visited by the worklist algorithm for the longest time are encoded (see
+// InterCodec) and appended to a temporary file; after that, the old
+// generation has to be collected before spilling again; the
+// contexts stay on the heap, the values are read back as soon as someone
+// accesses the phi map of the node (see InterAnalysisNode.pageIn);
+// the lattice elements must be recycled by a weak repository, such that
+// spilled values can actually be collected
+final class InterSpillStore {
+
+    // number of steps between two checks of the heap
+    private static final int CHECK_STEPS = 1000;
+
+    // functions visited during this number of most recent steps are
+    // never spilled
+    private static final int MIN_AGE = 10000;
+
+    private InterAnalysis analysis;
+    private InterCodec codec;
+
+    // the spill file (appended to, read at arbitrary positions)
+    private File file;
+    private FileChannel channel;
+
+    // the memory pools checked for heap pressure (the old generation),
+    // their collectors, and the number of collections at the last spilling
+    private List<MemoryPoolMXBean> pools;
+    private List<GarbageCollectorMXBean> collectors;
+    private long collections;
+
+    // function -> step of the last visit
+    private Map<TacFunction,Long> lastVisits;
+    private long steps;
+
+    // number of spilled and paged-in phi maps
+    private long spilled;
+    private long pagedIn;
+
+    // set if a value couldn't be spilled
+    private boolean disabled;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    private InterSpillStore(InterAnalysis analysis) throws IOException {
+        this.analysis = analysis;
+        this.codec = new InterCodec(analysis);
+        File dir = (MyOptions.spillPath == null ? null : new File(MyOptions.spillPath));
+        this.file = File.createTempFile("pixy", ".spill", dir);
+        this.file.deleteOnExit();
+        this.channel = new RandomAccessFile(this.file, "rw").getChannel();
+        this.lastVisits = new HashMap<TacFunction,Long>();
+
+        // the heap pools that support usage thresholds are the ones that
+        // survive young collections (the old generation)
+        this.pools = new ArrayList<MemoryPoolMXBean>();
+        Set<String> poolNames = new HashSet<String>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            long max = pool.getUsage().getMax();
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() &&
+                    max > 0) {
+                pool.setUsageThreshold((long) (max * MyOptions.spillThreshold));
+                this.pools.add(pool);
+                poolNames.add(pool.getName());
+            }
+        }
+        this.collectors = new ArrayList<GarbageCollectorMXBean>();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!Collections.disjoint(poolNames, Arrays.asList(collector.getMemoryPoolNames()))) {
+                this.collectors.add(collector);
+            }
+        }
+        this.collections = -1;
+    }
+
+    // returns a spill store for the given analysis, or null if its phi
+    // values can't be spilled
+    static InterSpillStore create(InterAnalysis analysis) {
+        if (!InterCodec.isSupported(analysis) || analysis.chainNext != null) {
+            // shared phi maps (bypassed identity chains) can't be spilled
+            // node by node
+            if (!MyOptions.optionB && MyOptions.optionV) {
+                System.out.println("Warning: no spilling for " +
+                        analysis.getClass().getSimpleName());
+            }
+            return null;
+        }
+        try {
+            return new InterSpillStore(analysis);
+        } catch (IOException e) {
+            System.out.println("Warning: no spilling: " + e.getMessage());
+            return null;
+        }
+    }
+
+// *********************************************************************************
+// SPILLING ************************************************************************
+// *********************************************************************************
+
+//  step ***************************************************************************
+
+    // called for each step of the worklist algorithm; spills cold phi
+    // maps if the heap is under pressure
+    void step(CfgNode node) {
+        this.steps++;
+        this.lastVisits.put(node.getEnclosingFunction(), this.steps);
+        if (this.steps % CHECK_STEPS == 0 && !this.disabled && this.isUnderPressure()) {
+            this.spillColdFunctions();
+        }
+    }
+
+    // is the old generation fuller than the threshold (and has it been
+    // collected since the last spilling)?
+    private boolean isUnderPressure() {
+        long collections = this.getCollections();
+        if (collections == this.collections) {
+            return false;
+        }
+        for (MemoryPoolMXBean pool : this.pools) {
+            if (pool.isUsageThresholdExceeded()) {
+                this.collections = collections;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long getCollections() {
+        long retMe = 0;
+        for (GarbageCollectorMXBean collector : this.collectors) {
+            retMe += collector.getCollectionCount();
+        }
+        return retMe;
+    }
+
+//  spillColdFunctions *************************************************************
+
+    // spills the phi maps of the colder half of the functions that weren't
+    // visited recently (functions that were never visited come first)
+    private void spillColdFunctions() {
+
+        List<TacFunction> candidates = new ArrayList<TacFunction>();
+        for (TacFunction function : this.analysis.getFunctions()) {
+            if (this.getAge(function) > MIN_AGE) {
+                candidates.add(function);
+            }
+        }
+        Collections.sort(candidates, new Comparator<TacFunction>() {
+            public int compare(TacFunction f1, TacFunction f2) {
+                long a1 = getAge(f1);
+                long a2 = getAge(f2);
+                return (a1 < a2 ? 1 : (a1 == a2 ? 0 : -1));
+            }
+        });
+
+        long spilledBefore = this.spilled;
+        for (TacFunction function : candidates.subList(0, (candidates.size() + 1) / 2)) {
+            for (CfgNode node : InterCodec.getNodes(function)) {
+                InterAnalysisNode analysisNode = this.analysis.getAnalysisNode(node);
+                if (analysisNode != null && !this.spill(analysisNode)) {
+                    return;
+                }
+            }
+        }
+        if (!MyOptions.optionB && MyOptions.optionV) {
+            System.out.println("Spilled " + (this.spilled - spilledBefore) +
+                    " phi maps of " + (candidates.size() + 1) / 2 + " functions");
+        }
+    }
+
+    private long getAge(TacFunction function) {
+        Long lastVisit = this.lastVisits.get(function);
+        return this.steps - (lastVisit == null ? 0 : lastVisit);
+    }
+
+//  spill **************************************************************************
+
+    // spills the phi map of the given node (unless it is empty or already
+    // spilled); returns false if spilling failed (and is disabled from now on)
+    private boolean spill(InterAnalysisNode analysisNode) {
+
+        if (this.disabled) {
+            return false;
+        }
+        if (analysisNode.spilled != null || analysisNode.phi == null ||
+                analysisNode.phi.isEmpty()) {
+            return true;
+        }
+
+        // each distinct value is encoded only once per map
+        Context[] contexts = new Context[analysisNode.phi.size()];
+        Map<LatticeElement,Integer> written = new IdentityHashMap<LatticeElement,Integer>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InterCodec.Output out = this.codec.output(bytes);
+        try {
+            int i = 0;
+            for (Map.Entry<Context,LatticeElement> entry : analysisNode.phi.entrySet()) {
+                contexts[i++] = entry.getKey();
+                Integer index = written.get(entry.getValue());
+                out.writeInt(index == null ? -1 : index);
+                if (index == null) {
+                    written.put(entry.getValue(), written.size());
+                    this.analysis.writeValue(entry.getValue(), out);
+                }
+            }
+            out.flush();
+
+            long position = this.channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                this.channel.write(buffer, position + buffer.position());
+            }
+            analysisNode.spilled = new Page(position, bytes.size(), contexts);
+        } catch (IOException e) {
+            System.out.println("Warning: spilling disabled: " + e.getMessage());
+            this.disabled = true;
+            return false;
+        }
+
+        analysisNode.phi.clear();
+        this.spilled++;
+        return true;
+    }
+
+//  pageIn *************************************************************************
+
+    // reads the given spilled phi map back into the given map
+    private void pageIn(Page page, Map<Context,LatticeElement> phi) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(page.length);
+            while (buffer.hasRemaining()) {
+                if (this.channel.read(buffer, page.position + buffer.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            InterCodec.Input in = this.codec.input(buffer.array());
+            List<LatticeElement> values = new ArrayList<LatticeElement>();
+            for (Context context : page.contexts) {
+                int index = in.readInt();
+                LatticeElement value;
+                if (index == -1) {
+                    value = this.analysis.readValue(in);
+                    values.add(value);
+                } else {
+                    value = values.get(index);
+                }
+                phi.put(context, value);
+            }
+        } catch (IOException e) {
+            // the values are lost
+            throw new RuntimeException("SNH: can't read spilled values: " + e.getMessage());
+        }
+        this.pagedIn++;
+    }
+
+//  stats **************************************************************************
+
+    void stats() {
+        System.out.println("Spilled phi maps: " + this.spilled + ", paged in: " +
+                this.pagedIn + ", spill file: " + this.file.length() / 1024 + " KB");
+    }
+
+// *********************************************************************************
+// PAGE ****************************************************************************
+// *********************************************************************************
+
+    // the location of a spilled phi map, together with its contexts (in the
+    // order of the encoded values)
+    final class Page {
+
+        private long position;
+        private int length;
+        private Context[] contexts;
+
+        private Page(long position, int length, Context[] contexts) {
+            this.position = position;
+            this.length = length;
+            this.contexts = contexts;
+        }
+
+        // reads the values back into the given (empty) phi map
+        void pageIn(Map<Context,LatticeElement> phi) {
+            InterSpillStore.this.pageIn(this, phi);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package analysis.inter;
+
+import java.util.*;
+
+import pixy.MyOptions;
+import conversion.TacConverter;
+
+// program-level cache of the interprocedural structures needed by the
+// call-string analyses (connector computations and worklist orders, per
+// call-string length, and the call graph, which doesn't depend on the
+// call-string length); all phases of a scan that analyze the same version
+// of the program share these structures instead of rebuilding them;
+// the program converter invalidates the cache whenever the program changes
+// (included files are spliced in, calls are backpatched, cfgs are
+// rewritten), which starts a new program version
+public class InterStructure {
+
+    private TacConverter tac;
+
+    // incremented by each invalidation
+    private int version;
+
+    // call-string length -> connector computation for the current version
+    private Map<Integer,ConnectorComputation> connectors;
+
+    // call-string length -> worklist order for the current version
+    private Map<Integer,InterWorkListOrder> orders;
+
+    // the call graph of the current version (null if not computed yet)
+    private CallGraph callGraph;
+
+    // statistics: structures built and reused for the current version
+    private int builds;
+    private int hits;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    public InterStructure(TacConverter tac) {
+        this.tac = tac;
+        this.version = 0;
+        this.connectors = new HashMap<Integer,ConnectorComputation>();
+        this.orders = new HashMap<Integer,InterWorkListOrder>();
+    }
+
+// *********************************************************************************
+// GET *****************************************************************************
+// *********************************************************************************
+
+    // returns the (computed) connectors for the given call-string length
+    public ConnectorComputation getConnectorComputation(int kSize) {
+        if (this.connectors.containsKey(kSize)) {
+            this.hits++;
+        }
+        return this.computeConnectors(kSize);
+    }
+
+    // returns a new (empty) worklist for the given call-string length,
+    // ordered by the shared worklist order; orders are immutable, so any
+    // number of worklists (for the same or different call-string lengths)
+    // can be in use at the same time
+    public InterWorkList createWorkList(int kSize) {
+        InterWorkListOrder order = this.orders.get(kSize);
+        if (order == null) {
+            order = new InterWorkListOrder(this.tac, this.computeConnectors(kSize));
+            this.orders.put(kSize, order);
+            this.builds++;
+        } else {
+            this.hits++;
+        }
+        return new InterWorkListBetter(order);
+    }
+
+    // the connectors for different call-string lengths share the call graph
+    private ConnectorComputation computeConnectors(int kSize) {
+        ConnectorComputation connectorComp = this.connectors.get(kSize);
+        if (connectorComp == null) {
+            connectorComp = new ConnectorComputation(this.tac.getAllFunctions(),
+                    this.tac.getMainFunction(), kSize, this.callGraph);
+            connectorComp.compute();
+            this.callGraph = connectorComp.getCallGraph();
+            this.connectors.put(kSize, connectorComp);
+            this.builds++;
+        }
+        return connectorComp;
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+    // drops all structures; has to be called whenever the program changes
+    public void invalidate() {
+        if (!MyOptions.optionB && MyOptions.optionV && (this.builds > 0 || this.hits > 0)) {
+            System.out.println("Interprocedural structures (version " + this.version + "): " +
+                    this.builds + " built, " + this.hits + " reused");
+        }
+        this.version++;
+        this.connectors.clear();
+        this.orders.clear();
+        this.callGraph = null;
+        this.builds = 0;
+        this.hits = 0;
+    }
+}
@@ -0,0 +1,208 @@
+package analysis.inter;
+
+import java.util.*;
+
+import pixy.MyOptions;
+import analysis.Lattice;
+import analysis.LatticeElement;
+import conversion.TacFunction;
+import conversion.nodes.CfgNodeCall;
+
+// memoized function summaries for call-string analyses;
+// a summary is identified by the callee and by a key that abstracts the
+// callee's entry value (see InterAnalysis.getSummaryKey); the first callee
+// context that is entered with a certain key becomes a "producer" of the
+// corresponding summary, and its exit values are collected in the summary;
+// calls under other contexts with the same key become "users" of the summary:
+// instead of entering the callee again, they directly receive the summary's
+// exit value (and are revisited whenever this value grows);
+// the callee contexts that were not entered due to a summary can be 
+// resolved to the producers of the used summaries (see getProducers)
+final class InterSummaries {
+
+    private static class Summary {
+
+        // callee contexts whose exit values are collected here
+        Set<Context> producers = new LinkedHashSet<Context>();
+
+        // lub of the exit values of the producers (null if there is none yet)
+        LatticeElement exitValue;
+
+        // call nodes (under the calling context) that use this summary
+        Set<InterWorkListElement> users = new LinkedHashSet<InterWorkListElement>();
+    }
+
+    // callee -> key -> summary
+    private Map<TacFunction,Map<Object,Summary>> summaries;
+
+    // callee -> callee context -> summaries that are produced by this context
+    private Map<TacFunction,Map<Context,List<Summary>>> produced;
+
+    // callee -> callee context that was not entered due to a summary ->
+    // producers of the used summaries
+    private Map<TacFunction,Map<Context,Set<Context>>> aliases;
+
+    // statistics
+    private int producerCount;
+    private int reuseCount;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    InterSummaries() {
+        this.summaries = new HashMap<TacFunction,Map<Object,Summary>>();
+        this.produced = new HashMap<TacFunction,Map<Context,List<Summary>>>();
+        this.aliases = new HashMap<TacFunction,Map<Context,Set<Context>>>();
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+//  reuse **************************************************************************
+
+    // called for a call node (under the given calling context) that would
+    // enter the callee under the given propagation context;
+    // returns false if the callee has to be entered as usual;
+    // otherwise, the call node is registered as user of the corresponding summary,
+    // and the current exit value of this summary (possibly null) is put into
+    // the given one-element array
+    synchronized boolean reuse(CfgNodeCall callNode, Context context, TacFunction callee,
+            Object key, Context propagationContext, InterAnalysisNode exitAnalysisNode,
+            LatticeElement[] exitValue) {
+
+        Map<Object,Summary> calleeSummaries = this.summaries.get(callee);
+        if (calleeSummaries == null) {
+            calleeSummaries = new HashMap<Object,Summary>();
+            this.summaries.put(callee, calleeSummaries);
+        }
+
+        Summary summary = calleeSummaries.get(key);
+        if (summary == null) {
+            // the first one with this key
+            summary = new Summary();
+            calleeSummaries.put(key, summary);
+        }
+
+        if (summary.producers.isEmpty() || summary.producers.contains(propagationContext)) {
+            if (summary.producers.add(propagationContext)) {
+                this.producerCount++;
+                Map<Context,List<Summary>> calleeProduced = this.produced.get(callee);
+                if (calleeProduced == null) {
+                    calleeProduced = new HashMap<Context,List<Summary>>();
+                    this.produced.put(callee, calleeProduced);
+                }
+                List<Summary> contextProduced = calleeProduced.get(propagationContext);
+                if (contextProduced == null) {
+                    contextProduced = new LinkedList<Summary>();
+                    calleeProduced.put(propagationContext, contextProduced);
+                }
+                contextProduced.add(summary);
+
+                // the exit node might not be visited again
+                summary.exitValue = exitAnalysisNode.getPhiValue(propagationContext);
+            }
+            return false;
+        }
+
+        // reuse!
+        if (summary.users.add(new InterWorkListElement(callNode, context))) {
+            this.reuseCount++;
+            Map<Context,Set<Context>> calleeAliases = this.aliases.get(callee);
+            if (calleeAliases == null) {
+                calleeAliases = new HashMap<Context,Set<Context>>();
+                this.aliases.put(callee, calleeAliases);
+            }
+            Set<Context> contextAliases = calleeAliases.get(propagationContext);
+            if (contextAliases == null) {
+                contextAliases = new LinkedHashSet<Context>();
+                calleeAliases.put(propagationContext, contextAliases);
+            }
+            contextAliases.addAll(summary.producers);
+        }
+        exitValue[0] = summary.exitValue;
+        return true;
+    }
+
+//  exitReached ********************************************************************
+
+    // called for the exit node of the given function; adds the given exit value
+    // to all summaries produced by the given context, and returns the users
+    // that have to be revisited due to this
+    synchronized List<InterWorkListElement> exitReached(TacFunction function,
+            Context context, LatticeElement value, Lattice lattice) {
+
+        List<InterWorkListElement> revisit = new LinkedList<InterWorkListElement>();
+        Map<Context,List<Summary>> calleeProduced = this.produced.get(function);
+        if (calleeProduced == null) {
+            return revisit;
+        }
+        List<Summary> contextProduced = calleeProduced.get(context);
+        if (contextProduced == null) {
+            return revisit;
+        }
+
+        for (Summary summary : contextProduced) {
+            LatticeElement newValue;
+            if (summary.exitValue == null) {
+                newValue = value;
+            } else {
+                if (MyOptions.deltaPropagation) {
+                    newValue = lattice.lubDelta(value, summary.exitValue);
+                    if (newValue == summary.exitValue) {
+                        continue;
+                    }
+                } else {
+                    newValue = lattice.lub(value, summary.exitValue);
+                    if (summary.exitValue.equals(newValue)) {
+                        continue;
+                    }
+                }
+            }
+            summary.exitValue = newValue;
+            revisit.addAll(summary.users);
+        }
+        return revisit;
+    }
+
+//  getProducers *******************************************************************
+
+    // returns the contexts of the given callee whose exit values were used
+    // for calls that would have entered the callee under the given context
+    // (transitively, since producers might use other summaries as well);
+    // empty if there are no such contexts
+    synchronized Set<Context> getProducers(TacFunction callee, Context context) {
+        Set<Context> retMe = new LinkedHashSet<Context>();
+        Map<Context,Set<Context>> calleeAliases = this.aliases.get(callee);
+        if (calleeAliases == null) {
+            return retMe;
+        }
+        LinkedList<Context> todo = new LinkedList<Context>();
+        todo.add(context);
+        while (!todo.isEmpty()) {
+            Set<Context> producers = calleeAliases.get(todo.removeFirst());
+            if (producers == null) {
+                continue;
+            }
+            for (Context producer : producers) {
+                if (!producer.equals(context) && retMe.add(producer)) {
+                    todo.add(producer);
+                }
+            }
+        }
+        return retMe;
+    }
+
+//  stats **************************************************************************
+
+    void stats() {
+        int keys = 0;
+        for (Map<Object,Summary> calleeSummaries : this.summaries.values()) {
+            keys += calleeSummaries.size();
+        }
+        System.out.println("Summary keys:     " + keys);
+        System.out.println("Summary entries:  " + this.producerCount);
+        System.out.println("Summary reuses:   " + this.reuseCount);
+    }
+}
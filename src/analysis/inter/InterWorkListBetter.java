@@ -1,7 +1,6 @@
 package analysis.inter;
 
-import java.util.*;
-
+import analysis.inter.callstring.CSContext;
 import conversion.nodes.CfgNode;
 
 // this interprocedural worklist uses a better order (interprocedural reverse postorder)
@@ -9,7 +8,17 @@ public final class InterWorkListBetter
 implements InterWorkList {
 
     private InterWorkListOrder order;
-    private SortedMap<Integer, InterWorkListElement> sortedWorkList;
+
+    // the worklist is a bitset over the reverse postorder indices;
+    // an element that is already contained is not added twice
+    private long[] bits;
+    
+    // no bit below this index is set; since we always remove the element
+    // with the smallest index, the scan for the next element can start here
+    private int lowest;
+    
+    // number of set bits
+    private int size;
 
 // *********************************************************************************
 // CONSTRUCTORS ********************************************************************
@@ -17,7 +26,17 @@ implements InterWorkList {
     
     public InterWorkListBetter(InterWorkListOrder order) {
         this.order = order;
-        this.sortedWorkList = new TreeMap<Integer, InterWorkListElement>();
+        this.bits = new long[(order.size() + 63) >>> 6];
+        this.lowest = this.bits.length << 6;
+        this.size = 0;
+    }
+
+// *********************************************************************************
+// GET *****************************************************************************
+// *********************************************************************************
+
+    InterWorkListOrder getOrder() {
+        return this.order;
     }
 
 // *********************************************************************************
@@ -29,23 +48,43 @@ implements InterWorkList {
         if (context == null) {
             throw new RuntimeException("SNH");
         }
-        InterWorkListElement element = new InterWorkListElement(cfgNode, context);
-        
-        Integer rpo = this.order.getReversePostOrder(element);
-        if (rpo == null) {
+        int rpo = this.order.getReversePostOrder(cfgNode, ((CSContext) context).getPosition());
+        if (rpo == -1) {
             throw new RuntimeException("SNH");
         }
-        this.sortedWorkList.put(rpo, element);
-
+        this.add(rpo);
+    }
+    
+    private void add(int rpo) {
+        int word = rpo >>> 6;
+        long mask = 1L << rpo;
+        if ((this.bits[word] & mask) != 0) {
+            return;
+        }
+        this.bits[word] |= mask;
+        this.size++;
+        if (rpo < this.lowest) {
+            this.lowest = rpo;
+        }
     }
 
     public InterWorkListElement removeNext() {
-        Integer key = this.sortedWorkList.firstKey();
-        return this.sortedWorkList.remove(key);
+        if (this.size == 0) {
+            throw new java.util.NoSuchElementException();
+        }
+        int word = this.lowest >>> 6;
+        while (this.bits[word] == 0) {
+            word++;
+        }
+        int rpo = (word << 6) + Long.numberOfTrailingZeros(this.bits[word]);
+        this.bits[word] &= ~(1L << rpo);
+        this.size--;
+        this.lowest = rpo + 1;
+        return this.order.getElement(rpo);
     }
 
     public boolean hasNext() {
-        if (this.sortedWorkList.isEmpty()) {
+        if (this.size == 0) {
             return false;
         } else {
             return true;
@@ -7,19 +7,36 @@ import conversion.*;
 import conversion.nodes.*;
 
 // computes a reverse postorder for the whole, interprocedural cfg;
-// currently only works for call-string analysis
+// currently only works for call-string analysis;
+// (node, context) pairs are numbered densely: every cfg node of a function
+// gets an index, and the pair (node, context position) is mapped to the
+// "slot" base[node index] + context position
 public class InterWorkListOrder {
     
-    // this is what we want to compute: a mapping of interprocedural
-    // worklist elements to some number (order)
-    private Map<InterWorkListElement,Integer> order;
+    // index -> cfg node
+    private CfgNode[] nodes;
+    
+    // cfg node -> index (the inverse of "nodes"); kept here instead of in
+    // the nodes, such that several orders can be used at the same time
+    private Map<CfgNode,Integer> indices;
+    
+    // index -> number of contexts of the node's function
+    private int[] numContexts;
+    
+    // index -> slot of the node's first context
+    private int[] base;
+    
+    // this is what we want to compute: a mapping of slots to
+    // some number (order); -1 for unreachable slots
+    private int[] order;
+    
+    // the inverse mapping: reverse postorder -> worklist element
+    private InterWorkListElement[] elements;
     
 //  ********************************************************************************
     
     public InterWorkListOrder(TacConverter tac, ConnectorComputation cc) {
         
-        this.order = new HashMap<InterWorkListElement,Integer>();
-        
         TacFunction mainFunction = tac.getMainFunction();
         CfgNode startNode = mainFunction.getCfg().getHead();
         
@@ -28,37 +45,103 @@ public class InterWorkListOrder {
         if (mainECS.size() != 1) {
             throw new RuntimeException("SNH");
         }
+        
+        int numSlots = this.index(function2ECS);
+        this.order = new int[numSlots];
+        Arrays.fill(this.order, -1);
 
-        InterWorkListElement start = new InterWorkListElement(startNode, new CSContext(0)); 
-        LinkedList<InterWorkListElement> postorder = this.getPostorder(start, cc);
+        int[] postorder = this.getPostorder(this.getIndex(startNode), numSlots, cc);
         
-        // get *reverse* postorder
-        ListIterator iter = postorder.listIterator(postorder.size());
-        int i = 0;
-        while (iter.hasPrevious()) {
-            InterWorkListElement iwle = (InterWorkListElement) iter.previous();
-            //CfgNode cfgNode = iwle.getCfgNode();
-            //System.out.println(cfgNode.toString());
-            this.order.put(iwle, i);
-            i++;
+        // get *reverse* postorder; the postorder array contains pairs
+        // of node index and context position
+        int size = postorder.length / 2;
+        this.elements = new InterWorkListElement[size];
+        for (int i = 0; i < size; i++) {
+            int j = 2 * (size - 1 - i);
+            int node = postorder[j];
+            int position = postorder[j + 1];
+            this.order[this.base[node] + position] = i;
+            this.elements[i] = new InterWorkListElement(this.nodes[node], new CSContext(position));
         }
     }
 
 //  ********************************************************************************
     
-    // non-recursive postorder
-    private LinkedList<InterWorkListElement> getPostorder(
-            InterWorkListElement start, ConnectorComputation cc) {
+    // assigns indices to the cfg nodes of all functions that have contexts;
+    // returns the total number of slots
+    private int index(Map<TacFunction,ECS> function2ECS) {
+        
+        List<CfgNode> nodeList = new ArrayList<CfgNode>();
+        List<Integer> contextList = new ArrayList<Integer>();
+        this.indices = new IdentityHashMap<CfgNode,Integer>();
+        
+        for (Map.Entry<TacFunction,ECS> entry : function2ECS.entrySet()) {
+            int contexts = entry.getValue().size();
+            if (contexts == 0) {
+                continue;
+            }
+            
+            // depth-first traversal along the function's edges;
+            // calls are connected with their callret nodes by a normal edge
+            LinkedList<CfgNode> stack = new LinkedList<CfgNode>();
+            stack.add(entry.getKey().getCfg().getHead());
+            while (!stack.isEmpty()) {
+                CfgNode cfgNode = stack.removeLast();
+                if (this.indices.containsKey(cfgNode)) {
+                    continue;
+                }
+                this.indices.put(cfgNode, nodeList.size());
+                nodeList.add(cfgNode);
+                contextList.add(contexts);
+                for (int i = 1; i >= 0; i--) {
+                    CfgEdge outEdge = cfgNode.getOutEdge(i);
+                    if (outEdge != null) {
+                        stack.add(outEdge.getDest());
+                    }
+                }
+            }
+        }
+        
+        this.nodes = nodeList.toArray(new CfgNode[nodeList.size()]);
+        this.numContexts = new int[this.nodes.length];
+        this.base = new int[this.nodes.length];
+        int numSlots = 0;
+        for (int i = 0; i < this.nodes.length; i++) {
+            this.numContexts[i] = contextList.get(i);
+            this.base[i] = numSlots;
+            numSlots += this.numContexts[i];
+        }
+        return numSlots;
+    }
+    
+//  ********************************************************************************
+    
+    // returns the index of the given cfg node, or -1 if it is not covered
+    // by this order
+    private int getIndex(CfgNode cfgNode) {
+        Integer index = this.indices.get(cfgNode);
+        return (index == null ? -1 : index);
+    }
+    
+//  ********************************************************************************
+    
+    // non-recursive postorder; returns the visited (node index, context position)
+    // pairs in postorder, as consecutive entries of the returned array
+    private int[] getPostorder(int start, int numSlots, ConnectorComputation cc) {
 
         // this is what we want to compute
-        LinkedList<InterWorkListElement> postorder = new LinkedList<InterWorkListElement>();
+        int[] postorder = new int[64];
+        int postorderSize = 0;
         
-        // auxiliary stack and visited set
-        LinkedList<InterWorkListElement> stack = new LinkedList<InterWorkListElement>();
-        Set<InterWorkListElement> visited = new HashSet<InterWorkListElement>();
+        // auxiliary stack (pairs of node index and context position)
+        // and visited set (bitset over slots)
+        int[] stack = new int[64];
+        int stackSize = 0;
+        long[] visited = new long[(numSlots + 63) >>> 6];
 
         // begin with start element
-        stack.add(start);
+        stack[stackSize++] = start;
+        stack[stackSize++] = 0;
 
         // how it works:
         // while there is something on the stack:
@@ -66,18 +149,20 @@ public class InterWorkListOrder {
         // - try to get an unvisited successor of this element
         // - if there is such a successor: push it on the stack and continue
         // - else: pop the stack and add the popped element to the postorder list
-        while (!stack.isEmpty()) {
+        while (stackSize > 0) {
             
             // mark the top stack element as visited
-            InterWorkListElement element = stack.getLast();
-            visited.add(element);
+            int node = stack[stackSize - 2];
+            int position = stack[stackSize - 1];
+            int slot = this.base[node] + position;
+            visited[slot >>> 6] |= 1L << slot;
             
             // interior of this element
-            CfgNode cfgNode = element.getCfgNode();
-            CSContext context = (CSContext) element.getContext();
+            CfgNode cfgNode = this.nodes[node];
             
             // we will try to get an unvisited successor element
-            InterWorkListElement nextElement = null;
+            int nextNode = -1;
+            int nextPosition = -1;
             
             if (cfgNode instanceof CfgNodeCall) {
                 
@@ -91,29 +176,27 @@ public class InterWorkListOrder {
                     // for unknown calls:                    
                     // simply move on to the callret node; context stays the same
                     
-                    CfgNode retNode = callNode.getSuccessor(0);
-                    nextElement = new InterWorkListElement(retNode, context);
-                    
-                    if (visited.contains(nextElement)) {
-                        nextElement = null;
-                    }
+                    nextNode = this.getIndex(callNode.getSuccessor(0));
+                    nextPosition = position;
                     
                 } else {
                     
                     // for normal calls:
                     // enter function under corresponding context
                     
-                    CfgNodeEntry entryNode = (CfgNodeEntry) callee.getCfg().getHead();
-                    Context propagationContext = cc.getTargetContext(callNode, context.getPosition());
+                    CSContext propagationContext = cc.getTargetContext(callNode, position);
                     if (propagationContext == null) {
                         throw new RuntimeException("SNH: " + callNode.getLoc());
                     }
-                    nextElement = new InterWorkListElement(entryNode, propagationContext);
-                    
-                    if (visited.contains(nextElement)) {
-                        nextElement = null;
-                    }
-
+                    nextNode = this.getIndex(callee.getCfg().getHead());
+                    nextPosition = propagationContext.getPosition();
+                }
+                
+                if (nextNode == -1) {
+                    throw new RuntimeException("SNH: " + callNode.getLoc());
+                }
+                if (this.isVisited(visited, nextNode, nextPosition)) {
+                    nextNode = -1;
                 }
                 
             } else if (cfgNode instanceof CfgNodeExit) {
@@ -127,24 +210,24 @@ public class InterWorkListOrder {
                     // an exit node can have several "reverse targets";
                     // a reverse target consists of one call node and one or more contexts
                     
-                    Iterator<ReverseTarget> revTargetsIter = cc.getReverseTargets(exitedFunction, context.getPosition()).iterator();
-                    while ((nextElement == null) && revTargetsIter.hasNext()) {
+                    Iterator<ReverseTarget> revTargetsIter = cc.getReverseTargets(exitedFunction, position).iterator();
+                    while ((nextNode == -1) && revTargetsIter.hasNext()) {
 
                         ReverseTarget revTarget = revTargetsIter.next();
                         CfgNodeCall revCall = revTarget.getCallNode();
-                        CfgNode revRet = revCall.getSuccessor(0);
+                        int revRet = this.getIndex(revCall.getSuccessor(0));
+                        if (revRet == -1) {
+                            throw new RuntimeException("SNH: " + revCall.getLoc());
+                        }
                         Iterator<? extends Context> reverseContextsIter = revTarget.getContexts().iterator();
                         
-                        while ((nextElement == null) && reverseContextsIter.hasNext()) {
-                            
-                            Context reverseContext = reverseContextsIter.next();
-                            nextElement = new InterWorkListElement(revRet, reverseContext);
+                        while ((nextNode == -1) && reverseContextsIter.hasNext()) {
                             
-                            if (visited.contains(nextElement)) {
-                                // try the next one
-                                nextElement = null;
-                            } else {
+                            int reversePosition = ((CSContext) reverseContextsIter.next()).getPosition();
+                            if (!this.isVisited(visited, revRet, reversePosition)) {
                                 // found it!
+                                nextNode = revRet;
+                                nextPosition = reversePosition;
                             }
                         }
                     }
@@ -153,35 +236,45 @@ public class InterWorkListOrder {
             } else {
                 
                 // handle successors
-                for (int i = 0; (i < 2) && (nextElement == null); i++) {
+                for (int i = 0; (i < 2) && (nextNode == -1); i++) {
                     CfgEdge outEdge = cfgNode.getOutEdge(i);
                     if (outEdge != null) {
-                        CfgNode succNode = outEdge.getDest();
-                        nextElement = new InterWorkListElement(succNode, context);
-                        if (visited.contains(nextElement)) {
-                            // try next one
-                            nextElement = null;
-                        } else {
+                        int succNode = this.getIndex(outEdge.getDest());
+                        if (!this.isVisited(visited, succNode, position)) {
                             // found it!
+                            nextNode = succNode;
+                            nextPosition = position;
                         }
                     }
                 }
             }
             
-            if (nextElement == null) {
+            if (nextNode == -1) {
                 // pop from stack and add it to the postorder list
-                postorder.add(stack.removeLast());
+                if (postorderSize == postorder.length) {
+                    postorder = Arrays.copyOf(postorder, 2 * postorder.length);
+                }
+                postorder[postorderSize++] = node;
+                postorder[postorderSize++] = position;
+                stackSize -= 2;
             } else {
                 // push to stack
-                stack.add(nextElement);
+                if (stackSize == stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                }
+                stack[stackSize++] = nextNode;
+                stack[stackSize++] = nextPosition;
             }
         }
         
-        return postorder;
-        
-        
-        
+        return Arrays.copyOf(postorder, postorderSize);
     }
+    
+    private boolean isVisited(long[] visited, int node, int position) {
+        int slot = this.base[node] + position;
+        return (visited[slot >>> 6] & (1L << slot)) != 0;
+    }
+    
 //  ********************************************************************************
     
     // this was the old, recursive implementation: could make the stack too deep
@@ -270,8 +363,33 @@ public class InterWorkListOrder {
     
 //  ********************************************************************************
 
+    // returns the reverse postorder of the given cfg node under the
+    // given context position, or -1 if there is no such element
+    public int getReversePostOrder(CfgNode cfgNode, int contextPosition) {
+        int index = this.getIndex(cfgNode);
+        if (index == -1 || contextPosition < 0 || contextPosition >= this.numContexts[index]) {
+            return -1;
+        }
+        return this.order[this.base[index] + contextPosition];
+    }
+
     public Integer getReversePostOrder(InterWorkListElement element) {
-        return this.order.get(element);
+        int rpo = this.getReversePostOrder(element.getCfgNode(), 
+                ((CSContext) element.getContext()).getPosition());
+        if (rpo == -1) {
+            return null;
+        }
+        return rpo;
+    }
+    
+    // returns the element with the given reverse postorder
+    public InterWorkListElement getElement(int reversePostOrder) {
+        return this.elements[reversePostOrder];
+    }
+    
+    // number of ordered elements; reverse postorders range from 0 to size() - 1
+    public int size() {
+        return this.elements.length;
     }
     
 
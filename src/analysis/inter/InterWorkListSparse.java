@@ -0,0 +1,96 @@
+package analysis.inter;
+
+import analysis.inter.callstring.CSContext;
+import conversion.nodes.CfgNode;
+
+// same order as InterWorkListBetter, but for worklists that only ever
+// contain a fixed part of the program (e.g., the nodes of a single
+// strongly connected component of the call graph); a bitset over the
+// whole reverse postorder would be too large in this case, so the
+// bitset only covers the reverse postorders of this part, which are
+// numbered densely (in ascending order)
+public final class InterWorkListSparse
+implements InterWorkList {
+
+    private InterWorkListOrder order;
+
+    // reverse postorder -> dense number within its part; shared by the
+    // worklists of all parts
+    private int[] local;
+
+    // dense number -> reverse postorder (ascending)
+    private int[] rpos;
+
+    // the worklist is a bitset over the dense numbers
+    private long[] bits;
+
+    // no bit below this index is set
+    private int lowest;
+
+    // number of set bits
+    private int size;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    // "rpos" are the (ascending) reverse postorders of the part covered by
+    // this worklist; "local" maps them to their positions in "rpos"
+    public InterWorkListSparse(InterWorkListOrder order, int[] local, int[] rpos) {
+        this.order = order;
+        this.local = local;
+        this.rpos = rpos;
+        this.bits = new long[(rpos.length + 63) >>> 6];
+        this.lowest = this.bits.length << 6;
+        this.size = 0;
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+    public void add(CfgNode cfgNode, Context context) {
+        // null contexts are not allowed
+        if (context == null) {
+            throw new RuntimeException("SNH");
+        }
+        int rpo = this.order.getReversePostOrder(cfgNode, ((CSContext) context).getPosition());
+        if (rpo == -1) {
+            throw new RuntimeException("SNH");
+        }
+        int index = this.local[rpo];
+        if (index >= this.rpos.length || this.rpos[index] != rpo) {
+            // not part of this worklist
+            throw new RuntimeException("SNH");
+        }
+        int word = index >>> 6;
+        long mask = 1L << index;
+        if ((this.bits[word] & mask) != 0) {
+            return;
+        }
+        this.bits[word] |= mask;
+        this.size++;
+        if (index < this.lowest) {
+            this.lowest = index;
+        }
+    }
+
+    public InterWorkListElement removeNext() {
+        if (this.size == 0) {
+            throw new java.util.NoSuchElementException();
+        }
+        int word = this.lowest >>> 6;
+        while (this.bits[word] == 0) {
+            word++;
+        }
+        int index = (word << 6) + Long.numberOfTrailingZeros(this.bits[word]);
+        this.bits[word] &= ~(1L << index);
+        this.size--;
+        this.lowest = index + 1;
+        return this.order.getElement(this.rpos[index]);
+    }
+
+    public boolean hasNext() {
+        return this.size > 0;
+    }
+}
@@ -8,7 +8,7 @@ public class CSAnalysisNode
 extends InterAnalysisNode {
 
     public CSAnalysisNode(CfgNode node, TransferFunction tf) {
-        super(tf);
+        super(tf, new CSPhiMap());
     }
 
 }
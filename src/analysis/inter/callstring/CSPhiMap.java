@@ -0,0 +1,177 @@
+package analysis.inter.callstring;
+
+import java.util.*;
+
+import analysis.LatticeElement;
+import analysis.inter.Context;
+
+// phi map for call-string analysis: since a call-string context is nothing
+// but a position in the ECS of the node's function, the values are stored
+// in an array indexed by this position (grown on demand); this avoids
+// hashing contexts and allocating one entry object per context
+public class CSPhiMap 
+extends AbstractMap<Context,LatticeElement> {
+
+    private static final LatticeElement[] EMPTY = new LatticeElement[0];
+    
+    // context position -> lattice element (null if there is none)
+    private LatticeElement[] values;
+    
+    // number of non-null values
+    private int size;
+    
+// *********************************************************************************    
+// CONSTRUCTORS ********************************************************************
+// ********************************************************************************* 
+
+    public CSPhiMap() {
+        this.values = EMPTY;
+        this.size = 0;
+    }
+    
+// *********************************************************************************    
+// GET *****************************************************************************
+// ********************************************************************************* 
+
+    public LatticeElement get(Object key) {
+        if (!(key instanceof CSContext)) {
+            return null;
+        }
+        int position = ((CSContext) key).getPosition();
+        if (position < this.values.length) {
+            return this.values[position];
+        }
+        return null;
+    }
+    
+    public boolean containsKey(Object key) {
+        return this.get(key) != null;
+    }
+    
+    public int size() {
+        return this.size;
+    }
+    
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+    
+// *********************************************************************************    
+// SET *****************************************************************************
+// ********************************************************************************* 
+
+    public LatticeElement put(Context key, LatticeElement value) {
+        if (value == null) {
+            return this.remove(key);
+        }
+        int position = ((CSContext) key).getPosition();
+        if (position >= this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(position + 1, 2 * this.values.length));
+        }
+        LatticeElement oldValue = this.values[position];
+        this.values[position] = value;
+        if (oldValue == null) {
+            this.size++;
+        }
+        return oldValue;
+    }
+    
+    public LatticeElement remove(Object key) {
+        if (!(key instanceof CSContext)) {
+            return null;
+        }
+        int position = ((CSContext) key).getPosition();
+        if (position >= this.values.length || this.values[position] == null) {
+            return null;
+        }
+        LatticeElement oldValue = this.values[position];
+        this.values[position] = null;
+        this.size--;
+        return oldValue;
+    }
+    
+    public void clear() {
+        this.values = EMPTY;
+        this.size = 0;
+    }
+    
+// *********************************************************************************    
+// VIEWS ***************************************************************************
+// ********************************************************************************* 
+
+    public Collection<LatticeElement> values() {
+        return new AbstractCollection<LatticeElement>() {
+            public Iterator<LatticeElement> iterator() {
+                return new PositionIterator<LatticeElement>() {
+                    LatticeElement make(int position) {
+                        return values[position];
+                    }
+                };
+            }
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public Set<Map.Entry<Context,LatticeElement>> entrySet() {
+        return new AbstractSet<Map.Entry<Context,LatticeElement>>() {
+            public Iterator<Map.Entry<Context,LatticeElement>> iterator() {
+                return new PositionIterator<Map.Entry<Context,LatticeElement>>() {
+                    Map.Entry<Context,LatticeElement> make(final int position) {
+                        return new AbstractMap.SimpleEntry<Context,LatticeElement>(
+                                new CSContext(position), values[position]) {
+                            public LatticeElement setValue(LatticeElement value) {
+                                put(this.getKey(), value);
+                                return super.setValue(value);
+                            }
+                        };
+                    }
+                };
+            }
+            public int size() {
+                return size;
+            }
+        };
+    }
+    
+    // iterates over the positions with non-null values, in ascending order
+    private abstract class PositionIterator<T> 
+    implements Iterator<T> {
+        
+        private int next = this.advance(0);
+        private int last = -1;
+        
+        private int advance(int from) {
+            while (from < values.length && values[from] == null) {
+                from++;
+            }
+            return from;
+        }
+        
+        public boolean hasNext() {
+            return this.next < values.length;
+        }
+        
+        public T next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.last = this.next;
+            this.next = this.advance(this.next + 1);
+            return this.make(this.last);
+        }
+        
+        public void remove() {
+            if (this.last == -1) {
+                throw new IllegalStateException();
+            }
+            values[this.last] = null;
+            size--;
+            this.last = -1;
+        }
+        
+        abstract T make(int position);
+    }
+
+}
@@ -2,62 +2,96 @@ package analysis.inter.callstring;
 
 import java.util.*;
 
+import analysis.GenericRepos;
+import analysis.Recyclable;
 import conversion.nodes.CfgNodeCall;
 
-public class CallString {
+// an immutable sequence of call nodes; call strings are recycled (see
+// GenericRepos), so they can be compared with "==" and hashed by identity
+public class CallString
+implements Recyclable {
 
-    // a list of CfgNodeCall's; never longer than the k-size of the analysis
-    private LinkedList<CfgNodeCall> callNodeList;
-    
-    // creates the empty call string
-    public CallString() {
-        this.callNodeList = new LinkedList<CfgNodeCall>();
-    }
-    
-    // shall only be used by CallString.append
-    private CallString (LinkedList<CfgNodeCall> callNodeList) {
-        this.callNodeList = callNodeList;
+    // weak: call strings are only needed as long as some ECS uses them
+    private static GenericRepos<CallString> repos =
+        new GenericRepos<CallString>(GenericRepos.WEAK);
+
+    // the empty call string
+    public static final CallString EMPTY = repos.recycle(new CallString(new CfgNodeCall[0]));
+
+    // the call nodes; never longer than the k-size of the analysis
+    private final CfgNodeCall[] callNodes;
+
+    // cached structure hash code (same as for a list of the call nodes)
+    private final int hash;
+
+//  ********************************************************************************
+//  CONSTRUCTORS *******************************************************************
+//  ********************************************************************************
+
+    // shall only be used by EMPTY and CallString.append
+    private CallString(CfgNodeCall[] callNodes) {
+        this.callNodes = callNodes;
+        this.hash = Arrays.hashCode(callNodes);
     }
-    
+
     public CallString append(CfgNodeCall callNode, int kSize) {
-        LinkedList<CfgNodeCall> newList = new LinkedList<CfgNodeCall>(this.callNodeList);
-        newList.add(callNode);
-        if (newList.size() > kSize) {
-            newList.remove(0);
+        // the leftmost call nodes fall off if the string gets too long
+        int length = Math.min(this.callNodes.length + 1, kSize);
+        if (length == 0) {
+            return EMPTY;
         }
-        return new CallString(newList);
+        CfgNodeCall[] newNodes = new CfgNodeCall[length];
+        System.arraycopy(this.callNodes, this.callNodes.length - (length - 1),
+                newNodes, 0, length - 1);
+        newNodes[length - 1] = callNode;
+        return repos.recycle(new CallString(newNodes));
     }
 
-    // returns the last (rightmost) call node 
+//  ********************************************************************************
+//  GET ****************************************************************************
+//  ********************************************************************************
+
+    // returns the last (rightmost) call node
     public CfgNodeCall getLast() {
-        return (CfgNodeCall) this.callNodeList.getLast();
+        if (this.callNodes.length == 0) {
+            throw new NoSuchElementException();
+        }
+        return this.callNodes[this.callNodes.length - 1];
     }
-    
-    public List getCallNodeList() {
-        return this.callNodeList;
+
+    // unmodifiable
+    public List<CfgNodeCall> getCallNodeList() {
+        return Collections.unmodifiableList(Arrays.asList(this.callNodes));
     }
-    
-    public int hashCode() {
-        return this.callNodeList.hashCode();
+
+    public int size() {
+        return this.callNodes.length;
     }
-    
-    public boolean equals(Object obj) {
-        
-        if (obj == this) {
+
+//  ********************************************************************************
+//  OTHER **************************************************************************
+//  ********************************************************************************
+
+    public boolean structureEquals(Object compX) {
+
+        if (compX == this) {
             return true;
         }
-        
-        if (!(obj instanceof CallString)) {
+        if (!(compX instanceof CallString)) {
             return false;
         }
-        CallString comp = (CallString) obj;
-        
-        return this.callNodeList.equals(comp.getCallNodeList());
+        CallString comp = (CallString) compX;
+
+        return (this.hash == comp.hash && Arrays.equals(this.callNodes, comp.callNodes));
+    }
+
+    public int structureHashCode() {
+        return this.hash;
     }
-    
+
     public String dump() {
         StringBuilder b = new StringBuilder();
-        for (CfgNodeCall callNode : this.callNodeList) {
+        for (CfgNodeCall callNode : this.callNodes) {
             b.append(callNode.getFileName());
             b.append(":");
             b.append(callNode.getOrigLineno());
@@ -8,29 +8,27 @@ public class ECS {
     // a list of CallString objects
     List<CallString> callStrings;
     
+    // call string -> its position in the list (call strings are
+    // recycled, so they are hashed by identity)
+    private Map<CallString,Integer> positions;
+    
     // creates empty ECS
     public ECS() {
-        this.callStrings = new LinkedList<CallString>();
+        this.callStrings = new ArrayList<CallString>();
+        this.positions = new HashMap<CallString,Integer>();
     }
     
     // creates one-element ECS
     public ECS(CallString firstCallString) {
-        this.callStrings = new LinkedList<CallString>();
-        this.callStrings.add(firstCallString);
+        this();
+        this.append(firstCallString);
     }
     
     // returns the position of the given call string ( >= 0), or -1 if
     // it's not in here
     public int getPosition(CallString findMe) {
-        int index = 0;
-        for (Iterator iter = this.callStrings.iterator(); iter.hasNext();) {
-            CallString callString = (CallString) iter.next();
-            if (callString.equals(findMe)) {
-                return index;
-            }
-            index++;
-        }
-        return -1;
+        Integer position = this.positions.get(findMe);
+        return (position == null ? -1 : position);
     }
     
     // returns the call string at the given position (null if
@@ -39,7 +37,7 @@ public class ECS {
         if (position >= this.callStrings.size()) {
             return null;
         }
-        return (CallString) this.callStrings.get(position);
+        return this.callStrings.get(position);
     }
     
     public List getCallStrings() {
@@ -50,6 +48,7 @@ public class ECS {
     public int append(CallString appendMe) {
         int newIndex = this.callStrings.size();
         this.callStrings.add(appendMe);
+        this.positions.put(appendMe, newIndex);
         return newIndex;
     }
     
@@ -0,0 +1,110 @@
+package analysis.inter.ifds;
+
+import java.util.*;
+
+import analysis.TransferFunction;
+import analysis.inter.AnalysisType;
+import analysis.inter.CallGraph;
+import analysis.inter.Context;
+import analysis.inter.InterAnalysis;
+import analysis.inter.InterAnalysisNode;
+import analysis.inter.ReverseTarget;
+import conversion.TacFunction;
+import conversion.nodes.CfgNode;
+import conversion.nodes.CfgNodeCall;
+
+// base class for analyses that are solved with the tabulation algorithm of
+// Reps, Horwitz and Sagiv for IFDS problems instead of being propagated
+// forward through the contexts of the call-string or functional approach;
+// use this if the transfer functions of your analysis are distributive over
+// its facts (such as the dependency analysis, see DepTabulation): the solver
+// tabulates path edges from each function's entry, and the path edges at a
+// function's exit (its summary edges) are shared by all calls of the
+// function, which is fully context-sensitive without enumerating contexts;
+// an analysis that is propagated forward under this analysis type anyway
+// has only the empty context (i.e., it is context-insensitive)
+public class IfdsAnalysis 
+extends AnalysisType {
+
+    // INPUT ***********************************************************************
+    
+    // call graph (for the strongly connected components)
+    private CallGraph callGraph;
+    
+    // function -> index of its strongly connected component in the call graph
+    // (computed on first use)
+    private Map<TacFunction,Integer> function2Scc;
+    
+// *********************************************************************************    
+// CONSTRUCTORS ********************************************************************
+// ********************************************************************************* 
+
+    public IfdsAnalysis(CallGraph callGraph) {
+        super();
+        this.callGraph = callGraph;
+    }
+    
+// *********************************************************************************    
+// GET *****************************************************************************
+// ********************************************************************************* 
+
+//  getPropagationContext ***********************************************************
+    
+    public Context getPropagationContext(CfgNodeCall callNode, Context context) {
+        return IfdsContext.EMPTY;
+    }
+    
+//  getReverseTargets ***************************************************************
+    
+    public List<ReverseTarget> getReverseTargets(TacFunction exitedFunction, Context context) {
+        
+        List<ReverseTarget> retMe = new LinkedList<ReverseTarget>();
+        for (CfgNodeCall callNode : exitedFunction.getCalledFrom()) {
+            if (callNode.getCallee() == exitedFunction) {
+                retMe.add(new ReverseTarget(callNode, 
+                        Collections.singleton(IfdsContext.EMPTY)));
+            }
+        }
+        return retMe;
+    }
+
+//  sameScc *************************************************************************
+    
+    // are the given functions in the same strongly connected component of the
+    // call graph? (i.e., can they be active in the same recursion?)
+    public boolean sameScc(TacFunction f1, TacFunction f2) {
+        
+        if (f1 == f2) {
+            return true;
+        }
+        if (this.function2Scc == null) {
+            this.function2Scc = new HashMap<TacFunction,Integer>();
+            int i = 0;
+            for (List<TacFunction> scc : this.callGraph.getSccs()) {
+                for (TacFunction function : scc) {
+                    this.function2Scc.put(function, i);
+                }
+                i++;
+            }
+        }
+        Integer scc1 = this.function2Scc.get(f1);
+        return (scc1 != null && scc1.equals(this.function2Scc.get(f2)));
+    }
+
+//  *********************************************************************************    
+//  OTHER ***************************************************************************
+//  *********************************************************************************
+
+    public boolean useSummaries() {
+        return false;
+    }
+
+    public InterAnalysisNode makeAnalysisNode(CfgNode cfgNode, TransferFunction tf) {
+        return new IfdsAnalysisNode(cfgNode, tf);
+    }
+
+    public Context initContext(InterAnalysis analysis) {
+        return IfdsContext.EMPTY;
+    }
+    
+}
@@ -0,0 +1,14 @@
+package analysis.inter.ifds;
+
+import analysis.TransferFunction;
+import analysis.inter.InterAnalysisNode;
+import conversion.nodes.CfgNode;
+
+public class IfdsAnalysisNode
+extends InterAnalysisNode {
+
+    public IfdsAnalysisNode(CfgNode node, TransferFunction tf) {
+        super(tf);
+    }
+
+}
@@ -0,0 +1,105 @@
+package analysis.inter.ifds;
+
+import analysis.inter.Context;
+import conversion.nodes.CfgNodeCall;
+
+// a calling context for looking up the results of an IFDS solver: the
+// stack of calls through which the strongly connected components of the
+// call graph were entered (most recent call first); calls inside a
+// component don't change the context, so all activations of a recursion
+// share the context of the call that started it;
+// the empty context stands for all realizable calling contexts
+public class IfdsContext 
+extends Context {
+    
+    public static final IfdsContext EMPTY = new IfdsContext(null, null);
+    
+    private CfgNodeCall callNode;
+    private IfdsContext parent;
+    private int hashCode;
+    
+// *********************************************************************************    
+// CONSTRUCTORS ********************************************************************
+// ********************************************************************************* 
+    
+    private IfdsContext(CfgNodeCall callNode, IfdsContext parent) {
+        this.callNode = callNode;
+        this.parent = parent;
+        if (parent == null) {
+            this.hashCode = 0;
+        } else {
+            this.hashCode = 37*parent.hashCode + callNode.hashCode();
+        }
+    }
+    
+// *********************************************************************************    
+// GET *****************************************************************************
+// ********************************************************************************* 
+    
+    // the context of the callee when entered through the given call
+    public IfdsContext push(CfgNodeCall callNode) {
+        return new IfdsContext(callNode, this);
+    }
+    
+    // the most recent call (null for the empty context)
+    public CfgNodeCall getCallNode() {
+        return this.callNode;
+    }
+    
+    // the context of the caller (null for the empty context)
+    public IfdsContext getParent() {
+        return this.parent;
+    }
+    
+    public boolean isEmpty() {
+        return (this.parent == null);
+    }
+    
+// *********************************************************************************    
+// OTHER ***************************************************************************
+// ********************************************************************************* 
+    
+    public int hashCode() {
+        return this.hashCode;
+    }
+    
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof IfdsContext)) {
+            return false;
+        }
+        IfdsContext comp = (IfdsContext) obj;
+        if (this.hashCode != comp.hashCode) {
+            return false;
+        }
+        IfdsContext a = this;
+        IfdsContext b = comp;
+        while (!a.isEmpty() && !b.isEmpty()) {
+            if (a.callNode != b.callNode) {
+                return false;
+            }
+            a = a.parent;
+            b = b.parent;
+        }
+        return (a.isEmpty() && b.isEmpty());
+    }
+    
+    public String toString() {
+        if (this.isEmpty()) {
+            return "[]";
+        }
+        StringBuilder buf = new StringBuilder();
+        buf.append("[");
+        for (IfdsContext c = this; !c.isEmpty(); c = c.parent) {
+            buf.append(c.callNode.getOrigLineno());
+            if (!c.parent.isEmpty()) {
+                buf.append(", ");
+            }
+        }
+        buf.append("]");
+        return buf.toString();
+    }
+
+}
@@ -5,6 +5,7 @@ import java.util.*;
 import pixy.*;
 import analysis.Analysis;
 import analysis.AnalysisNode;
+import analysis.AnalysisProfile;
 import analysis.LatticeElement;
 import analysis.TransferFunction;
 import conversion.*;
@@ -28,6 +29,9 @@ extends Analysis {
     // worklist consisting of pairs (Cfg node, lattice element)
     IntraWorkList workList;
     
+    // convergence profile (null if disabled; see MyOptions.profileAnalysis)
+    AnalysisProfile profile;
+    
 // *********************************************************************************    
 // CONSTRUCTORS ********************************************************************
 // ********************************************************************************* 
@@ -108,11 +112,18 @@ extends Analysis {
     // this method applies the worklist algorithm
     public void analyze() {
         
+        if (MyOptions.profileAnalysis) {
+            this.profile = new AnalysisProfile(this.getClass().getSimpleName());
+        }
+        
         // for each element in the worklist...
         while (this.workList.hasNext()) {
 
             // remove the element from the worklist
             CfgNode node = this.workList.removeNext();
+            if (this.profile != null) {
+                this.profile.visit(node, null);
+            }
 
             // get incoming value at node n
             IntraAnalysisNode analysisNode = (IntraAnalysisNode) this.analysisInfo.getAnalysisNode(node); 
@@ -147,6 +158,9 @@ extends Analysis {
             }
         }
 
+        if (this.profile != null) {
+            this.profile.finish();
+        }
         // worklist algorithm finished!
     }
 
@@ -156,6 +170,28 @@ extends Analysis {
     // propagates a value to the target node
     void propagate(LatticeElement value, CfgNode target) {
         
+        if (this.profile == null) {
+            this.merge(value, target);
+            return;
+        }
+        
+        IntraAnalysisNode analysisNode = this.analysisInfo.getAnalysisNode(target);
+        LatticeElement oldInValue = (analysisNode == null ? null : analysisNode.getInValue());
+        long start = System.nanoTime();
+        boolean changed = this.merge(value, target);
+        long time = System.nanoTime() - start;
+        if (changed) {
+            this.profile.merge(target, time, this.getSize(analysisNode.getInValue()), 
+                    (oldInValue == null ? 0 : this.getSize(oldInValue)));
+        } else {
+            this.profile.merge(target, time, -1, -1);
+        }
+    }
+    
+    // merges a value into the value of the target node; returns true if this
+    // changed the target's value
+    private boolean merge(LatticeElement value, CfgNode target) {
+        
         // analysis information for the target node
         IntraAnalysisNode analysisNode = (IntraAnalysisNode) this.analysisInfo.getAnalysisNode(target);
         
@@ -179,7 +215,7 @@ extends Analysis {
         // speedup: if incoming value and target value are exactly the same
         // object, then the result certainly can't change
         if (value == oldInValue) {
-            return;
+            return false;
         }
 
         // the new invalue is computed as usual (with lub)
@@ -193,7 +229,9 @@ extends Analysis {
 
             // add this node to the worklist
             this.workList.add(target);
+            return true;
         }
+        return false;
     }
 
 }
@@ -1,5 +1,6 @@
 package analysis.literal;
 
+import java.io.IOException;
 import java.util.*;
 
 import analysis.*;
@@ -7,10 +8,12 @@ import analysis.alias.AliasAnalysis;
 import analysis.inter.AnalysisType;
 import analysis.inter.InterAnalysis;
 import analysis.inter.InterAnalysisNode;
+import analysis.inter.InterCodec;
 import analysis.inter.InterWorkList;
 import analysis.literal.tf.*;
 import conversion.*;
 import conversion.nodes.*;
+import pixy.MyOptions;
 
 public class LiteralAnalysis 
 extends InterAnalysis {
@@ -37,7 +40,10 @@ extends InterAnalysis {
             InterWorkList workList) {
         
         this.tac = tac;
-        this.repos = new GenericRepos<LatticeElement>();
+        // spilled values can only be collected if they aren't kept alive
+        // by the repository
+        this.repos = new GenericRepos<LatticeElement>(MyOptions.spillThreshold > 0 ?
+                GenericRepos.WEAK : GenericRepos.STRONG);
         this.aliasAnalysis = aliasAnalysis;
         this.includeNodes = new LinkedList<CfgNodeInclude>();
         
@@ -77,6 +83,16 @@ extends InterAnalysis {
 //  TRANSFER FUNCTION GENERATORS ***************************************************
 //  ********************************************************************************
 
+    // the contained transfer functions are applied in place to a single
+    // copy of the incoming value
+    protected TransferFunction makeBasicBlockTf(CfgNodeBasicBlock basicBlock, TacFunction traversedFunction) {
+        LiteralTfBasicBlock tf = new LiteralTfBasicBlock();
+        for (CfgNode cfgNodeX : basicBlock.getContainedNodes()) {
+            tf.add(this.createTf(cfgNodeX, traversedFunction, basicBlock));
+        }
+        return tf;
+    }
+
     // returns a transfer function for an AssignSimple cfg node;
     // aliasInNode: 
     // - if cfgNodeX is not inside a basic block: the same node
@@ -423,6 +439,76 @@ extends InterAnalysis {
         return this.repos.recycle(recycleMe);
     }
 
+//  needsPhi ***********************************************************************
+    
+    // include resolution drops the includes that are never reached under
+    // any context (see ProgramConverter.removeUnreachables)
+    protected boolean needsPhi(CfgNode node) {
+        return (node instanceof CfgNodeInclude);
+    }
+
+//  checkpoints ********************************************************************
+    
+    // special literals are written as tags (they are compared by identity)
+    private static final Literal[] SPECIAL_LITERALS = 
+        {Literal.TRUE, Literal.FALSE, Literal.NULL, Literal.TOP};
+    
+    protected List<? extends TacPlace> getCodecPlaces() {
+        return this.tac.getPlacesList();
+    }
+    
+    // the non-default literals
+    protected void writeValue(LatticeElement value, InterCodec.Output out) 
+    throws IOException {
+        Map<TacPlace,Literal> placeToLit = ((LiteralLatticeElement) value).getPlaceToLit();
+        out.writeInt(placeToLit.size());
+        for (Map.Entry<TacPlace,Literal> entry : placeToLit.entrySet()) {
+            out.writePlace(entry.getKey());
+            Literal literal = entry.getValue();
+            int tag = Arrays.asList(SPECIAL_LITERALS).indexOf(literal);
+            out.writeInt(tag);
+            if (tag == -1) {
+                // the constructor handles escapes, so not every literal
+                // can be reconstructed from its string
+                if (!new Literal(literal.toString(), false).equals(literal)) {
+                    throw new IOException("unsupported literal " + literal);
+                }
+                out.writeUTF(literal.toString());
+            }
+        }
+    }
+    
+    protected LatticeElement readValue(InterCodec.Input in) 
+    throws IOException {
+        LiteralLatticeElement element = new LiteralLatticeElement();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            TacPlace place = in.readPlace();
+            int tag = in.readInt();
+            element.setLiteral(place, (tag == -1 ? 
+                    new Literal(in.readUTF(), false) : SPECIAL_LITERALS[tag]));
+        }
+        return this.recycle(element);
+    }
+
+//  getSize ************************************************************************
+    
+    // number of non-default literals
+    protected int getSize(LatticeElement element) {
+        if (!(element instanceof LiteralLatticeElement)) {
+            return 0;
+        }
+        return ((LiteralLatticeElement) element).getPlaceToLit().size();
+    }
+
+//  supportsParallelSolver *********************************************************
+    
+    // besides the own function, transfer functions read the folded alias
+    // information
+    protected boolean supportsParallelSolver() {
+        return true;
+    }
+
 //  clean **************************************************************************
     
     // performs post-analysis cleanup operations to save memory
@@ -65,5 +65,40 @@ extends Lattice {
         return resultElement;
 
     }
+    
+    public boolean lessOrEqual(
+            LatticeElement incomingElementX,
+            LatticeElement targetElementX) {
+        
+        if (incomingElementX == this.bottom || incomingElementX == targetElementX) {
+            return true;
+        }
+        if (targetElementX == this.bottom) {
+            return false;
+        }
+        return ((LiteralLatticeElement) incomingElementX).lessOrEqual(
+                (LiteralLatticeElement) targetElementX);
+    }
+    
+    // only touches the mappings that the incoming element changes
+    public LatticeElement lubDelta(
+            LatticeElement incomingElementX,
+            LatticeElement targetElementX) {
+        
+        if (incomingElementX == this.bottom) {
+            return targetElementX;
+        }
+        if (targetElementX == this.bottom) {
+            return incomingElementX.cloneMe();
+        }
+        
+        LiteralLatticeElement resultElement = 
+            new LiteralLatticeElement((LiteralLatticeElement) targetElementX);
+        if (resultElement.lubDelta((LiteralLatticeElement) incomingElementX)) {
+            return resultElement;
+        } else {
+            return targetElementX;
+        }
+    }
 
 }
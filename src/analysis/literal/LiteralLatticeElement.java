@@ -4,6 +4,7 @@ import java.util.*;
 
 import pixy.MyOptions;
 import analysis.LatticeElement;
+import analysis.PersistentMap;
 import analysis.Recyclable;
 import conversion.Constant;
 import conversion.ConstantsTable;
@@ -21,12 +22,13 @@ extends LatticeElement {
 
 	// TacPlace -> Literal
 	// contains only non-default mappings;
-	private Map<TacPlace,Literal> placeToLit;
+	// persistent, i.e., shared with clones until modified
+	private PersistentMap<TacPlace,Literal> placeToLit;
 
 	// a copy of placeToLit, must be initialized by methods that need it;
 	// they must not forget to null it as soon as they've finished their
 	// work (saves memory)
-	private Map<TacPlace,Literal> origPlaceToLit;
+	private PersistentMap<TacPlace,Literal> origPlaceToLit;
 
 	// the default lattice element; IT MUST NOT BE USED DIRECTLY BY THE ANALYSIS!
 	// can be seen as "grounding", "fall-back" for normal lattice elements
@@ -39,12 +41,13 @@ extends LatticeElement {
 	// creates a lattice element that adds no information to the
 	// default lattice element
 	public LiteralLatticeElement() {
-		this.placeToLit = new HashMap<TacPlace,Literal>();
+		this.placeToLit = new PersistentMap<TacPlace,Literal>();
 	}
 
-	// clones the given element
+	// clones the given element (in constant time: the map is shared
+	// until one of the two elements is modified)
 	public LiteralLatticeElement(LiteralLatticeElement cloneMe) {
-		this.placeToLit = new HashMap<TacPlace,Literal>(cloneMe.getPlaceToLit());
+		this.placeToLit = new PersistentMap<TacPlace,Literal>(cloneMe.placeToLit);
 	}
 
 	public LatticeElement cloneMe() {
@@ -70,7 +73,7 @@ extends LatticeElement {
 			SymbolTable superSymbolTable) {
 
 		// initialize conservative base mapping for variables & constants: TOP
-		this.placeToLit = new HashMap<TacPlace,Literal>();
+		this.placeToLit = new PersistentMap<TacPlace,Literal>();
 		for (Iterator iter = places.iterator(); iter.hasNext(); ) {
 			TacPlace place = (TacPlace) iter.next();
 			this.placeToLit.put(place, Literal.TOP);
@@ -233,7 +236,8 @@ extends LatticeElement {
 
 	// setLiteral **********************************************************************
 
-	private void setLiteral(TacPlace place, Literal literal) {
+	// also used by LiteralAnalysis for reading checkpoints
+	void setLiteral(TacPlace place, Literal literal) {
 
 		if (place instanceof Literal) {
 			throw new RuntimeException("SNH");
@@ -341,52 +345,68 @@ extends LatticeElement {
 	//  OTHER **************************************************************************
 	//  ********************************************************************************
 
-	// lubs the given lattice element over <<this>> lattice element
+	// lubs the given lattice element over <<this>> lattice element;
+	// only visits the mappings that might differ between the two elements
+	// (i.e., skips the parts of the maps that are still shared)
 	public void lub(LatticeElement foreignX) {
+		this.lubDelta((LiteralLatticeElement) foreignX);
+	}
 
-		LiteralLatticeElement foreign = (LiteralLatticeElement) foreignX;
-
-		// lub over my non-default mappings
-		for (Iterator iter = this.placeToLit.entrySet().iterator(); iter.hasNext(); ) {
-			Map.Entry myEntry = (Map.Entry) iter.next();
-			TacPlace myPlace = (TacPlace) myEntry.getKey();
-			Literal myLiteral = (Literal) myEntry.getValue();
+	// like lub, but returns true if this element was changed
+	public boolean lubDelta(LiteralLatticeElement foreign) {
 
-			Literal foreignLiteral = foreign.getLiteral(myPlace);
-			if (!foreignLiteral.equals(myLiteral)) {
-				this.placeToLit.put(myPlace, Literal.TOP);
-			}
+		if (this.placeToLit.sameAs(foreign.placeToLit)) {
+			return false;
 		}
 
-		// lub the remaining non-default mappings of "foreign" over my
-		// default mappings
-		Map foreignPlaceToLit = foreign.getPlaceToLit();
-		for (Iterator iter = foreignPlaceToLit.entrySet().iterator(); iter.hasNext(); ) {
-			Map.Entry foreignEntry = (Map.Entry) iter.next();
-			TacPlace foreignPlace = (TacPlace) foreignEntry.getKey();
-			Literal foreignLiteral = (Literal) foreignEntry.getValue();
+		boolean changed = false;
 
-			Literal myLiteral = this.getNonDefaultLiteral(foreignPlace);
+		List<TacPlace> places = new ArrayList<TacPlace>();
+		this.placeToLit.addDifferences(foreign.placeToLit, places);
+		for (TacPlace place : places) {
+			Literal myLiteral = this.placeToLit.get(place);
+			Literal foreignLiteral;
 			if (myLiteral == null) {
-				myLiteral = getDefaultLiteral(foreignPlace);
-				if (!foreignLiteral.equals(myLiteral)) {
-					this.placeToLit.put(foreignPlace, Literal.TOP);
-				} else {
-					this.placeToLit.put(foreignPlace, foreignLiteral);
+				// lub the non-default mapping of "foreign" over my
+				// default mapping
+				foreignLiteral = foreign.placeToLit.get(place);
+				if (foreignLiteral == null) {
+					continue;
 				}
+				myLiteral = getDefaultLiteral(place);
+			} else {
+				foreignLiteral = foreign.getLiteral(place);
 			}
-		}
-
-		// cleaning pass: remove defaults
-		for (Iterator iter = this.placeToLit.entrySet().iterator(); iter.hasNext(); ) {
-			Map.Entry entry = (Map.Entry) iter.next();
-			TacPlace place = (TacPlace) entry.getKey();
-			Literal lit = (Literal) entry.getValue();
-			if (getDefaultLiteral(place).equals(lit)) {
-				// this.placeToLit.remove(place);
-				iter.remove();
+			Literal resultLiteral = lub(myLiteral, foreignLiteral);
+			if (resultLiteral == myLiteral) {
+				continue;
+			}
+			changed = true;
+			// only store non-default mappings
+			if (getDefaultLiteral(place).equals(resultLiteral)) {
+				this.placeToLit.remove(place);
+			} else {
+				this.placeToLit.put(place, resultLiteral);
 			}
 		}
+
+		return changed;
+	}
+
+	//  lessOrEqual ********************************************************************
+
+	// is this element less or equal to the given one (i.e., would a lub of
+	// this element over the given one leave it unchanged)?
+	// only visits the mappings that might differ between the two elements
+	public boolean lessOrEqual(final LiteralLatticeElement other) {
+		return this.placeToLit.visitDifferences(other.placeToLit, 
+				new PersistentMap.KeyVisitor<TacPlace>() {
+					public boolean visit(TacPlace place) {
+						Literal otherLiteral = other.getLiteral(place);
+						return otherLiteral == Literal.TOP || 
+							otherLiteral.equals(getLiteral(place));
+					}
+				});
 	}
 
 	//  lub (static) *******************************************************************
@@ -425,7 +445,7 @@ extends LatticeElement {
 	public void assignSimple(Variable left, TacPlace right, Set mustAliases, Set mayAliases) {
 
 		// initialize state copy (required by strongOverlap)
-		this.origPlaceToLit = new HashMap<TacPlace,Literal>(this.placeToLit);
+		this.origPlaceToLit = new PersistentMap<TacPlace,Literal>(this.placeToLit);
 
 		// case distinguisher for the left variable
 		int leftCase;
@@ -903,7 +923,7 @@ extends LatticeElement {
 	//  strongOverlap ******************************************************************
 
 	// before calling this function, don't forget to 
-	// initialize origPlaceToLit: new HashMap(this.placeToLit)
+	// initialize origPlaceToLit: new PersistentMap(this.placeToLit)
 	private void strongOverlap(Variable target, TacPlace source) {
 
 		Literal sourceLit = this.getOrigLiteral(source);
@@ -943,7 +963,7 @@ extends LatticeElement {
 	//  weakOverlap ********************************************************************
 
 	// before calling this function, don't forget to 
-	// initialize origPlaceToLit: new HashMap(this.placeToLit)
+	// initialize origPlaceToLit: new PersistentMap(this.placeToLit)
 	private void weakOverlap(Variable target, TacPlace source) {
 
 		Literal sourceLit = this.getOrigLiteral(source);
@@ -1009,7 +1029,7 @@ extends LatticeElement {
 	public void setFormal(TacFormalParam formalParam, TacPlace place) {
 
 		// initialize state copy (required by strongOverlap)
-		this.origPlaceToLit = new HashMap<TacPlace,Literal>(this.placeToLit);
+		this.origPlaceToLit = new PersistentMap<TacPlace,Literal>(this.placeToLit);
 
 		Variable formalVar = formalParam.getVariable();
 		this.strongOverlap(formalVar, place);
@@ -1164,7 +1184,7 @@ extends LatticeElement {
 	//  hashCode ***********************************************************************
 
 	public int hashCode() {
-		// EFF: perform hashCode caching
+		// constant time: the map maintains its hash code incrementally
 		return this.placeToLit.hashCode();
 	}
 
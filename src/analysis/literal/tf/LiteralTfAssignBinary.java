@@ -2,8 +2,6 @@ package analysis.literal.tf;
 
 import java.util.*;
 
-import analysis.LatticeElement;
-import analysis.TransferFunction;
 import analysis.literal.LiteralLatticeElement;
 import conversion.TacPlace;
 import conversion.Variable;
@@ -11,7 +9,7 @@ import conversion.nodes.CfgNode;
 
 // transfer function for binary assignment nodes
 public class LiteralTfAssignBinary
-extends TransferFunction {
+extends LiteralTfInPlace {
 
     private Variable left;
     private TacPlace leftOperand;
@@ -42,15 +40,10 @@ extends TransferFunction {
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
-    public LatticeElement transfer(LatticeElement inX) {
-
-        LiteralLatticeElement in = (LiteralLatticeElement) inX;
-        LiteralLatticeElement out = new LiteralLatticeElement(in);
+    public void apply(LiteralLatticeElement in, LiteralLatticeElement out) {
 
         // let the lattice element handle the details
         out.assignBinary(left, leftOperand, rightOperand, op, 
                 mustAliases, mayAliases, cfgNode);
-        
-        return out;
     }
 }
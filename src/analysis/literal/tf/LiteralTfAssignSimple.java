@@ -2,15 +2,13 @@ package analysis.literal.tf;
 
 import java.util.*;
 
-import analysis.LatticeElement;
-import analysis.TransferFunction;
 import analysis.literal.LiteralLatticeElement;
 import conversion.TacPlace;
 import conversion.Variable;
 
 // transfer function for simple assignment nodes
 public class LiteralTfAssignSimple
-extends TransferFunction {
+extends LiteralTfInPlace {
 
     private Variable left;
     private TacPlace right;
@@ -35,14 +33,9 @@ extends TransferFunction {
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
-    public LatticeElement transfer(LatticeElement inX) {
-
-        LiteralLatticeElement in = (LiteralLatticeElement) inX;
-        LiteralLatticeElement out = new LiteralLatticeElement(in);
+    public void apply(LiteralLatticeElement in, LiteralLatticeElement out) {
 
         // let the lattice element handle the details
         out.assignSimple(left, right, mustAliases, mayAliases);
-        
-        return out;
     }
 }
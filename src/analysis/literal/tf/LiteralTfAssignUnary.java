@@ -2,15 +2,13 @@ package analysis.literal.tf;
 
 import java.util.*;
 
-import analysis.LatticeElement;
-import analysis.TransferFunction;
 import analysis.literal.LiteralLatticeElement;
 import conversion.TacPlace;
 import conversion.Variable;
 
 // transfer function for unary assignment nodes
 public class LiteralTfAssignUnary
-extends TransferFunction {
+extends LiteralTfInPlace {
 
     private Variable left;
     private TacPlace right;
@@ -37,14 +35,9 @@ extends TransferFunction {
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
-    public LatticeElement transfer(LatticeElement inX) {
-
-        LiteralLatticeElement in = (LiteralLatticeElement) inX;
-        LiteralLatticeElement out = new LiteralLatticeElement(in);
+    public void apply(LiteralLatticeElement in, LiteralLatticeElement out) {
 
         // let the lattice element handle the details
         out.assignUnary(left, right, op, mustAliases, mayAliases);
-        
-        return out;
     }
 }
@@ -0,0 +1,27 @@
+package analysis.literal.tf;
+
+import java.util.*;
+
+import analysis.CompositeTransferFunction;
+import analysis.LatticeElement;
+import analysis.TransferFunction;
+import analysis.literal.LiteralLatticeElement;
+
+// transfer function for basic blocks: copies the incoming value only once
+// and applies the contained transfer functions to this copy in place
+public class LiteralTfBasicBlock
+extends CompositeTransferFunction {
+
+    public LatticeElement transfer(LatticeElement inX) {
+        LiteralLatticeElement out = new LiteralLatticeElement((LiteralLatticeElement) inX);
+        for (Iterator<?> iter = this.iterator(); iter.hasNext();) {
+            TransferFunction tf = (TransferFunction) iter.next();
+            if (tf instanceof LiteralTfInPlace) {
+                ((LiteralTfInPlace) tf).apply(out, out);
+            } else {
+                out = (LiteralLatticeElement) tf.transfer(out);
+            }
+        }
+        return out;
+    }
+}
@@ -4,8 +4,6 @@ import java.io.*;
 import java.util.*;
 
 import pixy.MyOptions;
-import analysis.LatticeElement;
-import analysis.TransferFunction;
 import analysis.literal.LiteralLatticeElement;
 import conversion.Literal;
 import conversion.TacActualParam;
@@ -13,7 +11,7 @@ import conversion.TacPlace;
 import conversion.nodes.CfgNodeCallBuiltin;
 
 public class LiteralTfCallBuiltin
-extends TransferFunction {
+extends LiteralTfInPlace {
 
     private CfgNodeCallBuiltin cfgNode;
     
@@ -29,16 +27,11 @@ extends TransferFunction {
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
-    public LatticeElement transfer(LatticeElement inX) {
-        
-        LiteralLatticeElement in = (LiteralLatticeElement) inX;
-        LiteralLatticeElement out = new LiteralLatticeElement(in);
-        
-        
+    public void apply(LiteralLatticeElement in, LiteralLatticeElement out) {
+
         // SIMULATION OF BUILTIN FUNCTIONS
         // ...by letting the php binary do the work
-        
-        
+
         String functionName = this.cfgNode.getFunctionName();
         
         if (MyOptions.phpBin == null) {
@@ -63,9 +56,6 @@ extends TransferFunction {
                 out.handleReturnValueBuiltin(this.cfgNode.getTempVar());
             }
         }
-        
-        return out;
-        
     }
     
     private Literal simulate(LiteralLatticeElement in, String functionName) {
@@ -2,8 +2,6 @@ package analysis.literal.tf;
 
 import java.util.*;
 
-import analysis.LatticeElement;
-import analysis.TransferFunction;
 import analysis.literal.LiteralLatticeElement;
 import conversion.Constant;
 import conversion.ConstantsTable;
@@ -13,7 +11,7 @@ import conversion.nodes.CfgNode;
 import conversion.nodes.CfgNodeDefine;
 
 public class LiteralTfDefine 
-extends TransferFunction {
+extends LiteralTfInPlace {
 
     private TacPlace setMe;
     private TacPlace setTo;
@@ -38,10 +36,7 @@ extends TransferFunction {
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
-    public LatticeElement transfer(LatticeElement inX) {
-        
-        LiteralLatticeElement in = (LiteralLatticeElement) inX;
-        LiteralLatticeElement out = new LiteralLatticeElement(in);
+    public void apply(LiteralLatticeElement in, LiteralLatticeElement out) {
 
         // retrieve the literal of the constant to be set
         // (for example: define($foo, 'bla') with $foo == ABC,
@@ -56,7 +51,7 @@ extends TransferFunction {
         if (constantLit == Literal.TOP) {
             System.out.println("Warning: can't resolve constant to be defined");
             System.out.println("- " + cfgNode.getFileName() + ":" + cfgNode.getOrigLineno()); 
-            return out;
+            return;
         }
         
         // retrieve the literal that the constant shall be set to
@@ -130,12 +125,9 @@ extends TransferFunction {
                 System.out.println("- defined: " + this.cfgNode.getLoc());
             }
 
-            
         } else {
             throw new RuntimeException("SNH");
         }
-        
-        return out;
     }
 
 
@@ -0,0 +1,23 @@
+package analysis.literal.tf;
+
+import analysis.LatticeElement;
+import analysis.TransferFunction;
+import analysis.literal.LiteralLatticeElement;
+
+// base class for transfer functions that can appear inside basic blocks:
+// they can modify an element in place (see LiteralTfBasicBlock)
+public abstract class LiteralTfInPlace
+extends TransferFunction {
+
+    // applies this transfer function to "in" and writes the result into "out";
+    // "in" and "out" may be the same element, so implementations must
+    // read from "in" before writing to "out"
+    public abstract void apply(LiteralLatticeElement in, LiteralLatticeElement out);
+
+    public LatticeElement transfer(LatticeElement inX) {
+        LiteralLatticeElement in = (LiteralLatticeElement) inX;
+        LiteralLatticeElement out = new LiteralLatticeElement(in);
+        this.apply(in, out);
+        return out;
+    }
+}
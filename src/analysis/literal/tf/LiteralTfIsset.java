@@ -2,8 +2,6 @@ package analysis.literal.tf;
 
 import java.util.*;
 
-import analysis.LatticeElement;
-import analysis.TransferFunction;
 import analysis.literal.LiteralLatticeElement;
 import conversion.Literal;
 import conversion.TacPlace;
@@ -12,7 +10,7 @@ import conversion.Variable;
 // transfer function for "isset" tests
 // LATER: make it intelligent
 public class LiteralTfIsset 
-extends TransferFunction{
+extends LiteralTfInPlace {
     
     private Variable setMe;
     private TacPlace testMe;
@@ -30,11 +28,9 @@ extends TransferFunction{
 // OTHER ***************************************************************************
 // *********************************************************************************  
 
-    public LatticeElement transfer(LatticeElement inX) {
+    public void apply(LiteralLatticeElement in, LiteralLatticeElement out) {
 
         // System.out.println("transfer method: " + setMe + " = " + setTo);
-        LiteralLatticeElement in = (LiteralLatticeElement) inX;
-        LiteralLatticeElement out = new LiteralLatticeElement(in);
 
         if (!setMe.isTemp()) {
             throw new RuntimeException("SNH");
@@ -46,7 +42,5 @@ extends TransferFunction{
         mustAliases.add(setMe);
         Set mayAliases = Collections.EMPTY_SET;
         out.assignSimple(setMe, Literal.TOP, mustAliases, mayAliases);
-        
-        return out;
     }
 }
@@ -7,7 +7,8 @@ import conversion.*;
 import conversion.nodes.*;
 
 // computes, for every function, the set of global variables that
-// this function (and its callees) may modify;
+// this function (and its callees) may modify, as well as the set of global
+// variables that it may reference;
 // does NOT consider aliases: this is particularly important for the use of
 // the "global" keyword; if you want reasonable results, don't use this ModAnalysis
 // together with a real alias analysis
@@ -18,6 +19,12 @@ public class ModAnalysis {
     // (global variables, superglobals, and constants)
     // NOTE: currently, we do NOT support constants for this
     Map<TacFunction,Set<TacPlace>> func2Mod;
+    
+    // analogous: a set of referenced (read or written) global variables and
+    // superglobals for each function; functions for which this can't be
+    // determined (e.g., due to variable variables) are in refUnknown
+    Map<TacFunction,Set<TacPlace>> func2Ref;
+    Set<TacFunction> refUnknown;
 
 //  ********************************************************************************
     
@@ -31,11 +38,21 @@ public class ModAnalysis {
         return this.func2Mod.get(function);
     }
     
+    // returns null if the referenced global-likes are unknown
+    public Set<TacPlace> getRef(TacFunction function) {
+        if (this.refUnknown.contains(function)) {
+            return null;
+        }
+        return this.func2Ref.get(function);
+    }
+    
 //  ********************************************************************************
     
     private void analyze(List<TacFunction> functions, CallGraph callGraph) {
 
         this.func2Mod = new HashMap<TacFunction,Set<TacPlace>>();
+        this.func2Ref = new HashMap<TacFunction,Set<TacPlace>>();
+        this.refUnknown = new HashSet<TacFunction>();
 
         // intraprocedural analysis
         
@@ -54,6 +71,14 @@ public class ModAnalysis {
             }
             
             func2Mod.put(function, modSet);
+            
+            Set<TacPlace> refSet = new HashSet<TacPlace>();
+            for (CfgNode cfgNodeX : function.getCfg().dfPreOrder()) {
+                if (!this.processNodeRef(cfgNodeX, refSet)) {
+                    this.refUnknown.add(function);
+                }
+            }
+            func2Ref.put(function, refSet);
         }
         
         // interprocedural analysis
@@ -86,7 +111,20 @@ public class ModAnalysis {
                 Set<TacPlace> modCaller = func2Mod.get(caller);
                 int modCallerSize = modCaller.size();
                 modCaller.addAll(modF);
-                if (modCallerSize != modCaller.size()) {
+                boolean changed = (modCallerSize != modCaller.size());
+                
+                // the same for ref-info
+                Set<TacPlace> refCaller = func2Ref.get(caller);
+                int refCallerSize = refCaller.size();
+                refCaller.addAll(func2Ref.get(f));
+                if (refCallerSize != refCaller.size()) {
+                    changed = true;
+                }
+                if (this.refUnknown.contains(f) && this.refUnknown.add(caller)) {
+                    changed = true;
+                }
+                
+                if (changed) {
                     worklist.put(postorder.get(caller), caller);
                 }
             }
@@ -179,6 +217,46 @@ public class ModAnalysis {
         //System.out.println("modset: " + modSet);
     }
     
+//  ********************************************************************************
+    
+    // adds the global-likes referenced by the given cfg node to the given 
+    // refSet; returns false if they can't be determined
+    private boolean processNodeRef(CfgNode cfgNodeX, Set<TacPlace> refSet) {
+        
+        if (cfgNodeX instanceof CfgNodeBasicBlock) {
+            boolean known = true;
+            CfgNodeBasicBlock basicBlock = (CfgNodeBasicBlock) cfgNodeX;
+            for (CfgNode cfgNode : basicBlock.getContainedNodes()) {
+                known &= this.processNodeRef(cfgNode, refSet);
+            }
+            return known;
+        }
+        
+        for (Variable refVar : cfgNodeX.getVariables()) {
+            if (refVar == null) {
+                continue;
+            }
+            if (refVar.isVariableVariable() || refVar.isMember()) {
+                return false;
+            }
+            if (refVar.isGlobal() || refVar.isSuperGlobal()) {
+                this.modify(refVar, refSet);
+            }
+            // globals that are used as indices
+            if (refVar.isArrayElement()) {
+                for (TacPlace index : refVar.getIndices()) {
+                    if (index instanceof Variable) {
+                        Variable indexVar = (Variable) index;
+                        if (indexVar.isGlobal() || indexVar.isSuperGlobal()) {
+                            this.modify(indexVar, refSet);
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+    
 //  ********************************************************************************
     
     private void modify(Variable modVar, Set<TacPlace> modSet) {
@@ -25,6 +25,10 @@ public class InternalStrings {
     // internal name for member variables
     public static final String memberName = "_member";
     
+    // prefix for pseudo-functions of shared included files;
+    // don't use uppercase characters
+    public static final String includePrefix = "_include_";
+    
     // suffix for methods
     public static final String methodSuffix = "<m>";
     
@@ -2,6 +2,7 @@ package conversion;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.prefs.BackingStoreException;
 import phpParser.ParseNode;
 import phpParser.ParseTree;
@@ -13,9 +14,8 @@ import analysis.alias.AliasAnalysis;
 import analysis.alias.DummyAliasAnalysis;
 import analysis.inter.ConnectorComputation;
 import analysis.inter.InterAnalysisNode;
+import analysis.inter.InterStructure;
 import analysis.inter.InterWorkList;
-import analysis.inter.InterWorkListBetter;
-import analysis.inter.InterWorkListOrder;
 import analysis.inter.callstring.CSAnalysis;
 import analysis.literal.LiteralAnalysis;
 import analysis.type.TypeAnalysis;
@@ -58,6 +58,19 @@ public class ProgramConverter {
 	// set of include nodes that should be skipped (don't try to include them)
 	private Set<CfgNodeInclude> skipUs;
 
+	// canonical path of a file included as shared pseudo-function -> this
+	// pseudo-function (null if the file's main cfg is empty);
+	// only used if MyOptions.sharedIncludes is enabled
+	private Map<String,TacFunction> sharedIncludes;
+
+	// worker threads for converting included files in advance and their task
+	// queue (null if MyOptions.conversionThreads <= 1), and the resulting
+	// converters (each with a superglobals symbol table of its own):
+	// canonical path -> one pending converter per include node that targets this file
+	private Thread[] conversionWorkers;
+	private BlockingQueue<FutureTask<TacConverter>> conversionQueue;
+	private Map<String,LinkedList<Future<TacConverter>>> prefetched;
+
 	private SymbolTable superSymbolTable;
 
 	// inclusion status
@@ -91,25 +104,10 @@ public class ProgramConverter {
 
 
 		this.skipUs = new HashSet<CfgNodeInclude>();
+		this.sharedIncludes = new HashMap<String,TacFunction>();
+		this.prefetched = new HashMap<String,LinkedList<Future<TacConverter>>>();
 
-		// initialize superglobals symbol table with superglobal arrays
-		this.superSymbolTable = new SymbolTable("_superglobals", true);
-		this.addSuperGlobal("$GLOBALS");
-		this.addSuperGlobal("$_SERVER");
-		this.addSuperGlobal("$HTTP_SERVER_VARS");
-		this.addSuperGlobal("$_GET");
-		this.addSuperGlobal("$HTTP_GET_VARS");
-		this.addSuperGlobal("$_POST");
-		this.addSuperGlobal("$HTTP_POST_VARS");
-		this.addSuperGlobal("$_COOKIE");
-		this.addSuperGlobal("$HTTP_COOKIE_VARS");
-		this.addSuperGlobal("$_FILES");
-		this.addSuperGlobal("$HTTP_POST_FILES");
-		this.addSuperGlobal("$_ENV");
-		this.addSuperGlobal("$HTTP_ENV_VARS");
-		this.addSuperGlobal("$_REQUEST");
-		this.addSuperGlobal("$_SESSION");
-		this.addSuperGlobal("$HTTP_SESSION_VARS");
+		this.superSymbolTable = makeSuperSymbolTable();
 
 	}
 
@@ -168,7 +166,7 @@ public class ProgramConverter {
 
 		ParseTree parseTree = this.parse(MyOptions.entryFile.getPath());
 		baseTac = new TacConverter(parseTree, this.specialNodes, this.numConvertedFiles++, 
-				MyOptions.entryFile, this);
+				MyOptions.entryFile, this.superSymbolTable);
 		baseTac.convert();
 
 		List<CfgNodeInclude> processUs = baseTac.getIncludeNodes();
@@ -202,6 +200,12 @@ public class ProgramConverter {
 		//
 		// number of iterations
 		int iteration = 0;
+		//
+		// per tier of non-literal include resolution (k=0, k=1): number of
+		// literal analysis runs, and number of include nodes resolved by them
+		int[] tierRuns = new int[2];
+		int[] tierResolved = new int[2];
+		int heuristicsResolved = 0;
 
 		while (goOn && !MyOptions.optionW) {
 
@@ -248,6 +252,10 @@ public class ProgramConverter {
 				// contained in included files
 				weComeAfterwards = new LinkedList<CfgNodeInclude>();
 
+				// convert the targets of this round in parallel; they are
+				// linked below one file after the other, in inclusion order
+				this.prefetch(processUs);
+
 				// process all literal include nodes in "processUs"
 				for (Iterator<CfgNodeInclude> iter = processUs.iterator(); iter.hasNext();) {
 					CfgNodeInclude includeNode = (CfgNodeInclude) iter.next();
@@ -286,6 +294,7 @@ public class ProgramConverter {
 
 
 				processUs = weComeAfterwards;
+				this.prefetched.clear();
 			}
 			System.out.println();
 
@@ -307,24 +316,44 @@ public class ProgramConverter {
 			// requires literal analysis and hence, preliminary backpatching
 			this.baseTac.backpatch();
 
-			int kSize = 1;
-			ConnectorComputation connectorComp = new ConnectorComputation(
-					baseTac.getAllFunctions(), baseTac.getMainFunction(), kSize);
-			connectorComp.compute();
-			InterWorkList workList = new InterWorkListBetter(new InterWorkListOrder(baseTac, connectorComp));
-			connectorComp.stats(false);
-
-			AliasAnalysis aliasAnalysis = new DummyAliasAnalysis();
+			// tiered resolution: a cheap context-insensitive literal analysis
+			// first; the precise one (k=1) is only run if some include nodes
+			// are still unresolved afterwards
+			literalAnalysis = this.analyzeLiterals(0);
+			tierRuns[0]++;
 
-			// assign a reasonable (worklist) order to the nodes, speeds up analyses;
-			// not necessary here! this is only needed for functional analyses!
-			//baseTac.assignReversePostOrder();
+			processUs = literalAnalysis.getIncludeNodes();
+			Map<CfgNodeInclude,Literal> includedLits = new HashMap<CfgNodeInclude,Literal>();
+			boolean escalate = false;
+			for (CfgNodeInclude includeNode : processUs) {
+				if (this.skipUs.contains(includeNode)) {
+					continue;
+				}
+				Literal includedLit = literalAnalysis.getLiteral(includeNode.getIncludeMe(), includeNode);
+				if (includedLit == Literal.TOP) {
+					escalate = true;
+				} else {
+					tierResolved[0]++;
+				}
+				includedLits.put(includeNode, includedLit);
+			}
 
-			literalAnalysis = new LiteralAnalysis(
-					baseTac, aliasAnalysis, new CSAnalysis(connectorComp), workList);
-			literalAnalysis.analyze();
+			if (escalate) {
+				literalAnalysis = this.analyzeLiterals(1);
+				tierRuns[1]++;
+				for (Map.Entry<CfgNodeInclude,Literal> entry : includedLits.entrySet()) {
+					if (entry.getValue() != Literal.TOP) {
+						continue;
+					}
+					CfgNodeInclude includeNode = entry.getKey();
+					Literal includedLit = literalAnalysis.getLiteral(includeNode.getIncludeMe(), includeNode);
+					if (includedLit != Literal.TOP) {
+						tierResolved[1]++;
+					}
+					entry.setValue(includedLit);
+				}
+			}
 
-			processUs = literalAnalysis.getIncludeNodes();
 			weComeAfterwards = new LinkedList<CfgNodeInclude>();
 			notFoundDynamicIncludes = new TreeMap<CfgNodeInclude,String>();
 			topIncludes = new HashSet<CfgNodeInclude>();
@@ -338,7 +367,7 @@ public class ProgramConverter {
 
 				//System.out.println("processing include node: " + includeNode.getOrigLineno());
 
-				Literal includedLit = literalAnalysis.getLiteral(includeNode.getIncludeMe(), includeNode);
+				Literal includedLit = includedLits.get(includeNode);
 				String includedString = null; 
 
 				if (includedLit == Literal.TOP) {
@@ -358,6 +387,7 @@ public class ProgramConverter {
 					} else if (includeTargets.size() == 1) {
 						// heuristics were successful!
 						includedString = includeTargets.get(0);
+						heuristicsResolved++;
 					} else {
 						throw new RuntimeException("SNH");
 					}
@@ -435,10 +465,9 @@ public class ProgramConverter {
 			System.out.println("*** performing type analysis ***");
 			System.out.println();
 
-			ConnectorComputation connectorComp = new ConnectorComputation(
-					baseTac.getAllFunctions(), baseTac.getMainFunction(), 0);
-			connectorComp.compute();
-			InterWorkList workList = new InterWorkListBetter(new InterWorkListOrder(baseTac, connectorComp));
+			InterStructure structure = this.baseTac.getInterStructure();
+			ConnectorComputation connectorComp = structure.getConnectorComputation(0);
+			InterWorkList workList = structure.createWorkList(0);
 			this.typeAnalysis = new TypeAnalysis(
 					this.baseTac, new CSAnalysis(connectorComp), workList);
 			typeAnalysis.analyze();
@@ -475,6 +504,11 @@ public class ProgramConverter {
 			System.out.println("inclusion iterations:            " + iteration);
 			System.out.println("resolved literal includes:       " + resolvedLit);
 			System.out.println("resolved non-literal includes:   " + resolvedNonLit);
+			System.out.println("- k=0 literal analysis runs:     " + tierRuns[0]);
+			System.out.println("- resolved by k=0:               " + tierResolved[0]);
+			System.out.println("- k=1 literal analysis runs:     " + tierRuns[1]);
+			System.out.println("- resolved by k=1:               " + tierResolved[1]);
+			System.out.println("- resolved by heuristics:        " + heuristicsResolved);
 			System.out.println("cyclic includes:                 " + cyclic);
 			System.out.println("not found includes:              " + 
 					(notFoundLiteralIncludes.size() + notFoundDynamicIncludes.size()));
@@ -503,6 +537,14 @@ public class ProgramConverter {
 		this.literalAnalysis = null;
 		this.includeGraph = null;
 		this.skipUs = null;
+		this.prefetched = null;
+		if (this.conversionWorkers != null) {
+			for (Thread worker : this.conversionWorkers) {
+				worker.interrupt();
+			}
+			this.conversionWorkers = null;
+			this.conversionQueue = null;
+		}
 
 		this.baseTac.addSuperGlobalElements();
 
@@ -517,6 +559,30 @@ public class ProgramConverter {
 
 	}
 
+	//  analyzeLiterals ****************************************************************
+
+	// performs a literal analysis for resolving non-literal includes,
+	// using call strings of the given length
+	private LiteralAnalysis analyzeLiterals(int kSize) {
+
+		// shared with the other analyses of this program version
+		InterStructure structure = this.baseTac.getInterStructure();
+		ConnectorComputation connectorComp = structure.getConnectorComputation(kSize);
+		InterWorkList workList = structure.createWorkList(kSize);
+		connectorComp.stats(false);
+
+		AliasAnalysis aliasAnalysis = new DummyAliasAnalysis();
+
+		// assign a reasonable (worklist) order to the nodes, speeds up analyses;
+		// not necessary here! this is only needed for functional analyses!
+		//baseTac.assignReversePostOrder();
+
+		LiteralAnalysis literalAnalysis = new LiteralAnalysis(
+				baseTac, aliasAnalysis, new CSAnalysis(connectorComp), workList);
+		literalAnalysis.analyze();
+		return literalAnalysis;
+	}
+
 	//  ********************************************************************************
 
 	// - input: a set of unresolved or not found includes
@@ -555,31 +621,189 @@ public class ProgramConverter {
 
 		ParseTree parseTree = null;
 		try {
-			PhpLexer lexer = new PhpLexer(new FileReader(fileName));
-			lexer.setFileName(fileName);
-			PhpParser parser = new PhpParser(lexer);
-			ParseNode rootNode = (ParseNode) parser.parse().value;
-			parseTree = new ParseTree(rootNode);
-		} catch (FileNotFoundException e) {
-			Utils.bail("File not found: " + fileName);
+			parseTree = readParseTree(fileName);
 		} catch (Exception e) {
-			if (!MyOptions.optionW) {
-				//MonaNashaat
-//				Utils.bail("Error parsing " + fileName);
-				System.err.println("Error parsing " + fileName);
+			this.parseFailed(fileName, e);
+		}
+
+		if (this.countLines) {
+			this.lines += this.countLines(fileName);
+		}
+
+		return parseTree;
+	}
+
+	//  readParseTree ******************************************************************
+
+	// parses the given file (canonical name) and throws any error to the caller;
+	// doesn't touch any state of this converter, so it may be called from the
+	// conversion worker threads
+	private static ParseTree readParseTree(String fileName) throws Exception {
+		PhpLexer lexer = new PhpLexer(new FileReader(fileName));
+		lexer.setFileName(fileName);
+		PhpParser parser = new PhpParser(lexer);
+		ParseNode rootNode = (ParseNode) parser.parse().value;
+		return new ParseTree(rootNode);
+	}
+
+	//  parseFailed ********************************************************************
+
+	// reports that the given file (canonical name) could not be parsed;
+	// only called from the main thread
+	private void parseFailed(String fileName, Exception e) {
+		if (e instanceof FileNotFoundException) {
+			Utils.bail("File not found: " + fileName);
+		} else if (!MyOptions.optionW) {
+			System.err.println("Error parsing " + fileName);
+			throw new RuntimeException(e.getMessage());
+		} else {
+			Utils.bail();
+		}
+	}
+
+	//  prefetch ***********************************************************************
+
+	// starts converting the files that will be included by the given literal
+	// include nodes on the worker threads, each with a superglobals symbol table
+	// of its own; for assigning the same converter ids as a sequential run, the
+	// checks of include() are replayed on a copy of the include graph;
+	// include() picks up the results in inclusion order and links them
+	private void prefetch(List<CfgNodeInclude> includeNodes) {
+
+		if (MyOptions.conversionThreads <= 1) {
+			return;
+		}
+		if (this.conversionQueue == null) {
+			this.startConversionWorkers();
+		}
+
+		IncludeGraph includeGraph = this.includeGraph.copy();
+		Set<String> sharedPaths = new HashSet<String>(this.sharedIncludes.keySet());
+		int id = this.numConvertedFiles;
+		for (CfgNodeInclude includeNode : includeNodes) {
+			if (this.skipUs.contains(includeNode) || !includeNode.isLiteral()) {
+				continue;
+			}
+			final File includedFile = this.makeFile(includeNode.getIncludeMe().toString(), includeNode.getFile());
+			if (includedFile == null || !includeGraph.addAcyclicEdge(includeNode.getFile(), includedFile)) {
+				continue;
+			}
+			final String includedFilePath;
+			try {
+				includedFilePath = includedFile.getCanonicalPath();
+			} catch (IOException e) {
 				throw new RuntimeException(e.getMessage());
-				
-			} else {
-				Utils.bail();
 			}
+			// shared includes are only converted once
+			if (MyOptions.sharedIncludes && includeNode.getIncludeFunction().isMain() &&
+					!sharedPaths.add(includedFilePath)) {
+				continue;
+			}
+
+			LinkedList<Future<TacConverter>> pending = this.prefetched.get(includedFilePath);
+			if (pending == null) {
+				pending = new LinkedList<Future<TacConverter>>();
+				this.prefetched.put(includedFilePath, pending);
+			}
+			final int unitId = id++;
+			FutureTask<TacConverter> task = new FutureTask<TacConverter>(new Callable<TacConverter>() {
+				public TacConverter call() throws Exception {
+					ParseTree parseTree;
+					try {
+						parseTree = readParseTree(includedFilePath);
+					} catch (Exception e) {
+						throw new ParseFailure(e);
+					}
+					TacConverter tac = new TacConverter(parseTree, specialNodes, unitId,
+							includedFile, makeSuperSymbolTable());
+					tac.convert();
+					return tac;
+				}
+			});
+			this.conversionQueue.add(task);
+			pending.add(task);
 		}
+	}
+
+	//  takePrefetched *****************************************************************
 
+	// returns the next converter prefetched for the given file (canonical name),
+	// linked with the program-wide superglobals symbol table; null if there is
+	// none, in which case the file has to be converted by the caller;
+	// errors of the worker thread are raised here, as in a sequential run
+	private TacConverter takePrefetched(String fileName) {
+
+		LinkedList<Future<TacConverter>> pending = this.prefetched.get(fileName);
+		if (pending == null || pending.isEmpty()) {
+			return null;
+		}
+
+		TacConverter tac = null;
+		try {
+			tac = pending.removeFirst().get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e.getMessage());
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ParseFailure) {
+				this.parseFailed(fileName, (Exception) cause.getCause());
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+		if (tac.getId() != this.numConvertedFiles) {
+			throw new RuntimeException("SNH");
+		}
+		this.numConvertedFiles++;
 
 		if (this.countLines) {
 			this.lines += this.countLines(fileName);
 		}
 
-		return parseTree;
+		tac.linkSuperGlobals(this.superSymbolTable);
+		return tac;
+	}
+
+	//  startConversionWorkers *********************************************************
+
+	// starts the conversion worker threads; plain threads are used instead of an
+	// ExecutorService since the latter computes identity hash codes on the
+	// calling thread, which would change the (hash-dependent) iteration orders
+	// of the analyses compared to a sequential run
+	private void startConversionWorkers() {
+		final BlockingQueue<FutureTask<TacConverter>> queue = new LinkedBlockingQueue<FutureTask<TacConverter>>();
+		Runnable worker = new Runnable() {
+			public void run() {
+				while (true) {
+					try {
+						queue.take().run();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		};
+		this.conversionWorkers = new Thread[MyOptions.conversionThreads];
+		for (int i = 0; i < this.conversionWorkers.length; i++) {
+			// parsing and conversion are deeply recursive: use the same stack
+			// size as the main thread
+			this.conversionWorkers[i] = new Thread(null, worker, "converter-" + i, 50L * 1024 * 1024);
+			this.conversionWorkers[i].setDaemon(true);
+			this.conversionWorkers[i].start();
+		}
+		this.conversionQueue = queue;
+	}
+
+	// thrown by the conversion worker threads if a file can't be parsed;
+	// reported by the main thread (see takePrefetched)
+	private static class ParseFailure extends Exception {
+		private static final long serialVersionUID = 1L;
+		ParseFailure(Exception cause) {
+			super(cause);
+		}
 	}
 
 	//  makeCompleteFileName ***********************************************************
@@ -692,7 +916,7 @@ public class ProgramConverter {
 		try{
 		ParseTree parseTree = this.parse(includedFilePath);
 		TacConverter tac = new TacConverter(
-				parseTree, this.specialNodes, this.numConvertedFiles++, includedFile, this);
+				parseTree, this.specialNodes, this.numConvertedFiles++, includedFile, this.superSymbolTable);
 		tac.convert();
 		//	this.baseTac.include(tac, includeNode, function);
 		//	includeNodes.addAll(tac.getIncludeNodes());
@@ -749,11 +973,24 @@ public class ProgramConverter {
 			if (!MyOptions.optionB) {
 				System.out.print(".");
 			}
-			ParseTree parseTree = this.parse(includedFilePath);
-			TacConverter tac = new TacConverter(
-					parseTree, this.specialNodes, this.numConvertedFiles++, includedFile, this);
-			tac.convert();
-			this.baseTac.include(tac, includeNode, function);
+			boolean shared = MyOptions.sharedIncludes && function.isMain();
+			if (shared && this.sharedIncludes.containsKey(includedFilePath)) {
+				// this file has already been converted into a pseudo-function
+				this.baseTac.includeShared(this.sharedIncludes.get(includedFilePath), includeNode);
+				return IncStatus.INCLUDED;
+			}
+			TacConverter tac = this.takePrefetched(includedFilePath);
+			if (tac == null) {
+				ParseTree parseTree = this.parse(includedFilePath);
+				tac = new TacConverter(
+						parseTree, this.specialNodes, this.numConvertedFiles++, includedFile, this.superSymbolTable);
+				tac.convert();
+			}
+			if (shared) {
+				this.sharedIncludes.put(includedFilePath, this.baseTac.includeShared(tac, includeNode));
+			} else {
+				this.baseTac.include(tac, includeNode, function);
+			}
 			includeNodes.addAll(tac.getIncludeNodes());
 			return IncStatus.INCLUDED;
 		} else {
@@ -783,17 +1020,41 @@ public class ProgramConverter {
 
 	}
 
+	//  makeSuperSymbolTable ***********************************************************
+
+	// returns a new superglobals symbol table with the superglobal arrays
+	private static SymbolTable makeSuperSymbolTable() {
+		SymbolTable superSymbolTable = new SymbolTable("_superglobals", true);
+		addSuperGlobal(superSymbolTable, "$GLOBALS");
+		addSuperGlobal(superSymbolTable, "$_SERVER");
+		addSuperGlobal(superSymbolTable, "$HTTP_SERVER_VARS");
+		addSuperGlobal(superSymbolTable, "$_GET");
+		addSuperGlobal(superSymbolTable, "$HTTP_GET_VARS");
+		addSuperGlobal(superSymbolTable, "$_POST");
+		addSuperGlobal(superSymbolTable, "$HTTP_POST_VARS");
+		addSuperGlobal(superSymbolTable, "$_COOKIE");
+		addSuperGlobal(superSymbolTable, "$HTTP_COOKIE_VARS");
+		addSuperGlobal(superSymbolTable, "$_FILES");
+		addSuperGlobal(superSymbolTable, "$HTTP_POST_FILES");
+		addSuperGlobal(superSymbolTable, "$_ENV");
+		addSuperGlobal(superSymbolTable, "$HTTP_ENV_VARS");
+		addSuperGlobal(superSymbolTable, "$_REQUEST");
+		addSuperGlobal(superSymbolTable, "$_SESSION");
+		addSuperGlobal(superSymbolTable, "$HTTP_SESSION_VARS");
+		return superSymbolTable;
+	}
+
 	// addSuperGlobal ******************************************************************
 
-	private void addSuperGlobal(String varName) {
+	private static void addSuperGlobal(SymbolTable superSymbolTable, String varName) {
 
 		// lookup variable in superglobals symbol table
-		Variable var = this.superSymbolTable.getVariable(varName);
+		Variable var = superSymbolTable.getVariable(varName);
 
 		// if it isn't there: add it
 		if (var == null) {
-			var = new Variable(varName, this.superSymbolTable);
-			this.superSymbolTable.add(var);
+			var = new Variable(varName, superSymbolTable);
+			superSymbolTable.add(var);
 		}
 		var.setIsSuperGlobal(true);
 	}
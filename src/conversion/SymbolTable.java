@@ -162,6 +162,25 @@ public class SymbolTable {
         }
     }
 
+    // like addAll(table), but only moves either the temporaries or the
+    // non-temporaries of the given table; used for turning an included
+    // main function into a pseudo-function (see TacConverter.includeShared)
+    void addAll(SymbolTable table, boolean temporaries) {
+        for (Iterator<Variable> iter = table.getVariables().keySet().iterator(); iter.hasNext(); ) {
+            Variable variable = iter.next();
+            if (variable.isTemp() != temporaries) {
+                continue;
+            }
+            variable.setSymbolTable(this);
+            if (this.isMain) {
+                variable.setIsGlobal();
+            } else {
+                variable.setIsLocal();
+            }
+            this.variables.put(variable, variable);
+        }
+    }
+
     public int hashCode() {
         return this.name.hashCode();
     }
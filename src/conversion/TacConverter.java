@@ -7,6 +7,7 @@ import phpParser.*;
 import pixy.MyOptions;
 import pixy.Utils;
 import analysis.inter.CallGraph;
+import analysis.inter.InterStructure;
 import analysis.type.Type;
 import analysis.type.TypeAnalysis;
 import conversion.nodes.*;
@@ -134,14 +135,21 @@ public class TacConverter {
 	// first inclusion operation is performed
 	private List<CfgNodeInclude> includeNodes;
 
+	// the interprocedural structures shared by the analyses of this program
+	// (null if not requested yet); they are invalidated whenever the program
+	// changes, see programChanged()
+	private InterStructure interStructure;
+
 
 
 	// ********************************************************************************* 
 	// CONSTRUCTORS ********************************************************************    
 	// *********************************************************************************
 
+	// superSymbolTable: the program-wide superglobals symbol table, or a
+	// table of its own if this file is converted separately (see linkSuperGlobals)
 	public TacConverter(ParseTree phpParseTree, boolean specialNodes, int id, 
-			File file, ProgramConverter pcv) {
+			File file, SymbolTable superSymbolTable) {
 
 		this.id = id;
 		this.file = file;
@@ -176,7 +184,7 @@ public class TacConverter {
 		this.mainFunction = null;
 
 		// initialize symbol table for superglobals
-		this.superSymbolTable = pcv.getSuperSymbolTable();
+		this.superSymbolTable = superSymbolTable;
 
 		// special superglobals for tainted and untainted values
 		// (used in the builtin functions file);
@@ -315,6 +323,8 @@ public class TacConverter {
 	// you will get into trouble in other places
 	public void createBasicBlocks() {
 
+		this.programChanged();
+
 		// which cfg nodes did we already visit?
 		Set<CfgNode> visited = new HashSet<CfgNode>();
 
@@ -466,12 +476,120 @@ public class TacConverter {
 		return false;
 	}
 
+	//  linkSuperGlobals ***************************************************************
+
+	// links this converter, which was converted with a superglobals symbol table
+	// of its own, with the given program-wide superglobals symbol table:
+	// superglobals that already exist there replace this converter's ones
+	// in its variables, functions and cfgs, the other ones are moved into the
+	// program-wide table (in the order in which they were created, which gives
+	// the same table as a conversion with the program-wide table);
+	// has to be called before this converter is included
+	void linkSuperGlobals(SymbolTable programSuperSymbolTable) {
+
+		// own superglobal -> program-wide superglobal with the same name
+		Map<Variable,Variable> replacements = new IdentityHashMap<Variable,Variable>();
+		for (Variable var : this.superSymbolTable.getVariablesColl()) {
+			Variable existing = programSuperSymbolTable.getVariable(var);
+			if (existing != null) {
+				replacements.put(var, existing);
+			}
+		}
+
+		// SUPERGLOBALS SYMBOLTABLE *********************
+
+		for (Variable var : this.superSymbolTable.getVariablesColl()) {
+			Variable existing = replacements.get(var);
+			if (existing != null) {
+				// transfer the information that was added by this converter
+				if (var.isArray() && !existing.isArray()) {
+					existing.setIsArray(true);
+				}
+				if (var.isReturnVariable()) {
+					existing.setIsReturnVariable(true);
+				}
+				for (Variable indexed : var.getIndexFor()) {
+					if (!replacements.containsKey(indexed)) {
+						existing.addIndexFor(indexed);
+					}
+				}
+				continue;
+			}
+
+			// a new element of an existing array has to be added to this array
+			boolean newElement = var.isArrayElement() && 
+					replacements.containsKey(var.getEnclosingArray());
+			var.replaceVariables(replacements);
+			var.setSymbolTable(programSuperSymbolTable);
+			programSuperSymbolTable.add(var);
+			if (newElement) {
+				Variable array = var.getEnclosingArray();
+				if (!array.isArray()) {
+					array.setIsArray(true);
+				}
+				array.addElement(var);
+			}
+		}
+		this.superSymbolTable = programSuperSymbolTable;
+
+		// FUNCTIONS AND CFGS ***************************
+
+		for (TacFunction function : this.getAllFunctions()) {
+			for (Variable var : function.getSymbolTable().getVariablesColl()) {
+				var.replaceVariables(replacements);
+			}
+			Variable retVar = replacements.get(function.getRetVar());
+			if (retVar != null) {
+				function.setRetVar(retVar);
+			}
+			this.replaceVariables(function.getCfg(), replacements);
+			for (TacFormalParam param : function.getParams()) {
+				if (param.hasDefault()) {
+					this.replaceVariables(param.getDefaultCfg(), replacements);
+				}
+			}
+		}
+	}
+
+	// helper function for "linkSuperGlobals": replaces the given variables in
+	// the nodes of the given cfg
+	private void replaceVariables(Cfg cfg, Map<Variable,Variable> replacements) {
+		for (CfgNode cfgNode : cfg.dfPreOrder()) {
+			int varCount = -1;
+			for (Variable var : cfgNode.getVariables()) {
+				varCount++;
+				Variable replacement = replacements.get(var);
+				if (replacement != null) {
+					cfgNode.replaceVariable(varCount, replacement);
+				}
+			}
+			// call nodes only return their params
+			if (cfgNode instanceof CfgNodeCall) {
+				CfgNodeCall callNode = (CfgNodeCall) cfgNode;
+				Variable replacement = replacements.get(callNode.getRetVar());
+				if (replacement != null) {
+					callNode.setRetVar(replacement);
+				}
+				replacement = replacements.get(callNode.getObject());
+				if (replacement != null) {
+					callNode.setObject(replacement);
+				}
+				replacement = replacements.get(callNode.getFunctionNamePlace());
+				if (replacement != null) {
+					callNode.setFunctionNamePlace(replacement);
+				}
+			}
+		}
+	}
+
 	//  include ************************************************************************
 
 	// includes the given converter at the specified include node;
 	// includingFunction: the one that contains the include node
 	public void include(TacConverter includedTac, CfgNodeInclude includeNode, TacFunction includingFunction) {
 
+		this.programChanged();
+
 		// INLINE MAIN CFG *************************************
 
 		// functions inside the included file
@@ -512,6 +630,104 @@ public class TacConverter {
         Dumper.dump(includingSymTab, function.getName());
 		 */
 
+		this.addIncludedDefinitions(includedTac, includingFunction);
+	}
+
+	//  includeShared ******************************************************************
+
+	// alternative to "include" for include nodes inside the main function:
+	// instead of inlining the included main cfg, it is turned into a pseudo-function
+	// that is called from the include node; returns this pseudo-function, or null
+	// if the included main cfg is empty (in which case the include node is simply removed);
+	// variables of the included main function become globals, temporaries become
+	// locals of the pseudo-function
+	public TacFunction includeShared(TacConverter includedTac, CfgNodeInclude includeNode) {
+
+		this.programChanged();
+
+		Map<String,TacFunction> includedUserFunctions = includedTac.getUserFunctions();
+		TacFunction includedMainFunc = includedUserFunctions.get(InternalStrings.mainFunctionName);
+		Cfg includedMainCfg = includedMainFunc.getCfg();
+
+		TacFunction pseudoFunc = null;
+		if (includedMainCfg.getHead().getSuccessor(0) instanceof CfgNodeExit) {
+			// empty main cfg
+			this.removeCfgNode(includeNode);
+		} else {
+
+			String pseudoName = InternalStrings.includePrefix + includedTac.id + "_" + 
+				includedTac.file.getName().toLowerCase();
+			pseudoFunc = new TacFunction(pseudoName, includedMainCfg, includedMainFunc.getRetVar(), 
+					false, includedMainCfg.getHead().getParseNode(), "");
+			pseudoFunc.setParams(new LinkedList<TacFormalParam>());
+			this.userFunctions.put(pseudoName, pseudoFunc);
+
+			// move the included main's variables: temporaries are local to the
+			// pseudo-function, everything else is global
+			SymbolTable includedMainSymTab = includedMainFunc.getSymbolTable();
+			pseudoFunc.getSymbolTable().addAll(includedMainSymTab, true);
+			this.mainSymbolTable.addAll(includedMainSymTab, false);
+
+			// add function and method calls inside the included main function (for backpatching)
+			this.addFunctionCalls(pseudoFunc, includedTac.getFunctionCalls(includedMainFunc));
+			this.addMethodCalls(pseudoFunc, includedTac.getMethodCalls(includedMainFunc));
+
+			this.callShared(pseudoFunc, includeNode);
+		}
+
+		this.addIncludedDefinitions(includedTac, this.mainFunction);
+		return pseudoFunc;
+	}
+
+	// shares a pseudo-function that was already created by includeShared
+	// for the same file; pseudoFunc can be null (empty main cfg)
+	public void includeShared(TacFunction pseudoFunc, CfgNodeInclude includeNode) {
+		this.programChanged();
+		if (pseudoFunc == null) {
+			this.removeCfgNode(includeNode);
+		} else {
+			this.callShared(pseudoFunc, includeNode);
+		}
+	}
+
+	//  callShared *********************************************************************
+
+	// helper function for "includeShared": replaces the include node
+	// with a call to the given pseudo-function
+	private void callShared(TacFunction pseudoFunc, CfgNodeInclude includeNode) {
+
+		ParseNode parseNode = includeNode.getParseNode();
+		CfgNodeCallPrep prep = new CfgNodeCallPrep(parseNode);
+		CfgNode call = new CfgNodeCall(
+				new Literal(pseudoFunc.getName()), null, parseNode, this.mainFunction,
+				pseudoFunc.getRetVar(), includeNode.getTemp(), 
+				new LinkedList<TacActualParam>(), null);
+		CfgNodeCallRet callRet = new CfgNodeCallRet(parseNode);
+		connect(prep, call);
+		connect(call, callRet);
+
+		// node after the "include" node
+		CfgNode afterInclude = includeNode.getOutEdges()[0].getDest();
+		afterInclude.removeInEdge(includeNode);
+
+		// redirect edges that enter the include node to the call preparation
+		for (CfgEdge inEdge : includeNode.getInEdges()) {
+			inEdge.setDest(prep);
+			prep.addInEdge(inEdge);
+		}
+		connect(callRet, afterInclude);
+
+		this.addFunctionCall(this.mainFunction, prep);
+	}
+
+	//  addIncludedDefinitions *********************************************************
+
+	// helper function for "include" and "includeShared": adds the functions, methods,
+	// classes and constants of the included converter, and adjusts its include nodes
+	private void addIncludedDefinitions(TacConverter includedTac, TacFunction includingFunction) {
+
+		Map<String,TacFunction> includedUserFunctions = includedTac.getUserFunctions();
+
 		// ADD FUNCTIONS ********************************************
 
 		for (TacFunction includedFunc : includedUserFunctions.values()) {
@@ -793,6 +1009,28 @@ public class TacConverter {
 			return null;
 	}
 
+	// getInterStructure ***************************************************************
+
+	// returns the interprocedural structures (connectors, worklist orders,
+	// call graph) for the current version of this program
+	public InterStructure getInterStructure() {
+		if (this.interStructure == null) {
+			this.interStructure = new InterStructure(this);
+		}
+		return this.interStructure;
+	}
+
+	// programChanged ******************************************************************
+
+	// has to be called before the cfgs or the call targets of this program are
+	// changed (inclusion, backpatching, basic blocks); invalidates the shared
+	// interprocedural structures
+	private void programChanged() {
+		if (this.interStructure != null) {
+			this.interStructure.invalidate();
+		}
+	}
+
 	// getAllFunctions *****************************************************************
 
 	// returns all functions and methods
@@ -835,6 +1073,12 @@ public class TacConverter {
 		return this.file;
 	}
 
+	//  ********************************************************************************
+
+	int getId() {
+		return this.id;
+	}
+
 	// getUserFunctions ****************************************************************
 
 	public Map<String,TacFunction> getUserFunctions() {
@@ -2535,6 +2779,9 @@ public class TacConverter {
 	public void backpatch(boolean riskMethods, boolean finalPass, 
 			TypeAnalysis typeAnalysis, CallGraph callGraph) {
 
+		// resolved calls change the call graph and the connectors
+		this.programChanged();
+
 		// method backpatching
 		for (List<CfgNodeCallPrep> callList : this.methodCalls.values()) {
 			for (CfgNodeCallPrep prepNode : callList) {
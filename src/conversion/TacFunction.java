@@ -185,6 +185,10 @@ public class TacFunction {
 		this.isMain = isMain;
 	}
 
+	void setRetVar(Variable retVar) {
+		this.retVar = retVar;
+	}
+
 	public void addCalledFrom(CfgNodeCall callNode) {
 		this.calledFrom.add(callNode);
 	}
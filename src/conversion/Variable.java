@@ -336,6 +336,30 @@ extends TacPlace {
     void addIndexFor(Variable var) {
         this.indexFor.add(var);
     }
+
+    // replaces variables (keys of the given map) in the array information
+    // of this variable; used when linking a separately converted file
+    // (see TacConverter.linkSuperGlobals); the keys of the elements map
+    // are left alone, since variables are compared by name
+    void replaceVariables(Map<Variable,Variable> replacements) {
+        this.enclosingArray = (Variable) replace(this.enclosingArray, replacements);
+        this.topEnclosingArray = (Variable) replace(this.topEnclosingArray, replacements);
+        this.index = replace(this.index, replacements);
+        if (this.indices != null) {
+            for (ListIterator<TacPlace> iter = this.indices.listIterator(); iter.hasNext();) {
+                iter.set(replace(iter.next(), replacements));
+            }
+        }
+        this.dependsOn = replace(this.dependsOn, replacements);
+        for (ListIterator<Variable> iter = this.indexFor.listIterator(); iter.hasNext();) {
+            iter.set((Variable) replace(iter.next(), replacements));
+        }
+    }
+
+    private static TacPlace replace(TacPlace place, Map<Variable,Variable> replacements) {
+        Variable replacement = replacements.get(place);
+        return (replacement == null ? place : replacement);
+    }
     
     void setIsMember(boolean isMember) {
         this.isMember = isMember;
@@ -47,6 +47,17 @@ public class IncludeGraph {
 //  OTHER **************************************************************************
 //  ********************************************************************************
 
+//  copy ***************************************************************************
+
+    // returns a copy of this graph that can be modified independently
+    public IncludeGraph copy() {
+        IncludeGraph retMe = new IncludeGraph(this);
+        for (Map.Entry<IncludeNode,Set<IncludeNode>> entry : retMe.adjSets.entrySet()) {
+            entry.setValue(new HashSet<IncludeNode>(entry.getValue()));
+        }
+        return retMe;
+    }
+
     public String dump() {
         StringBuilder b = new StringBuilder();
         for (Map.Entry<IncludeNode, Set<IncludeNode>> entry : this.adjSets.entrySet()) {
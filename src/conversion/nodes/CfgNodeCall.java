@@ -188,6 +188,14 @@ extends CfgNode {
     public void setRetVar(Variable retVar) {
         this.retVar = retVar;
     }
+
+    public void setObject(Variable object) {
+        this.object = object;
+    }
+
+    public void setFunctionNamePlace(TacPlace functionNamePlace) {
+        this.functionNamePlace = functionNamePlace;
+    }
     
     public void setCalleeClassName(String s) {
         this.calleeClassName = s;
@@ -3,10 +3,12 @@ package phpParser;
 
 import java.util.*;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class ParseNode implements Serializable{
     private final int id;
-    private static int minFreeId = 0;
+    // ParseNodes can be created by several parser threads at once
+    private static final AtomicInteger minFreeId = new AtomicInteger();
     private final String lexeme=null;
     private int lineno =-1;
 
@@ -25,7 +27,7 @@ public final class ParseNode implements Serializable{
     private ParseNode parent = null;
 
     public ParseNode(int symbol, String name) {
-    	this.id=ParseNode.minFreeId++;
+    	this.id=ParseNode.minFreeId.getAndIncrement();
         this.symbol = symbol;
         this.name = name;
         
@@ -10,15 +10,16 @@ import analysis.inter.AnalysisType;
 import analysis.inter.CallGraph;
 import analysis.inter.ConnectorComputation;
 import analysis.inter.InterWorkList;
-import analysis.inter.InterWorkListBetter;
-import analysis.inter.InterWorkListOrder;
 import analysis.inter.InterWorkListPoor;
 import analysis.inter.callstring.CSAnalysis;
 import analysis.inter.functional.FunctionalAnalysis;
+import analysis.inter.ifds.IfdsAnalysis;
 import analysis.literal.*;
 import analysis.mod.ModAnalysis;
 import conversion.*;
+import conversion.nodes.CfgNode;
 import java.io.*;
+import java.security.MessageDigest;
 import java.util.*;
 
 
@@ -344,10 +345,8 @@ public final class Checker {
         // computed connectors; if this computation hasn't been done yet,
         // do it now
         if (this.connectorComp == null) {
-            this.connectorComp = new ConnectorComputation(
-                    tac.getAllFunctions(), tac.getMainFunction(), this.kSize);
-            connectorComp.compute();
-            this.workList = new InterWorkListBetter(new InterWorkListOrder(tac, this.connectorComp));
+            this.connectorComp = tac.getInterStructure().getConnectorComputation(this.kSize);
+            this.workList = tac.getInterStructure().createWorkList(this.kSize);
             // Dumper.dumpFunction2ECS(connectorComp.getFunction2ECS());
             // Dumper.dumpCall2ConFunc(connectorComp.getCall2ConnectorFunction());
         }
@@ -357,6 +356,9 @@ public final class Checker {
         this.literalAnalysis =
                 new LiteralAnalysis(tac, this.aliasAnalysis,
                         new CSAnalysis(this.connectorComp), this.workList);
+        if (MyOptions.checkpointPath != null) {
+            this.literalAnalysis.enableCheckpoints(this.getCheckpointFile(tac, "literal", false));
+        }
         //Checker.report();
         //System.out.println("\n*** performing literal analysis ***\n");
         this.literalAnalysis.analyze();
@@ -385,26 +387,35 @@ public final class Checker {
         // PERFORM TAINT ANALYSIS
         // ***********************
         AnalysisType enclosingAnalysis;
+        InterWorkList workList;
         CallGraph callGraph = null;
         ModAnalysis modAnalysis = null;
         if (functional) {
             //System.out.println("functional analysis!");
             enclosingAnalysis = new FunctionalAnalysis();
             this.workList = new InterWorkListPoor();
+            workList = this.workList;
         } else {
             if (this.connectorComp == null) {
-                this.connectorComp = new ConnectorComputation(
-                        tac.getAllFunctions(), tac.getMainFunction(), this.kSize);
-                connectorComp.compute();
-                this.workList = new InterWorkListBetter(new InterWorkListOrder(tac, this.connectorComp));
+                this.connectorComp = tac.getInterStructure().getConnectorComputation(this.kSize);
+                this.workList = tac.getInterStructure().createWorkList(this.kSize);
                 connectorComp.stats(false);
             }
+            workList = this.workList;
             if (MyOptions.optionV) {
               //  System.out.println("call-string analysis!");
             }
             //System.out.println("STATS:");
             //this.connectorComp.stats();
-            enclosingAnalysis = new CSAnalysis(this.connectorComp);
+            if (MyOptions.depIfds) {
+                // the connector computation still provides the call graph;
+                // the call-string worklist doesn't fit the contexts of the
+                // analysis type
+                enclosingAnalysis = new IfdsAnalysis(this.connectorComp.getCallGraph());
+                workList = new InterWorkListPoor();
+            } else {
+                enclosingAnalysis = new CSAnalysis(this.connectorComp);
+            }
             
             // write called-by relations to file; can be quite useful
             Utils.writeToFile(this.connectorComp.dump(),
@@ -420,12 +431,15 @@ public final class Checker {
         
         //Checker.report();
         this.gta = GenericTaintAnalysis.createAnalysis(tac, enclosingAnalysis,
-                this, this.workList, modAnalysis);
+                this, workList, modAnalysis);
         if (this.gta == null) {
             Utils.bail("Please specify a valid type of taint analysis.");
         }
         //Checker.report();
         //System.out.println("\n*** performing taint analysis ***\n");
+        if (MyOptions.checkpointPath != null) {
+            gta.depAnalysis.enableCheckpoints(this.getCheckpointFile(tac, "dep", functional));
+        }
         gta.analyze();
         
         /*
@@ -451,6 +465,42 @@ public final class Checker {
         
     }
     
+    //  getCheckpointFile **************************************************************
+    
+    // returns the checkpoint file for the given analysis; its name contains
+    // a hash of the input (the contents of all files that made it into the
+    // cfgs) and of the options that influence the analysis, so that a later
+    // run on the same input resumes from the same file
+    File getCheckpointFile(TacConverter tac, String analysisName, boolean functional) {
+        
+        SortedSet<String> fileNames = new TreeSet<String>();
+        for (TacFunction function : tac.getAllFunctions()) {
+            for (CfgNode node : function.getCfg().dfPreOrder()) {
+                if (node.getFileName() != null) {
+                    fileNames.add(node.getFileName());
+                }
+            }
+        }
+        
+        StringBuilder hash = new StringBuilder();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (String fileName : fileNames) {
+                digest.update(fileName.getBytes("UTF-8"));
+                digest.update(Utils.readFile(fileName).getBytes("UTF-8"));
+            }
+            digest.update((this.kSize + " " + MyOptions.option_L + " " + MyOptions.option_A + 
+                    " " + MyOptions.depBypassIdChains + " " + MyOptions.adaptiveKSize + " " +
+                    MyOptions.adaptiveKCost + " " + functional).getBytes("UTF-8"));
+            for (byte b : digest.digest()) {
+                hash.append(String.format("%02x", b));
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("SNH: " + e);
+        }
+        return new File(MyOptions.checkpointPath, hash + "_" + analysisName + ".ckpt");
+    }
+    
     //  analyzeIncDom ******************************************************************
     
     IncDomAnalysis analyzeIncDom(TacFunction function) {
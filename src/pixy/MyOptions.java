@@ -50,6 +50,76 @@ public class MyOptions {
     public static String option_Extension = "jpg";
     // count paths in depgraphs?
     public static boolean countPaths = false;
+    // include files from the main function as shared pseudo-functions
+    // instead of inlining them at every include site?
+    public static boolean sharedIncludes = false;
+    // number of threads for parsing and converting included files in advance,
+    // which are then linked by the main thread in inclusion order
+    // (1: everything is done sequentially by the main thread)
+    public static int conversionThreads = 1;
+    // number of threads for solving the interprocedural analyses on the
+    // strongly connected components of the call graph (1: sequential worklist)
+    public static int analysisThreads = 1;
+    // reuse the exit values of callee contexts in the call-string dependency
+    // analysis for calls with equivalent entry values (requires MOD info)?
+    public static boolean depSummaries = false;
+    // bypass chains of nodes with the identity transfer function during the
+    // propagation of the dependency analysis? (whole lattice elements are
+    // still propagated through all other nodes; see InterAnalysis.bypassIdChains)
+    public static boolean depBypassIdChains = false;
+    // during propagation, only merge and compare the mappings that the
+    // incoming value changes (instead of comparing complete lattice elements)?
+    public static boolean deltaPropagation = false;
+    // don't perform the dependency analysis in advance, but compute the deps
+    // required for each dependency graph on demand (context-insensitive)?
+    public static boolean depDemand = false;
+    // solve the dependency analysis with the IFDS tabulation solver instead
+    // of call strings (fully context-sensitive, computed on demand)?
+    public static boolean depIfds = false;
+    // budgets for each interprocedural call-string analysis (0: unlimited);
+    // a function exceeding its budget (or every function, if the global budget
+    // is exceeded) is analyzed under a single context from then on
+    public static long analysisStepBudget = 0;
+    public static long analysisTimeBudget = 0;      // milliseconds
+    public static long functionStepBudget = 0;
+    public static long functionTimeBudget = 0;      // milliseconds
+    // profile the convergence of the worklist algorithms (visits of nodes,
+    // functions and contexts, lub cost, growth of the analysis information)
+    // and report the top hotspots and a folded-stack file for flame graphs
+    // (see AnalysisProfile)?
+    public static boolean profileAnalysis = false;
+    public static int profileTop = 20;
+    // directory for checkpoints of the call-string analyses (null: none);
+    // the worklist and the changed analysis information are appended to
+    // the checkpoint file every checkpointInterval milliseconds, and an
+    // analysis of the same input resumes from the last checkpoint of its
+    // file; the files of finished analyses are kept, so that repeated
+    // runs can skip the analysis (see InterCheckpoint)
+    public static String checkpointPath = null;
+    public static long checkpointInterval = 60000;  // milliseconds
+    // spill the phi values of cold functions to a temporary file (in
+    // spillPath, or the default temporary directory if null) whenever a
+    // garbage collection leaves the old generation fuller than this
+    // fraction of its maximum (0: never); the values are read back on
+    // demand (see InterSpillStore)
+    public static double spillThreshold = 0;
+    public static String spillPath = null;
+    // fold the phi maps of functions as soon as they can't be reached from
+    // the worklist anymore, instead of keeping all per-context values until
+    // the end of the analysis; only the values needed afterwards are kept
+    // (see InterFrontier)
+    public static boolean foldFinalFunctions = false;
+    // call-string length for the "wrapper" functions of call-string analyses
+    // whose params reach sinks of the enabled analyses, return values or
+    // params of other wrappers, as long as the function's size times its
+    // number of such call strings stays below adaptiveKCost; all other functions keep the k-size of the analysis
+    // (0: the same k-size for all functions; see AdaptiveKSize)
+    public static int adaptiveKSize = 0;
+    public static long adaptiveKCost = 20000;
+    // merge the contexts of a function under which it is entered with the
+    // same value, and split them again when their entry values diverge
+    // (call-string analyses only; see InterCollapse)
+    public static boolean collapseContexts = false;
     
     // the scanned entry file (canonical)
     public static File entryFile;